@@ -0,0 +1,31 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.*;
+
+
+
+/**
+ * Runs benchmarks selected by the command line args (all by default) with {@link GCProfiler}
+ * ({@code -prof gc}) enabled, unless some other profilers were explicitly requested.
+ * Accepts the same args as the standard JMH {@code Main}.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args)
+			throws CommandLineOptionException, RunnerException, IOException {
+		final var cmdLineOptions = new CommandLineOptions(args);
+		if (cmdLineOptions.shouldHelp()) {
+			cmdLineOptions.showHelp();
+			return;
+		}
+		final var optionsBuilder = new OptionsBuilder().parent(cmdLineOptions);
+		if (cmdLineOptions.getProfilers().isEmpty()) optionsBuilder.addProfiler(GCProfiler.class);
+		new Runner(optionsBuilder.build()).run();
+	}
+}
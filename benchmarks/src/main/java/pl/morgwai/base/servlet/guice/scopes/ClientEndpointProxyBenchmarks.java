@@ -0,0 +1,69 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import javax.websocket.*;
+import javax.websocket.CloseReason.CloseCodes;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+
+/**
+ * Measures the overhead of {@link ClientEndpointProxy#onOpen(Session, EndpointConfig)} and
+ * {@link ClientEndpointProxy#onClose(Session, CloseReason)} comparing to raw calls to the wrapped
+ * {@link Endpoint}.
+ * Each benchmark operation is a whole connection lifecycle: {@code onOpen(...)} followed by
+ * {@code onClose(...)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientEndpointProxyBenchmarks {
+
+
+
+	public static class ClientEndpoint extends Endpoint {
+
+		Session connection;
+
+		@Override public void onOpen(Session connection, EndpointConfig config) {
+			this.connection = connection;
+		}
+
+		@Override public void onClose(Session connection, CloseReason closeReason) {
+			this.connection = null;
+		}
+	}
+
+
+
+	static final CloseReason CLOSE_REASON = new CloseReason(CloseCodes.NORMAL_CLOSURE, "");
+
+	final ContextTracker<ContainerCallContext> ctxTracker = new ContextTracker<>();
+	final ClientEndpoint endpoint = new ClientEndpoint();
+	final FakeConnection connection = new FakeConnection("client");
+
+
+
+	@Benchmark
+	public Endpoint rawOpenClose() {
+		endpoint.onOpen(connection, null);
+		endpoint.onClose(connection, CLOSE_REASON);
+		return endpoint;
+	}
+
+	@Benchmark
+	public Endpoint proxiedOpenClose() {
+		final var endpointProxy = new ClientEndpointProxy(endpoint, ctxTracker);
+		endpointProxy.onOpen(connection, null);
+		endpointProxy.onClose(connection, CLOSE_REASON);
+		return endpointProxy;
+	}
+}
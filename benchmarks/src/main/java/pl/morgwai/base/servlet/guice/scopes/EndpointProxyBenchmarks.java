@@ -0,0 +1,129 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.lang.reflect.InvocationTargetException;
+import javax.websocket.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+
+/**
+ * Measures the overhead of dynamic {@code Endpoint} proxies created by
+ * {@link GuiceEndpointConfigurator} (and thus of {@link EndpointProxyHandler#invoke(Object,
+ * java.lang.reflect.Method, Object[]) EndpointProxyHandler.invoke(...)}) comparing to raw calls to
+ * the wrapped {@code Endpoint}.
+ * {@code direct*} benchmarks use proxies with
+ * {@link GuiceEndpointConfigurator#isDirectDispatchEnabled() direct dispatch} enabled, while
+ * {@code lifecycleOnly*} ones use proxies with
+ * {@link GuiceEndpointConfigurator#isLifecycleOnlyInterceptionEnabled() lifecycle-only
+ * interception} enabled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndpointProxyBenchmarks {
+
+
+
+	public static class AnnotatedEndpoint {
+
+		Session connection;
+		long messageCount = 0L;
+
+		@OnOpen public void onOpen(Session connection) { this.connection = connection; }
+
+		@OnMessage public String onMessage(String message) {
+			messageCount++;
+			return message;
+		}
+
+		@OnClose public void onClose() {}
+
+		/** Non-lifecycle method, called for example by other {@code Endpoints}. */
+		public long getMessageCount() { return messageCount; }
+	}
+
+
+
+	static final String MESSAGE = "benchmark message";
+
+	final ContextTracker<ContainerCallContext> ctxTracker = new ContextTracker<>();
+	final GuiceEndpointConfigurator configurator =
+			new GuiceEndpointConfigurator(null, ctxTracker, false);
+	final GuiceEndpointConfigurator directConfigurator =
+			new GuiceEndpointConfigurator(null, ctxTracker, false) {
+				@Override protected boolean isDirectDispatchEnabled() { return true; }
+			};
+	final GuiceEndpointConfigurator lifecycleOnlyConfigurator =
+			new GuiceEndpointConfigurator(null, ctxTracker, false) {
+				@Override protected boolean isLifecycleOnlyInterceptionEnabled() { return true; }
+			};
+
+	AnnotatedEndpoint rawEndpoint;
+	AnnotatedEndpoint endpointProxy;
+	AnnotatedEndpoint directEndpointProxy;
+	AnnotatedEndpoint lifecycleOnlyEndpointProxy;
+
+
+
+	@Setup
+	public void setup() throws InvocationTargetException {
+		rawEndpoint = new AnnotatedEndpoint();
+		rawEndpoint.onOpen(new FakeConnection("raw"));
+		endpointProxy = configurator.getProxyForEndpoint(new AnnotatedEndpoint(), false, false);
+		endpointProxy.onOpen(new FakeConnection("proxied"));
+		directEndpointProxy =
+				directConfigurator.getProxyForEndpoint(new AnnotatedEndpoint(), false, false);
+		directEndpointProxy.onOpen(new FakeConnection("direct"));
+		lifecycleOnlyEndpointProxy = lifecycleOnlyConfigurator.getProxyForEndpoint(
+				new AnnotatedEndpoint(), false, false);
+		lifecycleOnlyEndpointProxy.onOpen(new FakeConnection("lifecycleOnly"));
+	}
+
+
+
+	@Benchmark
+	public String rawOnMessage() {
+		return rawEndpoint.onMessage(MESSAGE);
+	}
+
+	@Benchmark
+	public String proxiedOnMessage() {
+		return endpointProxy.onMessage(MESSAGE);
+	}
+
+	@Benchmark
+	public String directOnMessage() {
+		return directEndpointProxy.onMessage(MESSAGE);
+	}
+
+
+
+	@Benchmark
+	public long rawNonLifecycleMethod() {
+		return rawEndpoint.getMessageCount();
+	}
+
+	@Benchmark
+	public long proxiedNonLifecycleMethod() {
+		return endpointProxy.getMessageCount();
+	}
+
+	@Benchmark
+	public long directNonLifecycleMethod() {
+		return directEndpointProxy.getMessageCount();
+	}
+
+	@Benchmark
+	public long lifecycleOnlyNonLifecycleMethod() {
+		return lifecycleOnlyEndpointProxy.getMessageCount();
+	}
+}
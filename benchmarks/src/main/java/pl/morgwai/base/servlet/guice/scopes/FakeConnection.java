@@ -0,0 +1,115 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.net.URI;
+import java.security.Principal;
+import java.util.*;
+import javax.websocket.*;
+import javax.websocket.RemoteEndpoint.Async;
+import javax.websocket.RemoteEndpoint.Basic;
+
+
+
+/**
+ * Minimal in-memory {@link Session} for benchmarks.
+ * Stores {@link MessageHandler}s passed to {@code addMessageHandler(...)} method family, so that
+ * benchmarks can obtain decorators created by {@link WebsocketConnectionProxy}.
+ */
+public class FakeConnection implements Session {
+
+
+
+	final String id;
+
+
+
+	public FakeConnection(String id) {
+		this.id = id;
+	}
+
+
+
+	@Override public Map<String, Object> getUserProperties() { return userProperties; }
+	final Map<String, Object> userProperties = new HashMap<>(5);
+
+	@Override public Set<MessageHandler> getMessageHandlers() { return messageHandlers; }
+	final Set<MessageHandler> messageHandlers = new HashSet<>(5);
+
+	/** The most recently added {@link MessageHandler}. */
+	MessageHandler lastAddedHandler;
+
+
+
+	@Override
+	public void addMessageHandler(MessageHandler handler) {
+		messageHandlers.add(handler);
+		lastAddedHandler = handler;
+	}
+
+	@Override
+	public <T> void addMessageHandler(Class<T> messageClass, MessageHandler.Whole<T> handler) {
+		addMessageHandler(handler);
+	}
+
+	@Override
+	public <T> void addMessageHandler(Class<T> messageClass, MessageHandler.Partial<T> handler) {
+		addMessageHandler(handler);
+	}
+
+	@Override
+	public void removeMessageHandler(MessageHandler handler) {
+		messageHandlers.remove(handler);
+	}
+
+
+
+	@Override public Set<Session> getOpenSessions() { return Set.of(this); }
+
+	@Override public String getId() { return id; }
+
+	@Override public boolean isOpen() { return true; }
+
+
+
+	// below only dumb stubs
+
+	@Override public WebSocketContainer getContainer() { return null; }
+
+	@Override public String getProtocolVersion() { return "13"; }
+
+	@Override public String getNegotiatedSubprotocol() { return null; }
+
+	@Override public List<Extension> getNegotiatedExtensions() { return List.of(); }
+
+	@Override public boolean isSecure() { return false; }
+
+	@Override public long getMaxIdleTimeout() { return 0L; }
+
+	@Override public void setMaxIdleTimeout(long milliseconds) {}
+
+	@Override public void setMaxBinaryMessageBufferSize(int length) {}
+
+	@Override public int getMaxBinaryMessageBufferSize() { return 0; }
+
+	@Override public void setMaxTextMessageBufferSize(int length) {}
+
+	@Override public int getMaxTextMessageBufferSize() { return 0; }
+
+	@Override public Async getAsyncRemote() { return null; }
+
+	@Override public Basic getBasicRemote() { return null; }
+
+	@Override public void close() {}
+
+	@Override public void close(CloseReason closeReason) {}
+
+	@Override public URI getRequestURI() { return null; }
+
+	@Override public Map<String, List<String>> getRequestParameterMap() { return Map.of(); }
+
+	@Override public String getQueryString() { return null; }
+
+	@Override public Map<String, String> getPathParameters() { return Map.of(); }
+
+	@Override public Principal getUserPrincipal() { return null; }
+}
@@ -0,0 +1,58 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.*;
+
+
+
+/**
+ * Minimal in-memory {@link HttpServletRequest} for benchmarks.
+ * Supports only methods used by {@link RequestContextFilter}, all others throw
+ * {@link UnsupportedOperationException}.
+ */
+public class FakeRequest extends HttpServletRequestWrapper {
+
+
+
+	/** Mutable to allow benchmarking re-dispatches of the same request. */
+	DispatcherType dispatcherType;
+
+
+
+	public FakeRequest(DispatcherType dispatcherType) {
+		super(UNSUPPORTED);
+		this.dispatcherType = dispatcherType;
+	}
+
+	static final HttpServletRequest UNSUPPORTED = (HttpServletRequest) Proxy.newProxyInstance(
+		HttpServletRequest.class.getClassLoader(),
+		new Class<?>[] {HttpServletRequest.class},
+		(proxy, method, args) -> {
+			throw new UnsupportedOperationException(method.getName());
+		}
+	);
+
+
+
+	@Override public DispatcherType getDispatcherType() { return dispatcherType; }
+
+	@Override public HttpSession getSession() { return null; }
+
+	@Override public HttpSession getSession(boolean create) { return null; }
+
+	@Override public String getRequestURI() { return "/benchmark"; }
+
+
+
+	final Map<String, Object> attributes = new HashMap<>(5);
+
+	@Override public Object getAttribute(String name) { return attributes.get(name); }
+
+	@Override public void setAttribute(String name, Object value) { attributes.put(name, value); }
+
+	@Override public void removeAttribute(String name) { attributes.remove(name); }
+}
@@ -0,0 +1,89 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import javax.websocket.MessageHandler;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+
+/**
+ * Measures the overhead of {@link WebsocketConnectionProxy.WholeMessageHandlerDecorator} and
+ * {@link WebsocketConnectionProxy.PartialMessageHandlerDecorator} comparing to raw calls to the
+ * wrapped {@link MessageHandler}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageHandlerDecoratorBenchmarks {
+
+
+
+	static final String MESSAGE = "benchmark message";
+
+	final ContextTracker<ContainerCallContext> ctxTracker = new ContextTracker<>();
+	long receivedChars = 0L;
+
+	final MessageHandler.Whole<String> rawWholeHandler = new MessageHandler.Whole<>() {
+		@Override public void onMessage(String message) {
+			receivedChars += message.length();
+		}
+	};
+	final MessageHandler.Partial<String> rawPartialHandler = new MessageHandler.Partial<>() {
+		@Override public void onMessage(String message, boolean last) {
+			receivedChars += message.length();
+		}
+	};
+
+	MessageHandler.Whole<String> decoratedWholeHandler;
+	MessageHandler.Partial<String> decoratedPartialHandler;
+
+
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		final var connection = new FakeConnection("decorated");
+		final var connectionProxy = new WebsocketConnectionProxy(connection, ctxTracker);
+		new WebsocketConnectionContext(connectionProxy);
+		connectionProxy.addMessageHandler(String.class, rawWholeHandler);
+		decoratedWholeHandler = (MessageHandler.Whole<String>) connection.lastAddedHandler;
+		connectionProxy.addMessageHandler(String.class, rawPartialHandler);
+		decoratedPartialHandler = (MessageHandler.Partial<String>) connection.lastAddedHandler;
+	}
+
+
+
+	@Benchmark
+	public long rawWholeOnMessage() {
+		rawWholeHandler.onMessage(MESSAGE);
+		return receivedChars;
+	}
+
+	@Benchmark
+	public long decoratedWholeOnMessage() {
+		decoratedWholeHandler.onMessage(MESSAGE);
+		return receivedChars;
+	}
+
+
+
+	@Benchmark
+	public long rawPartialOnMessage() {
+		rawPartialHandler.onMessage(MESSAGE, true);
+		return receivedChars;
+	}
+
+	@Benchmark
+	public long decoratedPartialOnMessage() {
+		decoratedPartialHandler.onMessage(MESSAGE, true);
+		return receivedChars;
+	}
+}
@@ -0,0 +1,75 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.IOException;
+import javax.servlet.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+
+/**
+ * Measures the overhead of
+ * {@link RequestContextFilter#doFilter(ServletRequest, ServletResponse, FilterChain)} comparing to
+ * raw calls to the target {@code Servlet}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestContextFilterBenchmarks {
+
+
+
+	final ContextTracker<ContainerCallContext> ctxTracker = new ContextTracker<>();
+	final RequestContextFilter filter = new RequestContextFilter();
+	ServletRequest lastServedRequest;
+	final FilterChain servlet = (request, response) -> lastServedRequest = request;
+
+	/** Request that has passed the {@link #filter} once and is now re-dispatched from ASYNC. */
+	FakeRequest asyncRequest;
+
+
+
+	@Setup
+	public void setup() throws IOException, ServletException {
+		filter.setCtxTracker(ctxTracker);
+		asyncRequest = new FakeRequest(DispatcherType.REQUEST);
+		filter.doFilter(asyncRequest, null, servlet);
+		asyncRequest.dispatcherType = DispatcherType.ASYNC;
+	}
+
+
+
+	@Benchmark
+	public ServletRequest rawRequest() throws IOException, ServletException {
+		servlet.doFilter(new FakeRequest(DispatcherType.REQUEST), null);
+		return lastServedRequest;
+	}
+
+	@Benchmark
+	public ServletRequest filteredRequest() throws IOException, ServletException {
+		filter.doFilter(new FakeRequest(DispatcherType.REQUEST), null, servlet);
+		return lastServedRequest;
+	}
+
+
+
+	@Benchmark
+	public ServletRequest rawAsyncDispatch() throws IOException, ServletException {
+		servlet.doFilter(asyncRequest, null);
+		return lastServedRequest;
+	}
+
+	@Benchmark
+	public ServletRequest filteredAsyncDispatch() throws IOException, ServletException {
+		filter.doFilter(asyncRequest, null, servlet);
+		return lastServedRequest;
+	}
+}
@@ -0,0 +1,95 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.*;
+import pl.morgwai.base.servlet.utils.WebsocketPingerService;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+
+
+/**
+ * Compares costs of ping payload hashing of {@link WebsocketPingerService} with different hash
+ * functions, including the non-cryptographic {@link PingHashProvider#FNV1A_64} and
+ * {@link PingHashProvider#SEQUENCE_NUMBER}, during a single ping round over
+ * {@value #CONNECTION_COUNT} connections.
+ * Each simulated connection has its own {@link MessageDigest} and salted input buffer, just like
+ * in {@link WebsocketPingerService}, so the results include the cost of cache misses when
+ * iterating over a large number of connections. {@value #NO_HASHING} param value measures the
+ * baseline of only writing a ping's sequence number and timestamp to the payload buffer.
+ * Results are reported per single ping.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(PingHashBenchmarks.CONNECTION_COUNT)
+public class PingHashBenchmarks {
+
+
+
+	static final int CONNECTION_COUNT = 100_000;
+	static final int SALT_BYTES = 12;
+	static final String NO_HASHING = "none";
+
+	@Param({WebsocketPingerService.DEFAULT_HASH_FUNCTION, "SHA-256", "MD5",
+			PingHashProvider.FNV1A_64, PingHashProvider.SEQUENCE_NUMBER, NO_HASHING})
+	public String hashFunctionName;
+
+	PingHashProvider pingHashProvider;
+	MessageDigest[] digests;
+	ByteBuffer[] inputBuffers;
+	long pingNumber = 0L;
+
+
+
+	@Setup
+	public void setup() throws NoSuchAlgorithmException {
+		pingHashProvider = PingHashProvider.install();
+		digests = new MessageDigest[CONNECTION_COUNT];
+		inputBuffers = new ByteBuffer[CONNECTION_COUNT];
+		final var random = ThreadLocalRandom.current();
+		for (int i = 0; i < CONNECTION_COUNT; i++) {
+			if ( !hashFunctionName.equals(NO_HASHING)) {
+				digests[i] = MessageDigest.getInstance(hashFunctionName);
+			}
+			final var salt = new byte[SALT_BYTES];
+			random.nextBytes(salt);
+			inputBuffers[i] = ByteBuffer.allocate(2 * Long.BYTES + SALT_BYTES).put(salt).mark();
+		}
+	}
+
+
+
+	@TearDown
+	public void tearDown() {
+		pingHashProvider.uninstall();
+	}
+
+
+
+	@Benchmark
+	public int pingRound() {
+		pingNumber++;
+		int checksum = 0;
+		for (int i = 0; i < CONNECTION_COUNT; i++) {
+			final var inputBuffer = inputBuffers[i];
+			inputBuffer.reset();
+			inputBuffer.putLong(pingNumber).putLong(System.nanoTime());
+			if (digests[i] != null) {
+				final var digest = digests[i].digest(inputBuffer.array());
+				checksum += digest.length > 0 ? digest[0] : inputBuffer.get(SALT_BYTES);
+			} else {
+				checksum += inputBuffer.get(SALT_BYTES);
+			}
+		}
+		return checksum;
+	}
+}
@@ -15,7 +15,12 @@ sed -E -e 's#(\t*).*<!--jakarta:(.*)-->#\1\2#' \
 	<sample/pom.xml >sample/pom.jakarta.xml &&
 mv sample/pom.jakarta.xml sample/pom.xml &&
 
-find src -name '*.java' | while read file; do
+sed -E -e 's#(\t*).*<!--jakarta:(.*)-->#\1\2#' \
+	-e 's#(.*)javax(.*)<!--jakarta-->#\1jakarta\2#' \
+	<benchmarks/pom.xml >benchmarks/pom.jakarta.xml &&
+mv benchmarks/pom.jakarta.xml benchmarks/pom.xml &&
+
+find src benchmarks/src -name '*.java' | while read file; do
   sed -e 's#javax.servlet#jakarta.servlet#g' \
     -e 's#javax.websocket#jakarta.websocket#g' \
     -e 's#javax.annotation#jakarta.annotation#g' \
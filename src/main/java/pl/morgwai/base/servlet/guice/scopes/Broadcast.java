@@ -0,0 +1,155 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import javax.websocket.SendHandler;
+import javax.websocket.Session;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+
+
+/**
+ * A single run of
+ * {@link WebsocketConnectionProxy#broadcast(Object, Predicate, int, long) broadcasting} a message
+ * to peer connections.
+ * At most {@link #maxInFlightSends} sends are pending at any given time: each completion (or
+ * timeout) of a send triggers the next one. Sends are started by whichever {@code Thread} happens
+ * to complete the previous ones, but only 1 {@code Thread} at a time iterates over peers, so
+ * containers that complete sends inline do not cause deep recursion.
+ */
+class Broadcast {
+
+
+
+	final Object message;
+	final Iterator<Session> peerIterator;
+	final Predicate<Session> filter;
+	final int maxInFlightSends;
+	final long slowPeerTimeoutMillis;
+
+	final Map<Session, Throwable> failedPeers = new ConcurrentHashMap<>();
+	final CompletableFuture<Map<Session, Throwable>> result = new CompletableFuture<>();
+
+	int inFlightSends = 0;  // guarded by this
+	boolean sending = false;  // guarded by this
+
+
+
+	/**
+	 * @param message either a {@link String}, a {@link ByteBuffer} or an {@code Object} to be
+	 *     encoded by peers' encoders.
+	 */
+	Broadcast(
+		Object message,
+		Iterator<Session> peerIterator,
+		Predicate<Session> filter,
+		int maxInFlightSends,
+		long slowPeerTimeoutMillis
+	) {
+		if (maxInFlightSends < 1) throw new IllegalArgumentException(MAX_IN_FLIGHT_SENDS_MESSAGE);
+		this.message = message;
+		this.peerIterator = peerIterator;
+		this.filter = filter;
+		this.maxInFlightSends = maxInFlightSends;
+		this.slowPeerTimeoutMillis = slowPeerTimeoutMillis;
+	}
+
+	static final String MAX_IN_FLIGHT_SENDS_MESSAGE = "maxInFlightSends must be positive";
+
+
+
+	/** Starts sending and returns {@link #result}. */
+	CompletableFuture<Map<Session, Throwable>> start() {
+		sendToNextPeers();
+		return result;
+	}
+
+
+
+	/**
+	 * Starts sends to subsequent accepted peers until either {@link #maxInFlightSends} is reached
+	 * or there are no more peers. Completes {@link #result} if all sends are finished.
+	 */
+	void sendToNextPeers() {
+		synchronized (this) {
+			if (sending) return;  // the other Thread will notice decremented inFlightSends
+			sending = true;
+		}
+		while (true) {
+			final Session peer;
+			synchronized (this) {
+				if (inFlightSends >= maxInFlightSends) {
+					sending = false;
+					return;
+				}
+				peer = nextAcceptedPeer();
+				if (peer == null) {
+					sending = false;
+					if (inFlightSends > 0) return;
+				} else {
+					inFlightSends++;
+				}
+			}
+			if (peer == null) {
+				result.complete(failedPeers);
+				return;
+			}
+			send(peer);
+		}
+	}
+
+	/** Must be called while holding the lock of this {@code Broadcast}. */
+	private Session nextAcceptedPeer() {
+		while (peerIterator.hasNext()) {
+			final var peer = peerIterator.next();
+			if (filter.test(peer)) return peer;
+		}
+		return null;
+	}
+
+
+
+	void send(Session peer) {
+		final var sendFuture = new CompletableFuture<Void>();
+		final SendHandler sendHandler = (sendResult) -> {
+			if (sendResult.isOK()) {
+				sendFuture.complete(null);
+			} else {
+				sendFuture.completeExceptionally(sendResult.getException());
+			}
+		};
+		sendFuture
+			.orTimeout(slowPeerTimeoutMillis, MILLISECONDS)
+			.whenComplete((nothing, error) -> onSendFinished(peer, error));
+		try {
+			final var remote = peer.getAsyncRemote();
+			if (message instanceof String) {
+				remote.sendText((String) message, sendHandler);
+			} else if (message instanceof ByteBuffer) {
+				remote.sendBinary(((ByteBuffer) message).duplicate(), sendHandler);
+			} else {
+				remote.sendObject(message, sendHandler);
+			}
+		} catch (RuntimeException e) {
+			sendFuture.completeExceptionally(e);
+		}
+	}
+
+
+
+	void onSendFinished(Session peer, Throwable error) {
+		if (error != null) {
+			failedPeers.put(
+					peer, (error instanceof CompletionException) ? error.getCause() : error);
+		}
+		synchronized (this) {
+			inFlightSends--;
+		}
+		sendToNextPeers();
+	}
+}
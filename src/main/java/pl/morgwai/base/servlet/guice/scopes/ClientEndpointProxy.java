@@ -6,6 +6,7 @@ import javax.servlet.http.HttpSession;
 import javax.websocket.*;
 
 import pl.morgwai.base.guice.scopes.ContextTracker;
+import pl.morgwai.base.servlet.guice.scopes.ContainerCallMetrics.WebsocketEventType;
 
 
 
@@ -27,6 +28,7 @@ public class ClientEndpointProxy extends Endpoint {
 	final ContextTracker<ContainerCallContext> ctxTracker;
 	final WebsocketConnectionContext enclosingCtx;
 	final HttpSession httpSession;
+	final ContainerCallMetrics metrics;
 
 
 
@@ -34,12 +36,28 @@ public class ClientEndpointProxy extends Endpoint {
 		Endpoint endpointToWrap,
 		ContextTracker<ContainerCallContext> ctxTracker,
 		WebsocketConnectionContext enclosingCtx,
-		HttpSession httpSession
+		HttpSession httpSession,
+		ContainerCallMetrics metrics
 	) {
 		this.wrappedEndpoint = endpointToWrap;
 		this.ctxTracker = ctxTracker;
 		this.enclosingCtx = enclosingCtx;
 		this.httpSession = httpSession;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Calls {@link #ClientEndpointProxy(Endpoint, ContextTracker, WebsocketConnectionContext,
+	 * HttpSession, ContainerCallMetrics) this(endpointToWrap, ctxTracker, enclosingCtx,
+	 * httpSession, ContainerCallMetrics.NOOP)}.
+	 */
+	public ClientEndpointProxy(
+		Endpoint endpointToWrap,
+		ContextTracker<ContainerCallContext> ctxTracker,
+		WebsocketConnectionContext enclosingCtx,
+		HttpSession httpSession
+	) {
+		this(endpointToWrap, ctxTracker, enclosingCtx, httpSession, ContainerCallMetrics.NOOP);
 	}
 
 	public ClientEndpointProxy(
@@ -62,25 +80,50 @@ public class ClientEndpointProxy extends Endpoint {
 			connection.getUserProperties().put(HttpSession.class.getName(), httpSession);
 		}
 		connectionProxy = new WebsocketConnectionProxy(connection, ctxTracker);
+		connectionProxy.metrics = metrics;
 		connectionCtx = new WebsocketConnectionContext(connectionProxy);
-		new WebsocketEventContext(connectionCtx, httpSession, ctxTracker).executeWithinSelf(
-				() -> wrappedEndpoint.onOpen(connectionProxy, config));
+		metrics.onContextCreated(WebsocketConnectionContext.class);
+		metrics.onConnectionOpened(wrappedEndpoint.getClass());
+		executeWithinEventContext(
+				WebsocketEventType.OPEN, () -> wrappedEndpoint.onOpen(connectionProxy, config));
 	}
 
 
 
 	@Override
 	public void onClose(Session connection, CloseReason closeReason) {
-		new WebsocketEventContext(connectionCtx, httpSession, ctxTracker).executeWithinSelf(
-				() -> wrappedEndpoint.onClose(connectionProxy, closeReason));
+		try {
+			executeWithinEventContext(
+				WebsocketEventType.CLOSE,
+				() -> wrappedEndpoint.onClose(connectionProxy, closeReason)
+			);
+		} finally {
+			metrics.onConnectionClosed(wrappedEndpoint.getClass());
+		}
 	}
 
 
 
 	@Override
 	public void onError(Session connection, Throwable error) {
-		new WebsocketEventContext(connectionCtx, httpSession, ctxTracker).executeWithinSelf(
-				() -> wrappedEndpoint.onError(connectionProxy, error));
+		executeWithinEventContext(
+				WebsocketEventType.ERROR, () -> wrappedEndpoint.onError(connectionProxy, error));
+	}
+
+
+
+	void executeWithinEventContext(WebsocketEventType eventType, Runnable eventHandler) {
+		final var startNanos = (metrics != ContainerCallMetrics.NOOP) ? System.nanoTime() : 0L;
+		try {
+			metrics.onContextCreated(WebsocketEventContext.class);
+			new WebsocketEventContext(connectionCtx, httpSession, ctxTracker)
+				.executeWithinSelf(eventHandler);
+		} finally {
+			if (metrics != ContainerCallMetrics.NOOP) {
+				metrics.onWebsocketEvent(
+						wrappedEndpoint.getClass(), eventType, System.nanoTime() - startNanos);
+			}
+		}
 	}
 
 
@@ -0,0 +1,518 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.inject.Key;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+import com.google.inject.util.Types;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+
+/**
+ * Compact, versioned binary format of {@link HttpSessionContext}'s scoped objects.
+ * <p>
+ * Standard Java Serialization of a {@code Context} writes a separate entry object for each scoped
+ * object, containing full names of its {@link Key}'s type and annotation type. This format
+ * instead writes each class name only once into a dictionary and refers to it by index
+ * afterwards and writes {@link String}, {@link Integer}, {@link Long} and {@link Boolean} values
+ * natively ({@code Strings} as length-prefixed UTF-8, so their length is not limited). Payloads
+ * larger than a given threshold are additionally compressed using {@link DeflaterOutputStream},
+ * which also eliminates most of the redundancy of class descriptors repeated across values.</p>
+ * <p>
+ * Layout: {@link #MAGIC} byte, {@link #VERSION} byte, flags byte ({@value #FLAG_DEFLATED} if the
+ * rest is deflated), followed by an {@link ObjectOutputStream} stream of entries, each prefixed
+ * with {@code true} and terminated with {@code false}.</p>
+ * <p>
+ * Each value other than the natively written ones is serialized exactly once into a separate
+ * buffer and written as a length-prefixed byte array. Values that fail to serialize are therefore
+ * skipped without corrupting the stream, just as with the standard serialization of
+ * {@code Contexts}. Separately serialized values may also be
+ * {@link #decode(byte[], boolean) decoded} into {@link SerializedValue}s to be deserialized only
+ * when accessed for the first time, which makes deserialization of sessions whose most scoped
+ * objects are never accessed on a given node cheaper. Untouched {@link SerializedValue}s are
+ * written back as they are.</p>
+ */
+final class CompactScopedObjectsFormat {
+
+
+
+	static final byte MAGIC = (byte) 0xC5;
+	static final byte VERSION = 1;
+	static final byte FLAG_DEFLATED = 1;
+	static final int HEADER_LENGTH = 3;
+
+	static final int TYPE_CLASS = 0;
+	static final int TYPE_PARAMETERIZED = 1;
+	static final int TYPE_SERIALIZED = 2;
+
+	static final int NO_ANNOTATION = 0;
+	static final int ANNOTATION_TYPE = 1;
+	static final int ANNOTATION_NAMED = 2;
+	static final int ANNOTATION_SERIALIZED = 3;
+
+	static final int VALUE_STRING = 0;
+	static final int VALUE_INTEGER = 1;
+	static final int VALUE_LONG = 2;
+	static final int VALUE_BOOLEAN = 3;
+	static final int VALUE_OBJECT = 4;
+
+
+
+	/**
+	 * Encodes {@code scopedObjects}.
+	 * @param compressionThreshold payloads larger than this number of bytes are compressed.
+	 *     Non-positive value disables compression.
+	 */
+	static byte[] encode(Map<Key<?>, Object> scopedObjects, int compressionThreshold)
+			throws IOException {
+		final var encodedBytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		encodedBytes.write(MAGIC);
+		encodedBytes.write(VERSION);
+		encodedBytes.write(0);
+		try (final var encoder = new Encoder(encodedBytes)) {
+			for (var scopedObject: scopedObjects.entrySet()) {
+				encoder.writeEntry(scopedObject.getKey(), scopedObject.getValue());
+			}
+			encoder.output.writeBoolean(false);
+		}
+		final var encoded = encodedBytes.toByteArray();
+		if (compressionThreshold <= 0 || encoded.length <= compressionThreshold) return encoded;
+
+		final var deflatedBytes = new ByteArrayOutputStream(encoded.length / 2);
+		deflatedBytes.write(encoded, 0, HEADER_LENGTH - 1);
+		deflatedBytes.write(encoded[HEADER_LENGTH - 1] | FLAG_DEFLATED);
+		try (final var deflater = new DeflaterOutputStream(deflatedBytes)) {
+			deflater.write(encoded, HEADER_LENGTH, encoded.length - HEADER_LENGTH);
+		}
+		return deflatedBytes.size() < encoded.length ? deflatedBytes.toByteArray() : encoded;
+	}
+
+	static final int INITIAL_BUFFER_SIZE = 512;
+
+
+
+	/**
+	 * Decodes scoped objects previously {@link #encode(Map, int) encoded}.
+	 * @param lazy whether to return values other than the natively written ones as
+	 *     {@link SerializedValue}s instead of deserializing them.
+	 */
+	static ConcurrentHashMap<Key<?>, Object> decode(byte[] encoded, boolean lazy)
+			throws IOException, ClassNotFoundException {
+		if (encoded.length < HEADER_LENGTH || encoded[0] != MAGIC) {
+			throw new StreamCorruptedException(INVALID_HEADER_MESSAGE);
+		}
+		if (encoded[1] != VERSION) {
+			throw new InvalidClassException(UNSUPPORTED_VERSION_MESSAGE + encoded[1]);
+		}
+		InputStream body = new ByteArrayInputStream(
+				encoded, HEADER_LENGTH, encoded.length - HEADER_LENGTH);
+		if ((encoded[2] & FLAG_DEFLATED) != 0) body = new InflaterInputStream(body);
+		final var scopedObjects = new ConcurrentHashMap<Key<?>, Object>();
+		try (final var decoder = new Decoder(body, lazy)) {
+			while (decoder.input.readBoolean()) {
+				final var valueTag = decoder.readVarInt();
+				final var key = decoder.readKey();
+				scopedObjects.put(key, decoder.readValue(valueTag));
+			}
+		}
+		return scopedObjects;
+	}
+
+	static final String INVALID_HEADER_MESSAGE = "not a compact scoped objects payload";
+	static final String UNSUPPORTED_VERSION_MESSAGE =
+			"unsupported compact scoped objects format version: ";
+
+
+
+	static class Encoder implements Closeable {
+
+		final ObjectOutputStream output;
+		final Map<String, Integer> nameIndexes = new HashMap<>();
+		/** Buffer for values serialized separately, reused across entries. */
+		final ByteArrayOutputStream valueBuffer =
+				new ByteArrayOutputStream(SerializedValue.INITIAL_VALUE_BUFFER_SIZE);
+		final CharsetEncoder utf8Encoder = UTF_8.newEncoder();
+
+
+
+		Encoder(OutputStream encodedBytes) throws IOException {
+			output = new ObjectOutputStream(encodedBytes);
+		}
+
+
+
+		void writeEntry(Key<?> key, Object value) throws IOException {
+			final int valueTag;
+			final var encodedString =
+					(value instanceof String) ? encodeString((String) value) : null;
+			if (encodedString != null) {
+				valueTag = VALUE_STRING;
+			} else if (value instanceof Integer) {
+				valueTag = VALUE_INTEGER;
+			} else if (value instanceof Long) {
+				valueTag = VALUE_LONG;
+			} else if (value instanceof Boolean) {
+				valueTag = VALUE_BOOLEAN;
+			} else if (
+				value instanceof SerializedValue
+				|| SerializedValue.serializeInto(valueBuffer, value)
+			) {
+				valueTag = VALUE_OBJECT;
+			} else {
+				return;
+			}
+			output.writeBoolean(true);
+			writeVarInt(valueTag);
+			writeKey(key);
+			switch (valueTag) {
+				case VALUE_STRING:
+					writeVarInt(encodedString.remaining());
+					output.write(encodedString.array(), 0, encodedString.remaining());
+					break;
+				case VALUE_INTEGER: output.writeInt((Integer) value); break;
+				case VALUE_LONG: output.writeLong((Long) value); break;
+				case VALUE_BOOLEAN: output.writeBoolean((Boolean) value); break;
+				default:
+					if (value instanceof SerializedValue) {
+						final var serializedBytes = ((SerializedValue) value).bytes;
+						writeVarInt(serializedBytes.length);
+						output.write(serializedBytes);
+					} else {
+						writeVarInt(valueBuffer.size());
+						valueBuffer.writeTo(output);
+					}
+			}
+		}
+
+
+
+		/**
+		 * Encodes {@code value} as UTF-8.
+		 * @return encoded bytes or {@code null} if {@code value} contains unpaired surrogates, in
+		 *     which case it is written as a separately serialized value to be retained exactly.
+		 */
+		ByteBuffer encodeString(String value) {
+			try {
+				return utf8Encoder.encode(CharBuffer.wrap(value));
+			} catch (CharacterCodingException e) {
+				return null;
+			}
+		}
+
+
+
+		void writeKey(Key<?> key) throws IOException {
+			writeType(key.getTypeLiteral().getType());
+			final var annotationType = key.getAnnotationType();
+			final var annotation = key.getAnnotation();
+			if (annotationType == null) {
+				writeVarInt(NO_ANNOTATION);
+			} else if (annotation instanceof Named) {
+				writeVarInt(ANNOTATION_NAMED);
+				writeName(((Named) annotation).value());
+			} else if (annotation == null || annotationType.getDeclaredMethods().length == 0) {
+				writeVarInt(ANNOTATION_TYPE);
+				writeName(annotationType.getName());
+			} else {
+				writeVarInt(ANNOTATION_SERIALIZED);
+				output.writeObject(annotation);
+			}
+		}
+
+
+
+		void writeType(Type type) throws IOException {
+			if (type instanceof Class && !((Class<?>) type).isPrimitive()) {
+				writeVarInt(TYPE_CLASS);
+				writeName(((Class<?>) type).getName());
+			} else if (
+				type instanceof ParameterizedType
+				&& ((ParameterizedType) type).getRawType() instanceof Class
+			) {
+				final var parameterizedType = (ParameterizedType) type;
+				writeVarInt(TYPE_PARAMETERIZED);
+				writeName(((Class<?>) parameterizedType.getRawType()).getName());
+				final var ownerType = parameterizedType.getOwnerType();
+				output.writeBoolean(ownerType != null);
+				if (ownerType != null) writeType(ownerType);
+				final var typeArgs = parameterizedType.getActualTypeArguments();
+				writeVarInt(typeArgs.length);
+				for (var typeArg: typeArgs) writeType(typeArg);
+			} else {
+				writeVarInt(TYPE_SERIALIZED);
+				output.writeObject(type);
+			}
+		}
+
+
+
+		/**
+		 * Writes {@code name} inline the first time it is encountered and as a reference to its
+		 * dictionary index afterwards.
+		 */
+		void writeName(String name) throws IOException {
+			final var index = nameIndexes.get(name);
+			if (index != null) {
+				writeVarInt(index + 1);
+				return;
+			}
+			writeVarInt(0);
+			output.writeUTF(name);
+			nameIndexes.put(name, nameIndexes.size());
+		}
+
+
+
+		void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7f) != 0) {
+				output.writeByte((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			output.writeByte(value);
+		}
+
+
+
+		@Override
+		public void close() throws IOException {
+			output.close();
+		}
+	}
+
+
+
+	static class Decoder implements Closeable {
+
+		final ObjectInputStream input;
+		final boolean lazy;
+		final List<String> names = new ArrayList<>();
+
+
+
+		Decoder(InputStream body, boolean lazy) throws IOException {
+			input = new ObjectInputStream(body);
+			this.lazy = lazy;
+		}
+
+
+
+		Object readValue(int valueTag) throws IOException, ClassNotFoundException {
+			switch (valueTag) {
+				case VALUE_STRING:
+					final var encodedLength = readLength();
+					final var encodedString = input.readNBytes(encodedLength);
+					if (encodedString.length < encodedLength) {
+						throw new EOFException(TRUNCATED_VALUE_MESSAGE);
+					}
+					return new String(encodedString, UTF_8);
+				case VALUE_INTEGER: return input.readInt();
+				case VALUE_LONG: return input.readLong();
+				case VALUE_BOOLEAN: return input.readBoolean();
+				case VALUE_OBJECT:
+					final var serializedLength = readLength();
+					final var serializedBytes = input.readNBytes(serializedLength);
+					if (serializedBytes.length < serializedLength) {
+						throw new EOFException(TRUNCATED_VALUE_MESSAGE);
+					}
+					final var serializedValue = new SerializedValue(serializedBytes);
+					return lazy ? serializedValue : serializedValue.deserialize();
+				default: throw new StreamCorruptedException(UNKNOWN_TAG_MESSAGE + valueTag);
+			}
+		}
+
+
+
+		Key<?> readKey() throws IOException, ClassNotFoundException {
+			final var type = readType();
+			final var annotationTag = readVarInt();
+			switch (annotationTag) {
+				case NO_ANNOTATION:
+					return Key.get(type);
+				case ANNOTATION_NAMED:
+					return Key.get(type, Names.named(readName()));
+				case ANNOTATION_TYPE:
+					return Key.get(type, loadClass(readName()).asSubclass(Annotation.class));
+				case ANNOTATION_SERIALIZED:
+					return Key.get(type, (Annotation) input.readObject());
+				default:
+					throw new StreamCorruptedException(UNKNOWN_TAG_MESSAGE + annotationTag);
+			}
+		}
+
+
+
+		Type readType() throws IOException, ClassNotFoundException {
+			final var typeTag = readVarInt();
+			switch (typeTag) {
+				case TYPE_CLASS:
+					return loadClass(readName());
+				case TYPE_PARAMETERIZED:
+					final var rawType = loadClass(readName());
+					final var ownerType = input.readBoolean() ? readType() : null;
+					final var typeArgCount = readLength();
+					final var typeArgs = new ArrayList<Type>(Math.min(typeArgCount, 4));
+					for (int i = 0; i < typeArgCount; i++) typeArgs.add(readType());
+					return Types.newParameterizedTypeWithOwner(
+							ownerType, rawType, typeArgs.toArray(new Type[0]));
+				case TYPE_SERIALIZED:
+					return (Type) input.readObject();
+				default:
+					throw new StreamCorruptedException(UNKNOWN_TAG_MESSAGE + typeTag);
+			}
+		}
+
+
+
+		String readName() throws IOException {
+			final var reference = readVarInt();
+			if (reference == 0) {
+				final var name = input.readUTF();
+				names.add(name);
+				return name;
+			}
+			if (reference > names.size()) {
+				throw new StreamCorruptedException(UNKNOWN_NAME_MESSAGE + reference);
+			}
+			return names.get(reference - 1);
+		}
+
+
+
+		/**
+		 * Reads a non-negative length. Callers must not preallocate memory based on it beyond a
+		 * small constant: memory for its elements must be allocated only as they are actually read,
+		 * so that a corrupted or malicious payload cannot cause an {@link OutOfMemoryError}.
+		 */
+		int readLength() throws IOException {
+			final var length = readVarInt();
+			if (length < 0) throw new StreamCorruptedException(NEGATIVE_LENGTH_MESSAGE + length);
+			return length;
+		}
+
+
+
+		int readVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+				final var b = input.readUnsignedByte();
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) return value;
+			}
+			throw new StreamCorruptedException(MALFORMED_VAR_INT_MESSAGE);
+		}
+
+
+
+		static Class<?> loadClass(String name) throws ClassNotFoundException {
+			return Class.forName(name, false, CompactScopedObjectsFormat.class.getClassLoader());
+		}
+
+
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+
+	/**
+	 * Returns {@code value} if it is a {@link SerializedValue} or of a type supported natively by
+	 * this format (all of which are immutable), otherwise a {@link SerializedValue} of
+	 * {@code value} or {@code null} if it fails to serialize.
+	 */
+	static Object toImmutableValue(Object value) {
+		if (
+			value instanceof String
+			|| value instanceof Integer
+			|| value instanceof Long
+			|| value instanceof Boolean
+			|| value instanceof SerializedValue
+		) {
+			return value;
+		}
+		return SerializedValue.serialize(value);
+	}
+
+
+
+	/** Separately serialized value of a scoped object, deserialized on the first access. */
+	static final class SerializedValue {
+
+		final byte[] bytes;
+
+
+
+		SerializedValue(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+
+
+		/** Returns a serialized form of {@code value} or {@code null} if it fails to serialize. */
+		static SerializedValue serialize(Object value) {
+			final var serializedBytes = new ByteArrayOutputStream(INITIAL_VALUE_BUFFER_SIZE);
+			return serializeInto(serializedBytes, value)
+					? new SerializedValue(serializedBytes.toByteArray())
+					: null;
+		}
+
+
+
+		/**
+		 * Serializes {@code value} into {@code buffer}, which is
+		 * {@link ByteArrayOutputStream#reset() reset} first.
+		 * @return {@code false} if {@code value} failed to serialize, in which case the content of
+		 *     {@code buffer} is undefined.
+		 */
+		static boolean serializeInto(ByteArrayOutputStream buffer, Object value) {
+			if ( !(value instanceof Serializable)) return false;
+			buffer.reset();
+			try (final var serializedObjects = new ObjectOutputStream(buffer)) {
+				serializedObjects.writeObject(value);
+				return true;
+			} catch (IOException | RuntimeException e) {
+				return false;
+			}
+		}
+
+		static final int INITIAL_VALUE_BUFFER_SIZE = 128;
+
+
+
+		Object deserialize() throws IOException, ClassNotFoundException {
+			try (
+				final var serializedObjects =
+						new ObjectInputStream(new ByteArrayInputStream(bytes));
+			) {
+				return serializedObjects.readObject();
+			}
+		}
+	}
+
+
+
+	static final String UNKNOWN_TAG_MESSAGE = "unknown tag: ";
+	static final String UNKNOWN_NAME_MESSAGE = "unknown name reference: ";
+	static final String MALFORMED_VAR_INT_MESSAGE = "malformed variable-length int";
+	static final String NEGATIVE_LENGTH_MESSAGE = "negative length: ";
+	static final String TRUNCATED_VALUE_MESSAGE = "value is truncated";
+
+
+
+	private CompactScopedObjectsFormat() {}
+}
@@ -0,0 +1,90 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import javax.servlet.DispatcherType;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import pl.morgwai.base.guice.scopes.InjectionContext;
+
+
+
+/**
+ * Receives metrics of container calls handled within {@code Contexts} of this library.
+ * Reported by proxies of server and client {@code Endpoints} created by
+ * {@link GuiceEndpointConfigurator}s, {@link WebsocketConnectionProxy#addMessageHandler(
+ * javax.websocket.MessageHandler) MessageHandlers added to connection proxies},
+ * {@link ClientEndpointProxy}s and {@link RequestContextFilter}s.
+ * <p>
+ * To enable metrics, bind this interface to an implementation (for example
+ * {@link pl.morgwai.base.servlet.guice.utils.InMemoryContainerCallMetrics}) in some
+ * {@link com.google.inject.Module} of the app {@link com.google.inject.Injector}. If no binding is
+ * present, {@link #NOOP} is used and the reporting components skip time measurements
+ * altogether.</p>
+ * <p>
+ * All methods are called concurrently from container {@code Threads}, so implementations must be
+ * thread-safe and should be non-blocking.</p>
+ */
+public interface ContainerCallMetrics {
+
+
+
+	/** Types of websocket events. */
+	enum WebsocketEventType { OPEN, MESSAGE, ERROR, CLOSE, OTHER }
+
+
+
+	/**
+	 * Reports that a websocket event was handled by {@code handlerClass} (either an
+	 * {@code Endpoint} class or a {@link javax.websocket.MessageHandler} class).
+	 * @param durationNanos time of handling the event including creating and activating its
+	 *     {@link WebsocketEventContext}.
+	 */
+	default void onWebsocketEvent(
+		Class<?> handlerClass,
+		WebsocketEventType eventType,
+		long durationNanos
+	) {}
+
+	/** Reports that a connection of an {@code Endpoint} of {@code endpointClass} was opened. */
+	default void onConnectionOpened(Class<?> endpointClass) {}
+
+	/** Reports that a connection of an {@code Endpoint} of {@code endpointClass} was closed. */
+	default void onConnectionClosed(Class<?> endpointClass) {}
+
+	/**
+	 * Reports that a {@link javax.servlet.http.HttpServletRequest} passed through a
+	 * {@link RequestContextFilter}.
+	 * @param durationNanos time of processing the rest of the {@link javax.servlet.FilterChain}
+	 *     including activating the {@link ServletRequestContext}.
+	 */
+	default void onServletDispatch(DispatcherType dispatcherType, long durationNanos) {}
+
+	/**
+	 * Reports that a new {@code Context} of {@code ctxClass} was created.
+	 * {@link HttpSessionContext}s are created lazily on the first use of
+	 * {@link ServletWebsocketModule#httpSessionScope} and are not reported.
+	 */
+	default void onContextCreated(Class<? extends InjectionContext> ctxClass) {}
+
+
+
+	/**
+	 * Ignores all reports. Components reporting metrics compare against this instance to skip
+	 * time measurements when metrics are disabled.
+	 */
+	ContainerCallMetrics NOOP = new ContainerCallMetrics() {};
+
+
+
+	/**
+	 * Returns the instance bound in {@code injector} if there is such binding, {@link #NOOP}
+	 * otherwise (also if {@code injector} is {@code null}).
+	 */
+	static ContainerCallMetrics of(Injector injector) {
+		if (injector == null || injector.getExistingBinding(KEY) == null) return NOOP;
+		return injector.getInstance(KEY);
+	}
+
+	Key<ContainerCallMetrics> KEY = Key.get(ContainerCallMetrics.class);
+}
@@ -2,27 +2,76 @@
 package pl.morgwai.base.servlet.guice.scopes;
 
 import java.lang.reflect.InvocationHandler;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpSession;
-import javax.websocket.Session;
+import javax.websocket.*;
+import javax.websocket.server.PathParam;
 
+import net.bytebuddy.implementation.bind.annotation.*;
+import pl.morgwai.base.function.ThrowingComputation;
 import pl.morgwai.base.guice.scopes.ContextTracker;
+import pl.morgwai.base.servlet.guice.scopes.ContainerCallMetrics.WebsocketEventType;
+
+import static java.util.logging.Level.WARNING;
+import static pl.morgwai.base.servlet.guice.scopes.GuiceEndpointConfigurator
+		.isConnectionLifecycleMethod;
+import static pl.morgwai.base.servlet.guice.scopes.GuiceEndpointConfigurator
+		.isEndpointLifecycleMethod;
+import static pl.morgwai.base.servlet.guice.scopes.WebsocketConnectionProxy
+		.OFFLOADED_EVENT_FAILED_WARNING;
 
 
 
 /**
  * Executes each call to its wrapped {@code Endpoint} within websocket {@code Contexts}.
- * Creates a new separate {@link WebsocketEventContext} for each method invocation with references
- * to the enclosing {@link WebsocketConnectionContext} and {@link HttpSessionContext} (if present).
+ * Creates a new separate {@link WebsocketEventContext} for each method invocation (unless
+ * {@link GuiceEndpointConfigurator#isEventContextRecyclingEnabled() recycling is enabled}) with
+ * references to the enclosing {@link WebsocketConnectionContext} and {@link HttpSessionContext}
+ * (if present).
+ * <p>
+ * If {@link GuiceEndpointConfigurator#getEventExecutor(Class) offloading is enabled}, calls to
+ * lifecycle methods are executed by a {@link SerialExecutor} of the given connection, so that they
+ * don't block container {@code Threads} while preserving their order. Exceptions thrown by calls
+ * that are not awaited are {@link #deliverOffloadedEventError(Throwable) delivered} to the
+ * {@code onError(...)} method of the wrapped {@code Endpoint}.</p>
+ * <p>
+ * After {@code onClose(...)} returns, all {@link WebsocketConnectionExecutor}s of the given
+ * connection are {@link WebsocketConnectionExecutor#shutdown() shut down}.</p>
+ * <p>
+ * Events, connections and created {@code Contexts} are reported to {@link ContainerCallMetrics}
+ * unless it is {@link ContainerCallMetrics#NOOP}.</p>
  */
 class EndpointProxyHandler implements InvocationHandler {
 
 
 
 	final InvocationHandler wrappedEndpoint;
+	/** Target of {@link #dispatchDirectly(Forwarder, Object, Method)}. */
+	final Object endpoint;
 	final ContextTracker<ContainerCallContext> ctxTracker;
 	final WebsocketConnectionContext enclosingConnectionCtx;
+	/** See {@link GuiceEndpointConfigurator#isEventContextRecyclingEnabled()}. */
+	final boolean recycleEventContexts;
+	/** See {@link GuiceEndpointConfigurator#getEventExecutor(Class)}. */
+	final Executor eventExecutor;
+	/** {@link #getMethodOffloadings(Class) Offloadings} of {@link #endpoint}'s methods. */
+	final Map<Method, Offloading> offloadings;
+	final ContainerCallMetrics metrics;
+	/**
+	 * {@link #getMethodEventTypes(Class) Event types} of {@link #endpoint}'s methods.
+	 * See {@link #getEventType(Method)}.
+	 */
+	final Map<Method, WebsocketEventType> eventTypes;
+	final Class<?> endpointClass;
 
 	HttpSession httpSession;
 
@@ -30,14 +79,144 @@ class EndpointProxyHandler implements InvocationHandler {
 
 	EndpointProxyHandler(
 		InvocationHandler endpointToWrap,
+		Object endpoint,
 		ContextTracker<ContainerCallContext> ctxTracker,
 		WebsocketConnectionContext enclosingConnectionCtx,
-		HttpSession httpSession
+		HttpSession httpSession,
+		boolean recycleEventContexts,
+		Executor eventExecutor,
+		ContainerCallMetrics metrics
 	) {
 		this.wrappedEndpoint = endpointToWrap;
+		this.endpoint = endpoint;
 		this.ctxTracker = ctxTracker;
 		this.enclosingConnectionCtx = enclosingConnectionCtx;
 		this.httpSession = httpSession;
+		this.recycleEventContexts = recycleEventContexts;
+		this.eventExecutor = eventExecutor;
+		this.offloadings = (eventExecutor != null)
+				? methodOffloadings.get(endpoint.getClass())
+				: Map.of();
+		this.metrics = metrics;
+		this.endpointClass = (endpoint != null) ? endpoint.getClass() : null;
+		this.eventTypes = (endpointClass != null) ? methodEventTypes.get(endpointClass) : Map.of();
+	}
+
+
+
+	/**
+	 * Maps {@code Endpoint} classes to {@link #getMethodEventTypes(Class) event types of their
+	 * methods}.
+	 */
+	static final ClassValue<Map<Method, WebsocketEventType>> methodEventTypes =
+			new ClassValue<>() {
+				@Override
+				protected Map<Method, WebsocketEventType> computeValue(Class<?> endpointClass) {
+					return getMethodEventTypes(endpointClass);
+				}
+			};
+
+	/**
+	 * Returns a table of {@link WebsocketEventType}s of lifecycle methods of
+	 * {@code endpointClass}. Methods absent from the table are of
+	 * {@link WebsocketEventType#OTHER OTHER} type.
+	 */
+	static Map<Method, WebsocketEventType> getMethodEventTypes(Class<?> endpointClass) {
+		final var eventTypes = new HashMap<Method, WebsocketEventType>(8);
+		for (var method: endpointClass.getMethods()) {
+			if (isEndpointLifecycleMethod(method, OnOpen.class, "onOpen")) {
+				eventTypes.put(method, WebsocketEventType.OPEN);
+			} else if (isEndpointLifecycleMethod(method, OnMessage.class, "onMessage")) {
+				eventTypes.put(method, WebsocketEventType.MESSAGE);
+			} else if (isEndpointLifecycleMethod(method, OnError.class, "onError")) {
+				eventTypes.put(method, WebsocketEventType.ERROR);
+			} else if (isEndpointLifecycleMethod(method, OnClose.class, "onClose")) {
+				eventTypes.put(method, WebsocketEventType.CLOSE);
+			}
+		}
+		return eventTypes;
+	}
+
+
+
+	/**
+	 * Returns the {@link WebsocketEventType} of {@code method} and records an
+	 * {@link WebsocketConnectionProxy#onInboundMessage() inbound message} if it is
+	 * {@link WebsocketEventType#MESSAGE}. If neither {@link #metrics} nor
+	 * {@link WebsocketConnectionProxy#isInboundActivityTrackingEnabled() activity tracking} is
+	 * enabled, {@link WebsocketEventType#OTHER} is returned without looking up
+	 * {@link #eventTypes}.
+	 */
+	WebsocketEventType getEventType(Method method) {
+		if (metrics == ContainerCallMetrics.NOOP && !connectionProxy.inboundActivityTracking) {
+			return WebsocketEventType.OTHER;
+		}
+		final var eventType = eventTypes.getOrDefault(method, WebsocketEventType.OTHER);
+		if (eventType == WebsocketEventType.MESSAGE) connectionProxy.onInboundMessage();
+		return eventType;
+	}
+
+
+
+	/**
+	 * How calls to a given {@code Endpoint} method are executed when
+	 * {@link GuiceEndpointConfigurator#getEventExecutor(Class) offloading is enabled}.
+	 */
+	enum Offloading {
+		/** Executed directly by the calling {@code Thread}. */
+		NONE,
+		/** Passed to the connection's {@link SerialExecutor} without awaiting completion. */
+		ASYNC,
+		/** Passed to the connection's {@link SerialExecutor} and awaited by the caller. */
+		AWAIT
+	}
+
+	/**
+	 * Maps {@code Endpoint} classes to {@link #getMethodOffloadings(Class) offloadings of their
+	 * methods}.
+	 */
+	static final ClassValue<Map<Method, Offloading>> methodOffloadings = new ClassValue<>() {
+		@Override protected Map<Method, Offloading> computeValue(Class<?> endpointClass) {
+			return getMethodOffloadings(endpointClass);
+		}
+	};
+
+	/**
+	 * Returns a table of {@link Offloading}s of lifecycle methods of {@code endpointClass}.
+	 * Calls to a lifecycle method must be awaited if the method returns a value for the container
+	 * to send, if it accepts a param that the container may reuse after the method returns (like
+	 * a {@link ByteBuffer} or an {@link InputStream}), or if it is
+	 * {@link Endpoint#onOpen(Session, EndpointConfig)} that must register
+	 * {@link MessageHandler}s before the container starts delivering messages. Calls to all
+	 * other lifecycle methods may be executed asynchronously. Methods absent from the table are
+	 * not offloaded.
+	 */
+	static Map<Method, Offloading> getMethodOffloadings(Class<?> endpointClass) {
+		final var offloadings = new HashMap<Method, Offloading>(8);
+		final var isProgrammatic = Endpoint.class.isAssignableFrom(endpointClass);
+		for (var method: endpointClass.getMethods()) {
+			if (
+				!isConnectionLifecycleMethod(method)
+				&& !isEndpointLifecycleMethod(method, OnMessage.class, "onMessage")
+			) {
+				continue;
+			}
+			var mustAwait = method.getReturnType() != void.class || (
+				isProgrammatic && isEndpointLifecycleMethod(method, OnOpen.class, "onOpen")
+			);
+			for (var paramType: method.getParameterTypes()) {
+				if (
+					ByteBuffer.class.isAssignableFrom(paramType)
+					|| InputStream.class.isAssignableFrom(paramType)
+					|| Reader.class.isAssignableFrom(paramType)
+					|| PongMessage.class.isAssignableFrom(paramType)
+				) {
+					mustAwait = true;
+				}
+			}
+			offloadings.put(method, mustAwait ? Offloading.AWAIT : Offloading.ASYNC);
+		}
+		return offloadings;
 	}
 
 
@@ -61,7 +240,15 @@ class EndpointProxyHandler implements InvocationHandler {
 			userProperties.put(HttpSession.class.getName(), httpSession);
 		}
 		connectionProxy = WebsocketConnectionProxy.newProxy(connection, ctxTracker);
+		connectionProxy.eventCtxRecyclingEnabled = recycleEventContexts;
+		if (eventExecutor != null) {
+			connectionProxy.eventExecutor = new SerialExecutor(eventExecutor);
+			connectionProxy.offloadedEventErrorHandler = this::deliverOffloadedEventError;
+		}
+		connectionProxy.metrics = metrics;
 		connectionCtx = new WebsocketConnectionContext(connectionProxy, enclosingConnectionCtx);
+		metrics.onContextCreated(WebsocketConnectionContext.class);
+		metrics.onConnectionOpened(endpointClass);
 	}
 
 
@@ -86,10 +273,210 @@ class EndpointProxyHandler implements InvocationHandler {
 			return wrappedEndpoint.invoke(proxy, method, args);
 		}
 
-		return new WebsocketEventContext(connectionCtx, httpSession, ctxTracker)
-				.executeWithinSelf(() -> wrappedEndpoint.invoke(proxy, method, args));
+		final var eventType = getEventType(method);
+		final ThrowingComputation<Object, Throwable, RuntimeException> invocation = () -> {
+			try {
+				return wrappedEndpoint.invoke(proxy, method, args);
+			} finally {
+				onEventFinished(method, eventType);
+			}
+		};
+		final var offloading = offloadings.getOrDefault(method, Offloading.NONE);
+		if (offloading == Offloading.NONE) {
+			return connectionProxy.executeWithinEventContext(endpointClass, eventType, invocation);
+		}
+		return connectionProxy.executeEvent(
+			endpointClass,
+			eventType,
+			(offloading == Offloading.ASYNC)
+					? logFailuresIfOnError(method, invocation)
+					: invocation,
+			offloading == Offloading.AWAIT
+		);
+	}
+
+	/**
+	 * Reports closing of the connection to {@link #metrics} and shuts down its
+	 * {@link WebsocketConnectionExecutor}s if {@code method} is {@code onClose(...)}.
+	 */
+	void onEventFinished(Method method, WebsocketEventType eventType) {
+		if (eventType == WebsocketEventType.CLOSE) metrics.onConnectionClosed(endpointClass);
+		if (
+			connectionProxy.hasConnectionExecutors()
+			&& isEndpointLifecycleMethod(method, OnClose.class, "onClose")
+		) {
+			connectionProxy.shutdownConnectionExecutors();
+		}
+	}
+
+	/**
+	 * Forwards an intercepted call to a given target.
+	 * Implementations are generated by ByteBuddy for each directly dispatched method of a proxy
+	 * class: they store args of the intercepted call in their fields and invoke the same method on
+	 * the target using statically-typed bytecode.
+	 * @see GuiceEndpointConfigurator#isDirectDispatchEnabled()
+	 */
+	public interface Forwarder {
+		Object to(Object target);
 	}
 
+
+
+	/**
+	 * Executes within {@code Contexts} a call intercepted by {@code proxy} and captured by
+	 * {@code forwarder}, by forwarding it directly to {@link #endpoint}.
+	 * Called by {@link GuiceEndpointConfigurator#isDirectDispatchEnabled() direct dispatch}
+	 * proxies instead of {@link #invoke(Object, Method, Object[])} for methods that don't need
+	 * their args to be inspected or replaced.
+	 */
+	@RuntimeType
+	final Object dispatchDirectly(
+		@Pipe Forwarder forwarder,
+		@This Object proxy,
+		@Origin Method method
+	) {
+		if (connectionCtx == null) {
+			// some call BEFORE onOpen(), see the comment in invoke(...)
+			logManualCallWarning(proxy.getClass().getSimpleName() + '.' + method.getName());
+			return forwarder.to(endpoint);
+		}
+
+		final var eventType = getEventType(method);
+		final var offloading = offloadings.getOrDefault(method, Offloading.NONE);
+		if (offloading == Offloading.NONE) {
+			return connectionProxy.executeWithinEventContext(
+					endpointClass, eventType, () -> forwarder.to(endpoint));
+		}
+		final ThrowingComputation<Object, RuntimeException, RuntimeException> invocation =
+				() -> forwarder.to(endpoint);
+		return connectionProxy.executeEvent(
+			endpointClass,
+			eventType,
+			(offloading == Offloading.ASYNC)
+					? logFailuresIfOnError(method, invocation)
+					: invocation,
+			offloading == Offloading.AWAIT
+		);
+	}
+
+
+
+	/**
+	 * Returns {@code invocation} of {@code method} to be offloaded without awaiting. If
+	 * {@code method} is {@code onError(...)}, exceptions it throws are logged, rather than being
+	 * {@link #deliverOffloadedEventError(Throwable) delivered} back to it.
+	 */
+	<E extends Throwable> ThrowingComputation<Object, E, RuntimeException> logFailuresIfOnError(
+		Method method,
+		ThrowingComputation<Object, E, RuntimeException> invocation
+	) {
+		if (eventTypes.get(method) != WebsocketEventType.ERROR) return invocation;
+		return () -> {
+			try {
+				return invocation.perform();
+			} catch (Throwable e) {
+				log.log(WARNING, ON_ERROR_FAILED_WARNING, e);
+				return null;
+			}
+		};
+	}
+
+
+
+	/**
+	 * Delivers {@code error} thrown by a call offloaded without awaiting to the
+	 * {@code onError(...)} method of {@link #endpoint} within a new {@link WebsocketEventContext},
+	 * just as the container delivers exceptions thrown by calls executed by its {@code Threads}.
+	 * If {@link #endpoint} does not have an {@code onError(...)} method or it throws, exceptions
+	 * are logged.
+	 * Called by {@link WebsocketConnectionProxy} on a {@code Thread} of the connection's
+	 * {@link SerialExecutor}.
+	 */
+	void deliverOffloadedEventError(Throwable error) {
+		// unwrap exceptions thrown by the default additional decorator that uses reflection
+		final var cause = (error instanceof InvocationTargetException) ? error.getCause() : null;
+		final var endpointError = (cause != null) ? cause : error;
+		final var onErrorMethod = getOnErrorMethod();
+		if (onErrorMethod == null) {
+			log.log(WARNING, OFFLOADED_EVENT_FAILED_WARNING, endpointError);
+			return;
+		}
+		final ThrowingComputation<Object, Throwable, RuntimeException> onErrorInvocation = () -> {
+			try {
+				return onErrorMethod.invoke(endpoint, getOnErrorArgs(onErrorMethod, endpointError));
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		};
+		try {
+			connectionProxy.executeWithinEventContext(
+					endpointClass, WebsocketEventType.ERROR, onErrorInvocation);
+		} catch (Throwable onErrorFailure) {
+			onErrorFailure.addSuppressed(endpointError);
+			log.log(WARNING, ON_ERROR_FAILED_WARNING, onErrorFailure);
+		}
+	}
+
+	static final String ON_ERROR_FAILED_WARNING =
+			"onError(...) failed to handle an offloaded websocket event failure";
+
+
+
+	/** Returns the {@code onError(...)} method of {@link #endpoint} or {@code null} if none. */
+	Method getOnErrorMethod() {
+		for (var methodEventType: eventTypes.entrySet()) {
+			if (methodEventType.getValue() == WebsocketEventType.ERROR) {
+				final var onErrorMethod = methodEventType.getKey();
+				onErrorMethod.trySetAccessible();  // Endpoint classes need not be public
+				return onErrorMethod;
+			}
+		}
+		return null;
+	}
+
+
+
+	/**
+	 * Returns args for {@code onErrorMethod}: {@link #connectionProxy} for the {@link Session}
+	 * param, {@code error} for the {@link Throwable} param and values of path params of the
+	 * connection for params annotated with {@link PathParam}.
+	 */
+	Object[] getOnErrorArgs(Method onErrorMethod, Throwable error)
+			throws ReflectiveOperationException {
+		final var paramTypes = onErrorMethod.getParameterTypes();
+		final var paramAnnotations = onErrorMethod.getParameterAnnotations();
+		final var args = new Object[paramTypes.length];
+		for (int i = 0; i < args.length; i++) {
+			if (paramTypes[i] == Session.class) {
+				args[i] = connectionProxy;
+			} else if (Throwable.class.isAssignableFrom(paramTypes[i])) {
+				args[i] = error;
+			} else {
+				for (var annotation: paramAnnotations[i]) {
+					if ( !(annotation instanceof PathParam)) continue;
+					final var paramName = ((PathParam) annotation).value();
+					args[i] = convertPathParam(
+							connectionProxy.getPathParameters().get(paramName), paramTypes[i]);
+				}
+			}
+		}
+		return args;
+	}
+
+	/**
+	 * Converts {@code value} of a path param to {@code paramType}, which may be {@link String}, a
+	 * primitive type or its wrapper, as allowed by the websocket spec.
+	 */
+	static Object convertPathParam(String value, Class<?> paramType)
+			throws ReflectiveOperationException {
+		if (value == null || paramType == String.class) return value;
+		final var wrapperType = MethodType.methodType(paramType).wrap().returnType();
+		if (wrapperType == Character.class) return value.charAt(0);
+		return wrapperType.getMethod("valueOf", String.class).invoke(null, value);
+	}
+
+
+
 	void logManualCallWarning(String source) {
 		final var manualCallWarningMessage = source + MANUAL_CALL_WARNING;
 		log.warning(manualCallWarningMessage);
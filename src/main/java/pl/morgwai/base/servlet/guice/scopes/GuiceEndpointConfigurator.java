@@ -3,10 +3,8 @@ package pl.morgwai.base.servlet.guice.scopes;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.*;
+import java.util.concurrent.*;
 import javax.servlet.http.HttpSession;
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
@@ -17,10 +15,12 @@ import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.description.modifier.Visibility;
 import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
-import net.bytebuddy.implementation.InvocationHandlerAdapter;
+import net.bytebuddy.implementation.*;
+import net.bytebuddy.implementation.bind.annotation.Pipe;
 import net.bytebuddy.matcher.ElementMatchers;
 import pl.morgwai.base.guice.scopes.ContextTracker;
 import pl.morgwai.base.guice.scopes.InjectionContext;
+import pl.morgwai.base.servlet.guice.scopes.EndpointProxyHandler.Forwarder;
 
 import static com.google.inject.name.Names.named;
 
@@ -65,6 +65,11 @@ public class GuiceEndpointConfigurator {
 
 	protected final Injector injector;
 	protected final ContextTracker<ContainerCallContext> ctxTracker;
+	/**
+	 * Receives metrics of {@code Endpoints} created by this configurator:
+	 * {@link ContainerCallMetrics#of(Injector) the instance bound} in {@link #injector} if any.
+	 */
+	protected final ContainerCallMetrics metrics;
 
 	/** Controls verification style of {@link #checkIfRequiredEndpointMethodsPresent(Class)}. */
 	protected final boolean requireTopLevelMethodAnnotations;
@@ -97,6 +102,7 @@ public class GuiceEndpointConfigurator {
 		this.injector = injector;
 		this.ctxTracker = ctxTracker;
 		this.requireTopLevelMethodAnnotations = requireTopLevelMethodAnnotations;
+		this.metrics = ContainerCallMetrics.of(injector);
 	}
 
 
@@ -160,11 +166,19 @@ public class GuiceEndpointConfigurator {
 				endpointProxy,
 				new EndpointProxyHandler(
 					getAdditionalDecorator(endpointToWrap),
+					endpointToWrap,
 					ctxTracker,
 					enclosingConnectionCtx,
-					enclosingHttpSession
+					enclosingHttpSession,
+					isEventContextRecyclingEnabled(),
+					getEventExecutor(endpointClass),
+					metrics
 				)
 			);
+			if (isLifecycleOnlyInterceptionEnabled()) {
+				proxyClass.getDeclaredField(WRAPPED_ENDPOINT_FIELD_NAME)
+					.set(endpointProxy, endpointToWrap);
+			}
 			return endpointProxy;
 		} catch (NoSuchFieldException | IllegalAccessException | InstantiationException e) {
 			throw new IllegalArgumentException(e);
@@ -176,6 +190,9 @@ public class GuiceEndpointConfigurator {
 	static final String INVOCATION_HANDLER_FIELD_NAME =
 			GuiceEndpointConfigurator.class.getPackageName().replace('.', '_')
 					+ "_invocationHandler";
+	static final String WRAPPED_ENDPOINT_FIELD_NAME =
+			GuiceEndpointConfigurator.class.getPackageName().replace('.', '_')
+					+ "_wrappedEndpoint";
 
 
 
@@ -210,30 +227,169 @@ public class GuiceEndpointConfigurator {
 	 * Nevertheless, once built, a proxy class is cached for subsequent requests for the same
 	 * {@code endpointClass}, thus this method may be also called directly during an app's
 	 * initialization to pre-build the dynamic proxy classes.</p>
+	 * <p>
+	 * If a proxy class for {@code endpointClass} was generated at build time by
+	 * {@link ProxyClassGenerator}, then it is {@link #loadPrebuiltProxyClass(Class) loaded} instead
+	 * of creating a new dynamic one.</p>
 	 */
 	public <EndpointT> Class<? extends EndpointT> getProxyClass(Class<EndpointT> endpointClass) {
 		@SuppressWarnings("unchecked")
 		final Class<? extends EndpointT> proxyClass = (Class<? extends EndpointT>)
-				proxyClasses.computeIfAbsent(endpointClass, this::createProxyClass);
+				proxyClasses.computeIfAbsent(
+					getProxyClassName(endpointClass),
+					(proxyClassName) -> {
+						final var prebuiltProxyClass = loadPrebuiltProxyClass(endpointClass);
+						return (prebuiltProxyClass != null)
+								? prebuiltProxyClass
+								: createProxyClass(endpointClass, proxyClassName);
+					}
+				);
 		return proxyClass;
 	}
 
-	static final ConcurrentMap<Class<?>, Class<?>> proxyClasses = new ConcurrentHashMap<>();
+	/**
+	 * {@link #getProxyClass(Class) Obtains} proxy classes for all {@code endpointClasses} in
+	 * parallel using {@code pool}.
+	 * Returns after all the proxy classes are built. This method may be called during an app's
+	 * initialization to speed up pre-building of large numbers of proxy classes.
+	 * @throws IllegalArgumentException if any of {@code endpointClasses} does not pass
+	 *     {@link #checkIfRequiredEndpointMethodsPresent(Class) the verification}. Proxy classes for
+	 *     the remaining ones will be built anyway. If more than 1 class fails, the subsequent
+	 *     failures are {@link Throwable#addSuppressed(Throwable) suppressed} by the first one.
+	 */
+	public void prebuildProxyClasses(Collection<Class<?>> endpointClasses, ForkJoinPool pool) {
+		final var tasks = new ArrayList<ForkJoinTask<?>>(endpointClasses.size());
+		for (var endpointClass: endpointClasses) {
+			tasks.add(pool.submit(() -> getProxyClass(endpointClass)));
+		}
+		RuntimeException failure = null;
+		for (var task: tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if (failure != null) throw failure;
+	}
+
+
+
+	/**
+	 * Maps {@link #getProxyClassName(Class) names of proxy classes} to the classes themselves.
+	 * Names are used as keys as they reflect both {@code endpointClass} and the proxy generation
+	 * mode.
+	 */
+	static final ConcurrentMap<String, Class<?>> proxyClasses = new ConcurrentHashMap<>();
+
+
+
+	/**
+	 * Returns the name of the proxy class for {@code endpointClass} generated by this
+	 * configurator.
+	 */
+	String getProxyClassName(Class<?> endpointClass) {
+		return GuiceEndpointConfigurator.class.getPackageName() + '.' + getProxyClassNamePrefix()
+				+ endpointClass.getName().replace('.', '_').replace('$', '_') + '_'
+				+ (endpointClass.hashCode() & Integer.MAX_VALUE);  // strictlyPositive(hash)
+	}
+
+	/**
+	 * Returns the name of the proxy class for {@code endpointClass} generated at build time by
+	 * {@link ProxyClassGenerator}.
+	 * Unlike {@link #getProxyClassName(Class)}, it does not contain {@code endpointClass}'s hash,
+	 * so that it is stable across JVM runs.
+	 */
+	String getPrebuiltProxyClassName(Class<?> endpointClass) {
+		return GuiceEndpointConfigurator.class.getPackageName() + ".Prebuilt"
+				+ getProxyClassNamePrefix()
+				+ endpointClass.getName().replace('.', '_').replace('$', '_');
+	}
+
+	private String getProxyClassNamePrefix() {
+		return (isDirectDispatchEnabled() ? "Direct" : "")
+				+ (isLifecycleOnlyInterceptionEnabled() ? "LifecycleOnly" : "")
+				+ "ProxyFor_";
+	}
+
+
+
+	/**
+	 * Loads the proxy class for {@code endpointClass} generated at build time by
+	 * {@link ProxyClassGenerator}, if present.
+	 * Prebuilt classes are searched for using the same {@code ClassLoader} as dynamic proxy classes
+	 * are injected into. Classes generated for a different same-named {@code endpointClass} (for
+	 * example loaded by a different {@code ClassLoader}) are ignored.
+	 * @return the prebuilt proxy class or {@code null} if none was found.
+	 */
+	<EndpointT> Class<? extends EndpointT> loadPrebuiltProxyClass(Class<EndpointT> endpointClass) {
+		final Class<?> prebuiltProxyClass;
+		try {
+			prebuiltProxyClass = Class.forName(
+				getPrebuiltProxyClassName(endpointClass),
+				true,
+				GuiceEndpointConfigurator.class.getClassLoader()
+			);
+		} catch (ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+		if ( !endpointClass.equals(prebuiltProxyClass.getSuperclass())) return null;
+		if ( !Endpoint.class.isAssignableFrom(endpointClass)) {
+			checkIfRequiredEndpointMethodsPresent(endpointClass);
+		}
+		return prebuiltProxyClass.asSubclass(endpointClass);
+	}
+
+
+
+	/**
+	 * Creates a new dynamic class of a context-aware proxy for {@code endpointClass} and injects it
+	 * into the {@code ClassLoader} of this class.
+	 */
+	<EndpointT> Class<? extends EndpointT> createProxyClass(
+		Class<EndpointT> endpointClass,
+		String proxyClassName
+	) {
+		try (
+			final var unloadedClass = makeProxyClass(endpointClass, proxyClassName);
+		) {
+			return unloadedClass
+				.load(
+					GuiceEndpointConfigurator.class.getClassLoader(),
+					ClassLoadingStrategy.Default.INJECTION
+				)
+				.getLoaded();
+		}
+	}
 
 
 
-	/** Creates a new dynamic class of a context-aware proxy for {@code endpointClass}. */
-	<EndpointT> Class<? extends EndpointT> createProxyClass(Class<EndpointT> endpointClass) {
+	/**
+	 * Makes bytecode of a new class of a context-aware proxy for {@code endpointClass}.
+	 * If {@link #isDirectDispatchEnabled() direct dispatch is enabled}, methods
+	 * {@link #isDirectlyDispatchable(Method) eligible for it} are
+	 * {@link MethodDelegation delegated} to
+	 * {@link EndpointProxyHandler#dispatchDirectly(Forwarder, Object, Method)}, while all the
+	 * remaining ones are intercepted by
+	 * {@link EndpointProxyHandler#invoke(Object, Method, Object[])}.
+	 * If {@link #isLifecycleOnlyInterceptionEnabled() lifecycle-only interception is enabled},
+	 * calls to {@link #isPassThroughMethod(Method) non-lifecycle methods} are generated as plain
+	 * {@link MethodCall}s on the wrapped {@code Endpoint} stored in an additional field.
+	 */
+	<EndpointT> DynamicType.Unloaded<EndpointT> makeProxyClass(
+		Class<EndpointT> endpointClass,
+		String proxyClassName
+	) {
 		if ( !Endpoint.class.isAssignableFrom(endpointClass)) {
 			checkIfRequiredEndpointMethodsPresent(endpointClass);
 		}
 		DynamicType.Builder<EndpointT> proxyClassBuilder = new ByteBuddy()
 			.subclass(endpointClass)
-			.name(
-				GuiceEndpointConfigurator.class.getPackageName() + ".ProxyFor_"
-						+ endpointClass.getName().replace('.', '_').replace('$', '_') + '_'
-						+ (endpointClass.hashCode() & Integer.MAX_VALUE)  // strictlyPositive(hash)
-			)
+			.name(proxyClassName)
 			.defineField(
 				INVOCATION_HANDLER_FIELD_NAME,
 				EndpointProxyHandler.class,
@@ -241,6 +397,33 @@ public class GuiceEndpointConfigurator {
 			)
 			.method(ElementMatchers.any())
 				.intercept(InvocationHandlerAdapter.toField(INVOCATION_HANDLER_FIELD_NAME));
+		if (isDirectDispatchEnabled()) {
+			final var directlyDispatchableMethods = Arrays.stream(endpointClass.getMethods())
+				.filter(GuiceEndpointConfigurator::isDirectlyDispatchable)
+				.toArray(Method[]::new);
+			// matchers registered later take precedence over the above any()
+			proxyClassBuilder = proxyClassBuilder
+				.method(ElementMatchers.anyOf(directlyDispatchableMethods))
+					.intercept(
+						MethodDelegation.withDefaultConfiguration()
+							.withBinders(Pipe.Binder.install(Forwarder.class))
+							.filter(ElementMatchers.named(DISPATCH_DIRECTLY_METHOD_NAME))
+							.toField(INVOCATION_HANDLER_FIELD_NAME)
+					);
+		}
+		if (isLifecycleOnlyInterceptionEnabled()) {
+			final var passThroughMethods = Arrays.stream(endpointClass.getMethods())
+				.filter(GuiceEndpointConfigurator::isPassThroughMethod)
+				.toArray(Method[]::new);
+			proxyClassBuilder = proxyClassBuilder
+				.defineField(WRAPPED_ENDPOINT_FIELD_NAME, endpointClass, Visibility.PACKAGE_PRIVATE)
+				.method(ElementMatchers.anyOf(passThroughMethods))
+					.intercept(
+						MethodCall.invokeSelf()
+							.onField(WRAPPED_ENDPOINT_FIELD_NAME)
+							.withAllArguments()
+					);
+		}
 		final ServerEndpoint serverAnnotation = endpointClass.getAnnotation(ServerEndpoint.class);
 		if (serverAnnotation != null) {
 			proxyClassBuilder = proxyClassBuilder.annotateType(serverAnnotation);
@@ -249,16 +432,7 @@ public class GuiceEndpointConfigurator {
 		if (clientAnnotation != null) {
 			proxyClassBuilder = proxyClassBuilder.annotateType(clientAnnotation);
 		}
-		try (
-			final var unloadedClass = proxyClassBuilder.make();
-		) {
-			return unloadedClass
-				.load(
-					GuiceEndpointConfigurator.class.getClassLoader(),
-					ClassLoadingStrategy.Default.INJECTION
-				)
-				.getLoaded();
-		}
+		return proxyClassBuilder.make();
 	}
 
 
@@ -340,4 +514,206 @@ public class GuiceEndpointConfigurator {
 	protected InvocationHandler getAdditionalDecorator(Object endpoint) {
 		return (proxy, method, args) -> method.invoke(endpoint, args);
 	}
+
+
+
+	/**
+	 * Whether proxies created by this configurator should dispatch calls to most methods of
+	 * wrapped {@code Endpoints} directly.
+	 * In direct dispatch mode, generated proxies call
+	 * {@link #isDirectlyDispatchable(Method) eligible methods} of wrapped {@code Endpoints} using
+	 * statically-typed bytecode, without passing args in {@code Object[]} arrays and without
+	 * {@link Method#invoke(Object, Object...) reflection}. Such calls are still executed within
+	 * websocket {@code Contexts}, but are <b>not</b> passed to
+	 * {@link #getAdditionalDecorator(Object) the additional decorator}: only calls to the remaining
+	 * methods are.
+	 * <p>
+	 * By default {@code false}. Subclasses may override this method to enable direct dispatch.</p>
+	 */
+	protected boolean isDirectDispatchEnabled() {
+		return false;
+	}
+
+
+
+	/**
+	 * Checks if calls to {@code method} may be dispatched directly when
+	 * {@link #isDirectDispatchEnabled() direct dispatch is enabled}.
+	 * This is the case for all non-static, non-final public methods declared in public classes,
+	 * except those that may accept a {@link Session} param (which must be replaced with
+	 * a {@link WebsocketConnectionProxy} before passing to the wrapped {@code Endpoint}) and
+	 * open/close/error lifecycle methods (which subclasses may need to
+	 * {@link #getAdditionalDecorator(Object) decorate}).
+	 */
+	static boolean isDirectlyDispatchable(Method method) {
+		if ( !isDirectlyCallable(method)) return false;
+		for (var paramType: method.getParameterTypes()) {
+			if (paramType.isAssignableFrom(Session.class)) return false;
+		}
+		return !isConnectionLifecycleMethod(method);
+	}
+
+	static final String DISPATCH_DIRECTLY_METHOD_NAME = "dispatchDirectly";
+
+
+
+	/**
+	 * Whether proxies created by this configurator should intercept only lifecycle methods of
+	 * wrapped {@code Endpoints}.
+	 * Lifecycle methods are those annotated with @{@link OnOpen}, @{@link OnMessage},
+	 * @{@link OnError} or @{@link OnClose} and those overriding methods of {@link Endpoint}. Calls
+	 * to all {@link #isPassThroughMethod(Method) other methods} are passed directly to wrapped
+	 * {@code Endpoints}, <b>outside</b> of any websocket {@code Contexts} and without passing them
+	 * to {@link #getAdditionalDecorator(Object) the additional decorator}. This avoids creating
+	 * {@link WebsocketEventContext}s for calls to getters, helper methods,
+	 * {@link Object#toString() toString()} and such, which are often made from other
+	 * {@code Threads}.
+	 * <p>
+	 * By default {@code false}. Subclasses may override this method to enable lifecycle-only
+	 * interception.</p>
+	 */
+	protected boolean isLifecycleOnlyInterceptionEnabled() {
+		return false;
+	}
+
+
+
+	/**
+	 * Whether proxies created by this configurator should reuse a single
+	 * {@link WebsocketEventContext} instance for subsequent events of a given connection.
+	 * Objects scoped to the recycled {@code Context} by {@link WebsocketModule#containerCallScope}
+	 * are removed after each event, so they remain isolated between events, while steady-state
+	 * handling of events does not allocate any new {@code Contexts}. Events that overlap with the
+	 * one currently using the recycled {@code Context} (for example calls to some {@code Endpoint}
+	 * methods from other {@code Threads}) get new instances as usual.
+	 * <p>
+	 * <b>NOTE:</b> recycling must <b>not</b> be enabled if {@code Endpoints} pass their event
+	 * {@code Contexts} to other {@code Threads} (for example using
+	 * {@link pl.morgwai.base.guice.scopes.ContextBinder} or
+	 * {@link pl.morgwai.base.guice.scopes.ContextTrackingExecutor}) as such {@code Contexts} would
+	 * be reused for subsequent events while still in use by these {@code Threads}.</p>
+	 * <p>
+	 * By default {@code false}. Subclasses may override this method to enable recycling.</p>
+	 */
+	protected boolean isEventContextRecyclingEnabled() {
+		return false;
+	}
+
+
+
+	/**
+	 * Returns an {@link Executor} to which calls to lifecycle methods of {@code Endpoints} of
+	 * {@code endpointClass} should be offloaded from container {@code Threads}, or {@code null} if
+	 * they should be executed directly by container {@code Threads}.
+	 * Calls of a given connection are executed one at a time in the same order as the container
+	 * delivered them, within {@link WebsocketEventContext}s of the given connection as usual.
+	 * Calls that must complete before the container proceeds (calls returning a message to send,
+	 * accepting a {@link java.nio.ByteBuffer} or a stream, or {@link
+	 * Endpoint#onOpen(Session, EndpointConfig) onOpen(...)} of programmatic {@code Endpoints}) are
+	 * awaited by the container {@code Thread}, all others are executed asynchronously and
+	 * exceptions they throw are delivered to the {@code onError(...)} method of the
+	 * {@code Endpoint} within a new {@link WebsocketEventContext}, on the same {@code Thread}
+	 * (exceptions thrown by {@code onError(...)} itself are only logged). Calls to
+	 * {@link MessageHandler}s added via {@link WebsocketConnectionProxy} are offloaded similarly.
+	 * <p>
+	 * This is useful for {@code Endpoints} performing blocking calls (like JDBC) that would
+	 * otherwise pin container worker {@code Threads}. On Java 21+ the returned {@code Executor} may
+	 * be for example {@code Executors.newVirtualThreadPerTaskExecutor()}.
+	 * This method is called for each created {@code Endpoint} instance, so it should return a
+	 * shared {@code Executor} rather than create a new one each time.</p>
+	 * <p>
+	 * By default {@code null}. Subclasses may override this method to enable offloading.</p>
+	 */
+	protected Executor getEventExecutor(Class<?> endpointClass) {
+		return null;
+	}
+
+
+
+	/**
+	 * Checks if calls to {@code method} should be passed directly to wrapped {@code Endpoints}
+	 * when {@link #isLifecycleOnlyInterceptionEnabled() lifecycle-only interception is enabled}.
+	 * This is the case for all non-static, non-final public methods declared in public classes,
+	 * except {@code Endpoint} lifecycle methods.
+	 */
+	static boolean isPassThroughMethod(Method method) {
+		return isDirectlyCallable(method)
+				&& !isConnectionLifecycleMethod(method)
+				&& !isEndpointLifecycleMethod(method, OnMessage.class, "onMessage");
+	}
+
+
+
+	/**
+	 * Checks if {@code method} may be overridden by a proxy class and called from it on another
+	 * instance.
+	 */
+	static boolean isDirectlyCallable(Method method) {
+		final var modifiers = method.getModifiers();
+		return Modifier.isPublic(modifiers)
+				&& !Modifier.isStatic(modifiers)
+				&& !Modifier.isFinal(modifiers)
+				&& Modifier.isPublic(method.getDeclaringClass().getModifiers());
+	}
+
+
+
+	/** Checks if {@code method} is an open, close or error {@code Endpoint} lifecycle method. */
+	static boolean isConnectionLifecycleMethod(Method method) {
+		return isEndpointLifecycleMethod(method, OnOpen.class, "onOpen")
+				|| isEndpointLifecycleMethod(method, OnClose.class, "onClose")
+				|| isEndpointLifecycleMethod(method, OnError.class, "onError");
+	}
+
+
+
+	/**
+	 * Checks if {@code method} or any of its prototypes is either annotated with
+	 * {@code annotationClass} or overrides the {@link Endpoint} method given by
+	 * {@code endpointMethodName}.
+	 */
+	protected static boolean isEndpointLifecycleMethod(
+		Method method,
+		Class<? extends Annotation> annotationClass,
+		String endpointMethodName
+	) {
+		if ( !Endpoint.class.isAssignableFrom(method.getDeclaringClass())) {
+			return isAnnotatedLifecycleMethod(method, annotationClass);
+		}
+
+		if ( !method.getName().equals(endpointMethodName)) return false;
+		try {
+			Endpoint.class.getMethod(endpointMethodName, method.getParameterTypes());
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if {@code method} or any of its prototypes are annotated with {@code annotationClass}.
+	 * This is a Jetty-style verification, however if {@code method} was called at all by a Tyrus
+	 * container, means it is directly annotated and this method will work properly anyway.
+	 * Theoretically some corner cases are possible when {@code method}'s prototype was annotated
+	 * with different lifecycle annotation than {@code method} itself, but these don't happen in
+	 * practice due to parameter incompatibilities.
+	 */
+	private static boolean isAnnotatedLifecycleMethod(
+		Method method,
+		Class<? extends Annotation> annotationClass
+	) {
+		if (method.isAnnotationPresent(annotationClass)) return true;
+		var classUnderScan = method.getDeclaringClass();
+		while ( !classUnderScan.equals(Object.class)) {
+			classUnderScan = classUnderScan.getSuperclass();
+			try {
+				var methodPrototypeUnderScan = classUnderScan.getDeclaredMethod(
+						method.getName(), method.getParameterTypes());
+				if (methodPrototypeUnderScan.isAnnotationPresent(annotationClass)) return true;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+		return false;
+	}
 }
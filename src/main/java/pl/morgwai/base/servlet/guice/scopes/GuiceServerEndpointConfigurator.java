@@ -1,11 +1,10 @@
 // Copyright 2021 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
 package pl.morgwai.base.servlet.guice.scopes;
 
-import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
 import java.util.NoSuchElementException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.*;
 import java.util.logging.Logger;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpSession;
@@ -90,13 +89,10 @@ public class GuiceServerEndpointConfigurator extends Configurator {
 	 * obtain a reference to their respective {@link Injector} in
 	 * {@link #modifyHandshake(ServerEndpointConfig, HandshakeRequest, HandshakeResponse)} to call
 	 * {@link #initialize(Injector)}.
-	 * {@link WeakReference} wrapping prevents leaks of {@link Injector}s if
-	 * {@link #deregisterInjector(Injector)} is not called. Empty {@link WeakReference}s
-	 * objects together with their path keys will still be leaked though, but that's very little
-	 * comparing to whole {@link Injector}s.
+	 * Entries are added by {@link #registerInjector(Injector)} during app deployments and removed
+	 * by {@link #deregisterInjector(Injector)} during their shutdowns.
 	 */
-	static final ConcurrentMap<String, WeakReference<Injector>> deploymentInjectors =
-			new ConcurrentHashMap<>(5);
+	static final ConcurrentMap<String, Injector> deploymentInjectors = new ConcurrentHashMap<>(5);
 
 
 
@@ -107,10 +103,7 @@ public class GuiceServerEndpointConfigurator extends Configurator {
 	 */
 	@Inject
 	static void registerInjector(Injector injector) {
-		deploymentInjectors.put(
-			injector.getInstance(APP_DEPLOYMENT_PATH_KEY),
-			new WeakReference<>(injector)
-		);
+		deploymentInjectors.put(injector.getInstance(APP_DEPLOYMENT_PATH_KEY), injector);
 	}
 
 
@@ -121,14 +114,13 @@ public class GuiceServerEndpointConfigurator extends Configurator {
 	 * This method is called automatically by
 	 * {@link GuiceServletContextListener#contextDestroyed(javax.servlet.ServletContextEvent)},
 	 * apps that don't use it must call this method manually during their shutdowns to prevent
-	 * resource leaks.</p>
+	 * resource leaks.<br/>
+	 * If another {@link Injector} has been meanwhile registered for the same app deployment path
+	 * (for example by a new deployment of the same app), it is left intact.</p>
 	 */
 	public static void deregisterInjector(Injector injector) {
 		final var appDeploymentPath = injector.getInstance(APP_DEPLOYMENT_PATH_KEY);
-		final var deregisteredDeployment = deploymentInjectors.remove(appDeploymentPath);
-		if (deregisteredDeployment != null) {
-			deregisteredDeployment.clear();
-		} else {
+		if ( !deploymentInjectors.remove(appDeploymentPath, injector)) {
 			log.warning("attempting to deregister an unregistered Injector for the app at \""
 					+ appDeploymentPath + '"');
 		}
@@ -247,6 +239,11 @@ public class GuiceServerEndpointConfigurator extends Configurator {
 		return backingConfigurator.getProxyClass(endpointClass);
 	}
 
+	/** See {@link GuiceEndpointConfigurator#prebuildProxyClasses(Collection, ForkJoinPool)}. */
+	public void prebuildProxyClasses(Collection<Class<?>> endpointClasses, ForkJoinPool pool) {
+		backingConfigurator.prebuildProxyClasses(endpointClasses, pool);
+	}
+
 
 
 	/**
@@ -288,26 +285,18 @@ public class GuiceServerEndpointConfigurator extends Configurator {
 		final var requestPath = request.getRequestURI().getPath();
 		final var appDeploymentPath = requestPath.substring(
 				0, requestPath.lastIndexOf(config.getPath()));
-		final var injectorRef = deploymentInjectors.get(appDeploymentPath);
-		if (injectorRef != null) {
-			System.gc();  // flush WeakReferences from deploymentInjectors
-			final var injector = injectorRef.get();
-			if (injector == null) throw new IllegalStateException(INJECTOR_REF_LOST_MESSAGE);
-			return injector;
-		}
+		final var injector = deploymentInjectors.get(appDeploymentPath);
+		if (injector != null) return injector;
 
-		// pick first non-null from deploymentInjectors, get its ServletContext, ask it for a
+		// pick any from deploymentInjectors, get its ServletContext, ask it for a
 		// reference to the ServletContext of this app and get the Injector from its attribute
 		// (for cases when the desired deployment is matched by more than 1 path (as described in
 		// ServletContext.getContextPath() javadoc) and request comes to a non-primary path)
 		ServletContext appDeployment = null;
-		for (var randomInjectorRef: deploymentInjectors.values()) {
-			final var randomInjector = randomInjectorRef.get();
-			if (randomInjector != null) {
-				final var randomDeployment = randomInjector.getInstance(ServletContext.class);
-				appDeployment = randomDeployment.getContext(appDeploymentPath);
-				if (appDeployment != null) break;
-			}
+		for (var randomInjector: deploymentInjectors.values()) {
+			final var randomDeployment = randomInjector.getInstance(ServletContext.class);
+			appDeployment = randomDeployment.getContext(appDeploymentPath);
+			if (appDeployment != null) break;
 		}
 		if (appDeployment == null || appDeploymentPath.equals(appDeployment.getContextPath())) {
 			final var deploymentNotFoundMessage = String.format(
@@ -326,9 +315,6 @@ public class GuiceServerEndpointConfigurator extends Configurator {
 		return (Injector) appDeployment.getAttribute(Injector.class.getName());
 	}
 
-	static final String INJECTOR_REF_LOST_MESSAGE = "lost a reference to the Injector, the app "
-			+  "probably does not call GuiceServerEndpointConfigurator.deregisterInjector(injector)"
-			+ " at its shutdown";
 	static final String INJECTOR_NOT_FOUND_MESSAGE = "could not find an Injector for the "
 			+ "request path \"%s\" (calculated app deployment path: %s), either a "
 			+ "ServletWebsocketModule or a StandaloneWebsocketServerModule must be passed to "
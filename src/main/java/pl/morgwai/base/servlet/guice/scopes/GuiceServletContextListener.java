@@ -2,6 +2,7 @@
 package pl.morgwai.base.servlet.guice.scopes;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 import javax.servlet.*;
 import javax.servlet.http.HttpServlet;
@@ -187,16 +188,20 @@ public abstract class GuiceServletContextListener implements ServletContextListe
 
 	/**
 	 * Adds an {@code Endpoint} using {@link #endpointConfigurator}.
-	 * Pre-builds a dynamic proxy class for {@code endpointClass} in advance.
+	 * A dynamic proxy class for {@code endpointClass} will be pre-built in advance at the end of
+	 * {@link #contextInitialized(ServletContextEvent)}.
 	 * </p>
 	 * For use in {@link #addServletsFiltersEndpoints()}. Useful mostly for unannotated
 	 * {@code Endpoint}s extending {@link javax.websocket.Endpoint}.</p>
 	 */
 	protected void addEndpoint(Class<?> endpointClass, String path) throws DeploymentException {
 		addEndpoint(endpointClass, path, endpointConfigurator);
-		endpointConfigurator.getProxyClass(endpointClass);  // pre-build dynamic proxy class
+		addedEndpointClasses.add(endpointClass);
 	}
 
+	/** {@code Endpoint} classes added with {@link #addEndpoint(Class, String)}. */
+	private final List<Class<?>> addedEndpointClasses = new LinkedList<>();
+
 	/**
 	 * Adds an {@code Endpoint} using {@code configurator}.
 	 * </p>
@@ -216,6 +221,50 @@ public abstract class GuiceServletContextListener implements ServletContextListe
 
 
 
+	/**
+	 * Returns the {@link GuiceEndpointConfigurator} used by {@link #servletModule} to create
+	 * client {@code Endpoints} of {@link #getClientEndpointClasses()}.
+	 * Used to pre-build their proxy classes.
+	 * @return by default {@link GuiceEndpointConfigurator} obtained from {@link #injector}, must be
+	 *     overridden if {@link #createWebsocketModule(boolean, Set)} is overridden to use a more
+	 *     specialized implementation.
+	 */
+	protected GuiceEndpointConfigurator getClientEndpointConfigurator() {
+		return injector.getInstance(GuiceEndpointConfigurator.class);
+	}
+
+
+
+	/**
+	 * Pre-builds in parallel dynamic proxy classes for {@code Endpoints}
+	 * {@link #addEndpoint(Class, String) added using endpointConfigurator} and for
+	 * {@link #getClientEndpointClasses() client Endpoints}.
+	 * Uses a temporary {@link ForkJoinPool} that is shut down before returning.
+	 */
+	void prebuildProxyClasses() {
+		final var clientEndpointClasses = getClientEndpointClasses();
+		if (addedEndpointClasses.isEmpty() && clientEndpointClasses.isEmpty()) return;
+		final var pool = new ForkJoinPool(
+				Math.min(
+					Runtime.getRuntime().availableProcessors(),
+					addedEndpointClasses.size() + clientEndpointClasses.size()
+				));
+		try {
+			final var serverProxyClassesBuilding = pool.submit(
+				() -> endpointConfigurator.prebuildProxyClasses(addedEndpointClasses, pool)
+			);
+			if ( !clientEndpointClasses.isEmpty()) {
+				getClientEndpointConfigurator()
+					.prebuildProxyClasses(clientEndpointClasses, pool);
+			}
+			serverProxyClassesBuilding.join();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+
+
 	/**
 	 * {@link ServletContext#createServlet(Class) Creates a Servet} of {@code servletClass} class,
 	 * {@link Injector#injectMembers(Object) injects its dependencies} and
@@ -342,7 +391,10 @@ public abstract class GuiceServletContextListener implements ServletContextListe
 	 *   <li>Obtains
 	 *       {@link GuiceEndpointConfigurator#REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_PARAM} from
 	 *       {@link #appDeployment}, calls {@link #getClientEndpointClasses()} and
-	 *       {@link #createWebsocketModule(boolean, Set)} to initialize {@link #servletModule}.</li>
+	 *       {@link #createWebsocketModule(boolean, Set)} to initialize {@link #servletModule}.
+	 *       If {@link HttpSessionContext#WRITE_BEHIND_WINDOW_PARAM} is set, creates an executor for
+	 *       write-behind of {@link HttpSessionContext}s, shut down by
+	 *       {@link #contextDestroyed(ServletContextEvent)}.</li>
 	 *   <li>Calls {@link #configureInjections()}.</li>
 	 *   <li>Initializes {@link #injector} by passing {@link Module}s from the previous point and
 	 *       {@link #servletModule} to {@link #createInjector(LinkedList)}.</li>
@@ -350,6 +402,9 @@ public abstract class GuiceServletContextListener implements ServletContextListe
 	 *       {@link #createEndpointConfigurator(Injector)}.</li>
 	 *   <li>Installs {@link RequestContextFilter} and calls
 	 *       {@link #addServletsFiltersEndpoints()}.</li>
+	 *   <li>Pre-builds in parallel dynamic proxy classes for {@code Endpoints}
+	 *       {@link #addEndpoint(Class, String) added using endpointConfigurator} and for
+	 *       {@link #getClientEndpointClasses() client Endpoints}.</li>
 	 * </ol>
 	 */
 	@Override
@@ -364,7 +419,6 @@ public abstract class GuiceServletContextListener implements ServletContextListe
 			log.info(deploymentName + " is being deployed");
 			endpointContainer = (ServerContainer)
 					appDeployment.getAttribute(ServerContainer.class.getName());
-			appDeployment.addListener(new HttpSessionContext.SessionContextCreator());
 
 			// 2
 			final var requireTopLevelMethodAnnotations = Boolean.parseBoolean(
@@ -380,6 +434,17 @@ public abstract class GuiceServletContextListener implements ServletContextListe
 			httpSessionScope = servletModule.httpSessionScope;
 			websocketConnectionScope = servletModule.websocketConnectionScope;
 			ctxBinder = servletModule.ctxBinder;
+			final var writeBehindWindowMillis =
+					HttpSessionContext.DeploymentSettings.of(appDeployment).writeBehindWindowMillis;
+			if (writeBehindWindowMillis > 0L) {
+				final var writeBehind = new HttpSessionContextWriteBehind(
+					writeBehindWindowMillis,
+					deploymentName + " HttpSessionContext write-behind"
+				);
+				appDeployment.setAttribute(
+						HttpSessionContextWriteBehind.class.getName(), writeBehind);
+				addShutdownHook(writeBehind::shutdown);
+			}
 
 			// 3
 			final var modules = configureInjections();
@@ -395,6 +460,9 @@ public abstract class GuiceServletContextListener implements ServletContextListe
 			addFilter(RequestContextFilter.class.getSimpleName(), RequestContextFilter.class)
 				.addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), false, "/*");
 			addServletsFiltersEndpoints();
+
+			// 7
+			prebuildProxyClasses();
 			log.info(deploymentName + " deployed successfully");
 		} catch (Throwable e) {
 			final var message = deploymentName + " failed to deploy";
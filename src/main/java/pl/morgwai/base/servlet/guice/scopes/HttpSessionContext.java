@@ -1,11 +1,21 @@
 // Copyright 2021 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
 package pl.morgwai.base.servlet.guice.scopes;
 
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.http.*;
 
-import pl.morgwai.base.guice.scopes.InjectionContext;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import pl.morgwai.base.guice.scopes.*;
+import pl.morgwai.base.servlet.guice.scopes.CompactScopedObjectsFormat.SerializedValue;
+
+import static java.util.logging.Level.WARNING;
 
 
 
@@ -18,6 +28,22 @@ import pl.morgwai.base.guice.scopes.InjectionContext;
  * value of {@link #CUSTOM_SERIALIZATION_PARAM}, must be set to {@code "true"} either in
  * {@code web.xml} or programmatically before any request is served (for example in
  * {@link javax.servlet.ServletContextListener#contextInitialized(ServletContextEvent)}).</p>
+ * <p>
+ * Setting a deployment init-param named as the value of {@link #COMPACT_SERIALIZATION_PARAM} to
+ * {@code "true"} enables a compact binary format of scoped objects regardless of the serialization
+ * mechanism used by the container. See {@link CompactScopedObjectsFormat} for details.</p>
+ * <p>
+ * If {@link #MODIFICATION_TRACKING_PARAM} is set to {@code "true"}, modifications of scoped
+ * objects are tracked: if none were made since the last serialization, the previously serialized
+ * form is reused and the session is not marked as modified, so that the container may skip
+ * persisting/replicating it. In such case, objects mutated in place <b>must</b> be reported using
+ * {@link #markModified(Key)}, otherwise their stale state may be persisted/replicated. By default
+ * scoped objects are serialized each time the session is.</p>
+ * <p>
+ * If {@link #LAZY_DESERIALIZATION_PARAM} is set to {@code "true"} in addition to
+ * {@link #COMPACT_SERIALIZATION_PARAM}, scoped objects of activated sessions are deserialized
+ * only when accessed for the first time, which lowers failover latency and memory usage of idle
+ * sessions.</p>
  * @see ServletWebsocketModule#httpSessionScope corresponding Scope
  */
 public class HttpSessionContext extends InjectionContext implements HttpSessionActivationListener {
@@ -42,37 +68,214 @@ public class HttpSessionContext extends InjectionContext implements HttpSessionA
 			HttpSessionContext.class.getName() + CUSTOM_SERIALIZATION_PARAM_SUFFIX;
 	final boolean customSerialization;
 
+	/** See {@link #COMPACT_SERIALIZATION_PARAM}. */
+	public static final String COMPACT_SERIALIZATION_PARAM_SUFFIX = ".compactSerialization";
+	/**
+	 * Name of the {@link ServletContext#getInitParameter(String) deployment init-param} enabling
+	 * the compact binary format of scoped objects for (de)serialization. Each {@code Context}
+	 * retains the format it was created with also after being deserialized on another node.
+	 * The value is a concatenation of
+	 * {@link Class#getName() the fully qualified name of this class} and
+	 * {@value #COMPACT_SERIALIZATION_PARAM_SUFFIX}.
+	 */
+	public static final String COMPACT_SERIALIZATION_PARAM =
+			HttpSessionContext.class.getName() + COMPACT_SERIALIZATION_PARAM_SUFFIX;
+	final boolean compactSerialization;
+
+	/** See {@link #COMPRESSION_THRESHOLD_PARAM}. */
+	public static final String COMPRESSION_THRESHOLD_PARAM_SUFFIX = ".compressionThreshold";
+	/**
+	 * Name of the {@link ServletContext#getInitParameter(String) deployment init-param} containing
+	 * the size in bytes above which {@link #COMPACT_SERIALIZATION_PARAM compact format} payloads
+	 * are compressed. Non-positive value disables compression. By default
+	 * {@value #DEFAULT_COMPRESSION_THRESHOLD}.
+	 * The value is a concatenation of
+	 * {@link Class#getName() the fully qualified name of this class} and
+	 * {@value #COMPRESSION_THRESHOLD_PARAM_SUFFIX}.
+	 */
+	public static final String COMPRESSION_THRESHOLD_PARAM =
+			HttpSessionContext.class.getName() + COMPRESSION_THRESHOLD_PARAM_SUFFIX;
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+	final int compressionThreshold;
+
+	/** See {@link #LAZY_DESERIALIZATION_PARAM}. */
+	public static final String LAZY_DESERIALIZATION_PARAM_SUFFIX = ".lazyDeserialization";
+	/**
+	 * Name of the {@link ServletContext#getInitParameter(String) deployment init-param} enabling
+	 * lazy deserialization of scoped objects: each of them is kept in its serialized form after
+	 * the deserialization of its {@code Context}, until it is accessed for the first time.
+	 * Requires {@link #COMPACT_SERIALIZATION_PARAM compact serialization} to be enabled.
+	 * The value is a concatenation of
+	 * {@link Class#getName() the fully qualified name of this class} and
+	 * {@value #LAZY_DESERIALIZATION_PARAM_SUFFIX}.
+	 */
+	public static final String LAZY_DESERIALIZATION_PARAM =
+			HttpSessionContext.class.getName() + LAZY_DESERIALIZATION_PARAM_SUFFIX;
+	final boolean lazyDeserialization;
+
+	/** See {@link #MODIFICATION_TRACKING_PARAM}. */
+	public static final String MODIFICATION_TRACKING_PARAM_SUFFIX = ".modificationTracking";
+	/**
+	 * Name of the {@link ServletContext#getInitParameter(String) deployment init-param} enabling
+	 * tracking of modifications of scoped objects, so that serialized forms of unmodified
+	 * {@code Contexts} are reused and their sessions are not marked as modified.
+	 * Creating and removing scoped objects is tracked automatically, while objects mutated in place
+	 * must be reported using {@link #markModified(Key)}.
+	 * The value is a concatenation of
+	 * {@link Class#getName() the fully qualified name of this class} and
+	 * {@value #MODIFICATION_TRACKING_PARAM_SUFFIX}.
+	 */
+	public static final String MODIFICATION_TRACKING_PARAM =
+			HttpSessionContext.class.getName() + MODIFICATION_TRACKING_PARAM_SUFFIX;
+	final boolean modificationTracking;
+
+	/** See {@link #WRITE_BEHIND_WINDOW_PARAM}. */
+	public static final String WRITE_BEHIND_WINDOW_PARAM_SUFFIX = ".writeBehindWindowMillis";
+	/**
+	 * Name of the {@link ServletContext#getInitParameter(String) deployment init-param} enabling
+	 * write-behind preparation of serialized forms of modified {@code HttpSessionContexts}: at the
+	 * end of each {@link javax.servlet.http.HttpServletRequest} that modified scoped objects of
+	 * its session, these objects are serialized on the request's {@code Thread} and a background
+	 * task is scheduled to assemble the serialized form from them after the number of
+	 * milliseconds given by the value of this param. Further modifications within this window are
+	 * coalesced into the same task. When the container persists/replicates the session
+	 * afterwards and no modifications were made since, the prepared form is reused, so that the
+	 * encoding does not add to the latency of the container's passivation path.
+	 * Requires both {@link #COMPACT_SERIALIZATION_PARAM compact serialization} and
+	 * {@link #MODIFICATION_TRACKING_PARAM modification tracking} to be enabled. Requests that
+	 * {@link javax.servlet.ServletRequest#isAsyncStarted() started the asynchronous mode} are
+	 * handled at the end of their last dispatch.
+	 * Non-positive value or absence of this param disables write-behind.
+	 * The value is a concatenation of
+	 * {@link Class#getName() the fully qualified name of this class} and
+	 * {@value #WRITE_BEHIND_WINDOW_PARAM_SUFFIX}.
+	 */
+	public static final String WRITE_BEHIND_WINDOW_PARAM =
+			HttpSessionContext.class.getName() + WRITE_BEHIND_WINDOW_PARAM_SUFFIX;
+
+	/** Scoped objects in the compact format as of the last serialization. */
+	byte[] compactScopedObjects;
+
 
 
 	HttpSessionContext(HttpSession session) {
+		this(session, DeploymentSettings.of(session.getServletContext()));
+	}
+
+	HttpSessionContext(HttpSession session, DeploymentSettings settings) {
 		this.session = session;
-		this.customSerialization = Boolean.parseBoolean(
-				session.getServletContext().getInitParameter(CUSTOM_SERIALIZATION_PARAM));
+		this.customSerialization = settings.customSerialization;
+		this.compactSerialization = settings.compactSerialization;
+		this.compressionThreshold = settings.compressionThreshold;
+		this.lazyDeserialization = settings.lazyDeserialization;
+		this.modificationTracking = settings.modificationTracking;
+		if (compactSerialization) compactModeScopedObjects = new ConcurrentHashMap<>();
 	}
 
 
 
 	/**
-	 * Creates {@link HttpSessionContext}s for newly created {@link HttpSession}s.
-	 * Registered in {@link GuiceServletContextListener}.
+	 * Values of {@link ServletContext#getInitParameter(String) deployment init-params} of
+	 * {@code HttpSessionContext}, read once per app deployment and stored as its attribute.
+	 */
+	static class DeploymentSettings {
+
+		final boolean customSerialization;
+		final boolean compactSerialization;
+		final int compressionThreshold;
+		final boolean lazyDeserialization;
+		final boolean modificationTracking;
+		final long writeBehindWindowMillis;
+
+
+
+		DeploymentSettings(ServletContext appDeployment) {
+			customSerialization = Boolean.parseBoolean(
+					appDeployment.getInitParameter(CUSTOM_SERIALIZATION_PARAM));
+			compactSerialization = Boolean.parseBoolean(
+					appDeployment.getInitParameter(COMPACT_SERIALIZATION_PARAM));
+			final var compressionThresholdParam =
+					appDeployment.getInitParameter(COMPRESSION_THRESHOLD_PARAM);
+			compressionThreshold = compressionThresholdParam != null
+					? Integer.parseInt(compressionThresholdParam.strip())
+					: DEFAULT_COMPRESSION_THRESHOLD;
+			lazyDeserialization = compactSerialization && Boolean.parseBoolean(
+					appDeployment.getInitParameter(LAZY_DESERIALIZATION_PARAM));
+			modificationTracking = Boolean.parseBoolean(
+					appDeployment.getInitParameter(MODIFICATION_TRACKING_PARAM));
+			final var writeBehindWindowParam =
+					appDeployment.getInitParameter(WRITE_BEHIND_WINDOW_PARAM);
+			writeBehindWindowMillis =
+					compactSerialization && modificationTracking && writeBehindWindowParam != null
+					? Long.parseLong(writeBehindWindowParam.strip())
+					: 0L;
+		}
+
+
+
+		/**
+		 * Returns settings of {@code appDeployment}, reading its init-params on the first call.
+		 * Concurrent first calls may read init-params more than once, which is harmless.
+		 */
+		static DeploymentSettings of(ServletContext appDeployment) {
+			final var cachedSettings =
+					(DeploymentSettings) appDeployment.getAttribute(ATTRIBUTE_NAME);
+			if (cachedSettings != null) return cachedSettings;
+			final var settings = new DeploymentSettings(appDeployment);
+			appDeployment.setAttribute(ATTRIBUTE_NAME, settings);
+			return settings;
+		}
+
+		static final String ATTRIBUTE_NAME = DeploymentSettings.class.getName();
+	}
+
+
+
+	/**
+	 * Eagerly creates {@link HttpSessionContext}s for newly created {@link HttpSession}s.
+	 * Since {@code Contexts} are created lazily by {@link #of(HttpSession)} on the first use of
+	 * {@link ServletWebsocketModule#httpSessionScope}, this listener is not registered by default
+	 * anymore. It may still be registered manually to retain the eager behavior.
 	 */
 	public static class SessionContextCreator implements HttpSessionListener {
 
 		@Override
 		public void sessionCreated(HttpSessionEvent creation) {
-			final var session = creation.getSession();
-			session.setAttribute(
-				HttpSessionContext.class.getName(),
-				new HttpSessionContext(session)
-			);
+			of(creation.getSession());
 		}
 	}
 
 
 
-	/** Returns the {@code Context} of {@code session}. */
+	/**
+	 * Returns the {@code Context} of {@code session}. If {@code session} does not have a
+	 * {@code Context} yet, creates one atomically and stores it as its attribute, so that
+	 * {@link HttpSession}s that never use {@link ServletWebsocketModule#httpSessionScope} do not
+	 * carry it through persistence and replication.
+	 */
 	public static HttpSessionContext of(HttpSession session) {
-		return (HttpSessionContext) session.getAttribute(HttpSessionContext.class.getName());
+		final var ctx =
+				(HttpSessionContext) session.getAttribute(HttpSessionContext.class.getName());
+		if (ctx != null) return ctx;
+		synchronized (CREATION_LOCKS[session.getId().hashCode() & (CREATION_LOCKS.length - 1)]) {
+			final var existingCtx =
+					(HttpSessionContext) session.getAttribute(HttpSessionContext.class.getName());
+			if (existingCtx != null) return existingCtx;
+			final var createdCtx = new HttpSessionContext(session);
+			session.setAttribute(HttpSessionContext.class.getName(), createdCtx);
+			createdCtx.sessionMarkedModified = true;
+			return createdCtx;
+		}
+	}
+
+	/**
+	 * Striped locks for {@link #of(HttpSession)}: {@link HttpSession} objects may be per-request
+	 * facades in some containers, so they are not suitable for synchronization themselves.
+	 */
+	static final Object[] CREATION_LOCKS = new Object[64];
+
+	static {
+		for (int i = 0; i < CREATION_LOCKS.length; i++) CREATION_LOCKS[i] = new Object();
 	}
 
 
@@ -109,5 +312,365 @@ public class HttpSessionContext extends InjectionContext implements HttpSessionA
 
 
 
+	/**
+	 * Notifies this {@code Context} that the object scoped to it under {@code key} was mutated in
+	 * place, so that it is written again on the next serialization.
+	 * Must be called after each such mutation if {@link #MODIFICATION_TRACKING_PARAM} is enabled,
+	 * has no effect otherwise. Creating and removing scoped objects is tracked automatically.
+	 */
+	public void markModified(Key<?> key) {
+		onScopedObjectsModified(key);
+	}
+
+
+
+	/**
+	 * If {@link #MODIFICATION_TRACKING_PARAM modification tracking} is enabled, records
+	 * {@code key} for the next {@link #snapshotModifiedEntries() snapshot}, marks the
+	 * serialized form of scoped objects as outdated and, if the {@link #session} has not been
+	 * marked yet since the last serialization, re-sets this {@code Context} as its attribute:
+	 * servlet containers persist/replicate {@link HttpSession}s only after their attributes have
+	 * been set, so unchanged sessions are not written at all.
+	 */
+	void onScopedObjectsModified(Key<?> key) {
+		if ( !modificationTracking) return;
+		if (entrySnapshots != null) modifiedKeys.add(key);
+		serializedFormUpToDate = false;  // after recording key: see encodeEntrySnapshots()
+		if (sessionMarkedModified) return;
+		final var session = this.session;
+		if (session == null) return;
+		sessionMarkedModified = true;
+		try {
+			session.setAttribute(HttpSessionContext.class.getName(), this);
+		} catch (IllegalStateException invalidatedOrNotResident) {
+			sessionMarkedModified = false;
+		}
+	}
+
+	/** Whether scoped objects have not been modified since the last serialization. */
+	private transient volatile boolean serializedFormUpToDate;
+	/** Whether {@link #session} has been marked as modified since the last serialization. */
+	private transient volatile boolean sessionMarkedModified;
+
+
+
+	/**
+	 * Whether scoped objects were modified since the serialized form was last prepared, so that
+	 * {@link HttpSessionContextWriteBehind} should prepare it again.
+	 */
+	boolean isSerializedFormOutdated() {
+		return !serializedFormUpToDate;
+	}
+
+
+
+	/**
+	 * Scoped objects of this {@code Context} if it uses {@link CompactScopedObjectsFormat},
+	 * {@code null} if it uses the standard serialization of {@link InjectionContext}.
+	 * {@code Contexts} in the compact mode store their scoped objects themselves, so that all of
+	 * them are available for encoding. Values may be {@link SerializedValue}s of
+	 * {@link #LAZY_DESERIALIZATION_PARAM not yet deserialized} objects and {@link Null#NULL} in
+	 * place of {@code null} objects.
+	 * <p>
+	 * The mode of each instance is determined at its creation by
+	 * {@link #COMPACT_SERIALIZATION_PARAM} and retained after deserialization, regardless of the
+	 * deployment init-params of the node where it is deserialized.</p>
+	 */
+	transient ConcurrentMap<Key<?>, Object> compactModeScopedObjects;
+
+	/**
+	 * Stored in {@link #compactModeScopedObjects} in place of {@code null} scoped objects, as
+	 * {@link ConcurrentMap}s do not accept {@code null} values.
+	 */
+	enum Null { NULL }
+
+
+
+	/**
+	 * Returns the object scoped to this {@code Context} under {@code key}, producing it with
+	 * {@code producer} if absent. Called by {@link ServletWebsocketModule.HttpSessionScope}, so
+	 * that creations of scoped objects can be tracked and, in the compact mode, stored in
+	 * {@link #compactModeScopedObjects}.
+	 */
+	<T> T produce(Key<T> key, Provider<T> producer) {
+		final var scopedObjects = compactModeScopedObjects;
+		if (scopedObjects == null) {
+			if ( !modificationTracking) return getBoundScope().scope(key, producer).get();
+			final var produced = new boolean[1];
+			final var scopedObject = getBoundScope().scope(
+				key,
+				() -> {
+					produced[0] = true;
+					return producer.get();
+				}
+			).get();
+			if (produced[0]) onScopedObjectsModified(key);
+			return scopedObject;
+		}
+
+		final var existing = scopedObjects.get(key);
+		if (existing instanceof SerializedValue) {
+			final var deserialized = deserialize(scopedObjects, key, (SerializedValue) existing);
+			if (deserialized != null) return unmaskNull(deserialized);
+		} else if (existing != null) {
+			return unmaskNull(existing);
+		}
+		final var produced = new boolean[1];
+		final var scopedObject = scopedObjects.computeIfAbsent(key, (k) -> {
+			produced[0] = true;
+			final var newScopedObject = producer.get();
+			return newScopedObject != null ? newScopedObject : Null.NULL;
+		});
+		if (produced[0]) onScopedObjectsModified(key);
+		return unmaskNull(scopedObject);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T unmaskNull(Object scopedObject) {
+		return scopedObject == Null.NULL ? null : (T) scopedObject;
+	}
+
+
+
+	/**
+	 * Returns a {@link ContextScope} bound permanently to this {@code Context}, through which
+	 * {@link #produce(Key, Provider)} accesses objects stored by {@link InjectionContext} itself
+	 * in the standard mode.
+	 */
+	ContextScope<ContainerCallContext> getBoundScope() {
+		var boundScope = this.boundScope;
+		if (boundScope == null) {  // concurrent creation of 2 instances is harmless
+			boundScope = new ContextScope<>(BOUND_SCOPE_NAME, UNUSED_TRACKER) {
+				@Override
+				protected InjectionContext getCurrentContext() {
+					return HttpSessionContext.this;
+				}
+			};
+			this.boundScope = boundScope;
+		}
+		return boundScope;
+	}
+
+	private transient ContextScope<ContainerCallContext> boundScope;
+	static final String BOUND_SCOPE_NAME = "HttpSessionContext.boundScope";
+	static final ContextTracker<ContainerCallContext> UNUSED_TRACKER = new ContextTracker<>();
+
+
+
+	/**
+	 * Replaces {@code serializedValue} in {@code scopedObjects} with its deserialized scoped
+	 * object. Deserialization is not a modification, so the serialized form of this
+	 * {@code Context} remains up-to-date.
+	 * @return the scoped object or {@code null} if it failed to deserialize and was removed or
+	 *     was removed concurrently.
+	 */
+	static Object deserialize(
+		ConcurrentMap<Key<?>, Object> scopedObjects,
+		Key<?> key,
+		SerializedValue serializedValue
+	) {
+		final Object scopedObject;
+		try {
+			scopedObject = serializedValue.deserialize();
+		} catch (IOException | ClassNotFoundException e) {
+			log.log(WARNING, String.format(DESERIALIZATION_FAILED_WARNING, key), e);
+			scopedObjects.remove(key, serializedValue);
+			return null;
+		}
+		if (scopedObjects.replace(key, serializedValue, scopedObject)) return scopedObject;
+		final var concurrentlyDeserialized = scopedObjects.get(key);  // another thread won the race
+		return (concurrentlyDeserialized instanceof SerializedValue)
+				? deserialize(scopedObjects, key, (SerializedValue) concurrentlyDeserialized)
+				: concurrentlyDeserialized;
+	}
+
+	static final String DESERIALIZATION_FAILED_WARNING =
+			"session-scoped object for %s failed to deserialize and will be discarded";
+
+
+
+	@Override
+	public boolean removeScopedObject(Key<?> key) {
+		final var scopedObjects = compactModeScopedObjects;
+		final var removed = (scopedObjects != null)
+				? scopedObjects.remove(key) != null
+				: super.removeScopedObject(key);
+		if (removed) onScopedObjectsModified(key);
+		return removed;
+	}
+
+
+
+	/**
+	 * Encodes scoped objects using {@link CompactScopedObjectsFormat} if this {@code Context} is
+	 * in the compact mode, otherwise calls {@code super}.
+	 * If {@link #MODIFICATION_TRACKING_PARAM modification tracking} is enabled and scoped objects
+	 * have not been modified since the previous call, the previously prepared form is reused.
+	 */
+	@Override
+	protected void prepareForSerialization() {
+		sessionMarkedModified = false;
+		prepareSerializedForm();
+	}
+
+	/**
+	 * Prepares the serialized form of scoped objects unless it is up-to-date. Synchronized as it
+	 * may be called concurrently by the container's {@code Threads}.
+	 */
+	synchronized void prepareSerializedForm() {
+		if (serializedFormUpToDate) return;
+		serializedFormUpToDate = modificationTracking;
+		super.prepareForSerialization();  // in the compact mode this only handles an empty Map
+		final var scopedObjects = compactModeScopedObjects;
+		if (scopedObjects == null) return;
+		try {
+			compactScopedObjects =
+					CompactScopedObjectsFormat.encode(scopedObjects, compressionThreshold);
+		} catch (IOException e) {
+			serializedFormUpToDate = false;
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+
+	/**
+	 * Immutable snapshots of scoped objects of this {@code Context} in the compact mode, taken by
+	 * {@link #snapshotModifiedEntries()} for {@link HttpSessionContextWriteBehind}: values are
+	 * {@link SerializedValue}s or instances of types supported natively by
+	 * {@link CompactScopedObjectsFormat}. {@code null} until the first snapshot. Replaced with a
+	 * new {@code Map} by each snapshot, so that {@link #encodeEntrySnapshots()} can detect newer
+	 * ones.
+	 */
+	private transient volatile Map<Key<?>, Object> entrySnapshots;
+	/**
+	 * Keys of scoped objects modified since the last {@link #snapshotModifiedEntries() snapshot}.
+	 * Non-null if {@link #entrySnapshots} is.
+	 */
+	private transient Set<Key<?>> modifiedKeys;
+
+
+
+	/**
+	 * Updates {@link #entrySnapshots} with immutable serialized forms of scoped objects modified
+	 * since the previous call or of all of them on the first call. Called by
+	 * {@link HttpSessionContextWriteBehind} at the end of each request on its {@code Thread}, so
+	 * that scoped objects are serialized in the state the request left them in, rather than
+	 * concurrently with their use by subsequent requests.
+	 * @return {@code true} if {@link #entrySnapshots} were updated, {@code false} if nothing was
+	 *     modified or this {@code Context} is not in the compact mode or does not track
+	 *     modifications.
+	 */
+	synchronized boolean snapshotModifiedEntries() {
+		final var scopedObjects = compactModeScopedObjects;
+		if (scopedObjects == null || !modificationTracking) return false;
+		final var previousSnapshots = entrySnapshots;
+		final Map<Key<?>, Object> snapshots;
+		final Iterator<Key<?>> keysToSnapshot;
+		if (previousSnapshots == null) {
+			// publish modifiedKeys before iterating, so that concurrent modifications are recorded
+			modifiedKeys = ConcurrentHashMap.newKeySet();
+			entrySnapshots = Map.of();
+			snapshots = new HashMap<>();
+			keysToSnapshot = scopedObjects.keySet().iterator();
+		} else {
+			if (modifiedKeys.isEmpty()) return false;
+			snapshots = new HashMap<>(previousSnapshots);
+			keysToSnapshot = modifiedKeys.iterator();
+		}
+		while (keysToSnapshot.hasNext()) {
+			final var key = keysToSnapshot.next();
+			if (previousSnapshots != null) keysToSnapshot.remove();  // before reading the value
+			final var scopedObject = scopedObjects.get(key);
+			final var snapshot = (scopedObject != null)
+					? CompactScopedObjectsFormat.toImmutableValue(scopedObject)
+					: null;
+			if (snapshot != null) {
+				snapshots.put(key, snapshot);
+			} else {
+				snapshots.remove(key);
+			}
+		}
+		entrySnapshots = snapshots;
+		return true;
+	}
+
+
+
+	/**
+	 * Encodes the latest {@link #entrySnapshots} using {@link CompactScopedObjectsFormat} and
+	 * stores the result as the up-to-date serialized form, unless a newer snapshot has been taken
+	 * or the container has prepared the serialized form meanwhile. Called by
+	 * {@link HttpSessionContextWriteBehind} on its background {@code Thread}: snapshots are
+	 * immutable, so no scoped object is accessed.
+	 */
+	void encodeEntrySnapshots() throws IOException {
+		final var snapshots = entrySnapshots;
+		final var encoded = CompactScopedObjectsFormat.encode(snapshots, compressionThreshold);
+		synchronized (this) {
+			if (snapshots != entrySnapshots || serializedFormUpToDate) return;
+			super.prepareForSerialization();  // handles the empty Map of super
+			compactScopedObjects = encoded;
+			serializedFormUpToDate = true;
+			// onScopedObjectsModified(key) records key before marking the form outdated, so any
+			// modification not marked as such at this point is recorded here
+			if ( !modifiedKeys.isEmpty()) serializedFormUpToDate = false;
+		}
+	}
+
+
+
+	/**
+	 * Calls {@code super} and then decodes scoped objects encoded by
+	 * {@link #prepareForSerialization()} if they were encoded using
+	 * {@link CompactScopedObjectsFormat}.
+	 */
+	@Override
+	protected void restoreAfterDeserialization() throws ClassNotFoundException {
+		super.restoreAfterDeserialization();
+		if (compactScopedObjects == null || compactModeScopedObjects != null) return;
+		try {
+			restoreCompactScopedObjects();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Restores {@link #compactModeScopedObjects} from {@link #compactScopedObjects}, which are
+	 * retained as the up-to-date serialized form afterwards if
+	 * {@link #MODIFICATION_TRACKING_PARAM modification tracking} is enabled, unless
+	 * {@link #LAZY_DESERIALIZATION_PARAM lazy deserialization} is also enabled: in such case scoped
+	 * objects retain their serialized forms themselves until accessed and re-encoding them is
+	 * cheap.
+	 */
+	void restoreCompactScopedObjects() throws IOException, ClassNotFoundException {
+		compactModeScopedObjects =
+				CompactScopedObjectsFormat.decode(compactScopedObjects, lazyDeserialization);
+		if (modificationTracking && !lazyDeserialization) {
+			serializedFormUpToDate = true;
+		} else {
+			compactScopedObjects = null;
+		}
+	}
+
+
+
+	/**
+	 * Restores scoped objects from their compact form: {@code super} calls
+	 * {@link #restoreAfterDeserialization()} before fields of this class are read.
+	 */
+	private void readObject(ObjectInputStream serializedObjects)
+			throws IOException, ClassNotFoundException {
+		serializedObjects.defaultReadObject();
+		if (compactScopedObjects != null) restoreCompactScopedObjects();
+	}
+
+
+
+	static final Logger log = Logger.getLogger(HttpSessionContext.class.getName());
+
+
+
 	private static final long serialVersionUID = -3482947070671038422L;
 }
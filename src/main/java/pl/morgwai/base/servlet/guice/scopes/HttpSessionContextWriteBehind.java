@@ -0,0 +1,130 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.logging.Level.WARNING;
+
+
+
+/**
+ * Prepares serialized forms of modified {@link HttpSessionContext}s in the
+ * {@link CompactScopedObjectsFormat compact mode}, so that the container's passivation path only
+ * needs to write them.
+ * At the end of each request, modified scoped objects of its session are
+ * {@link HttpSessionContext#snapshotModifiedEntries() serialized synchronously} on the request's
+ * {@code Thread} into immutable snapshots. Only assembling and compressing these snapshots into
+ * the final serialized form is deferred to a background {@code Thread}, so that scoped objects are
+ * never serialized concurrently with their use by subsequent requests.
+ * Created by {@link GuiceServletContextListener} if
+ * {@link HttpSessionContext#WRITE_BEHIND_WINDOW_PARAM} is set and stored as a
+ * {@link javax.servlet.ServletContext#setAttribute(String, Object) deployment attribute} for
+ * {@link RequestContextFilter}.
+ * @see HttpSessionContext#WRITE_BEHIND_WINDOW_PARAM
+ */
+class HttpSessionContextWriteBehind {
+
+
+
+	final long windowMillis;
+	final ScheduledThreadPoolExecutor executor;
+
+
+
+	HttpSessionContextWriteBehind(long windowMillis, String threadName) {
+		this.windowMillis = windowMillis;
+		executor = new ScheduledThreadPoolExecutor(1, (task) -> {
+			final var thread = new Thread(task, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+
+
+	/**
+	 * Snapshots modified scoped objects of the {@link HttpSessionContext} of {@code request}'s
+	 * session if it has one and schedules preparation of its serialized form, unless one is
+	 * already pending for the same {@code Context}: the pending task will use the latest
+	 * snapshots. Does nothing if {@code request} has been put into the asynchronous mode, as it
+	 * may still modify scoped objects then.
+	 * Called by {@link RequestContextFilter} at the end of each dispatch of a request.
+	 */
+	void onRequestEnd(HttpServletRequest request) {
+		if (request.isAsyncStarted()) return;
+		final HttpSession session;
+		final HttpSessionContext ctx;
+		try {
+			session = request.getSession(false);
+			if (session == null) return;
+			ctx = (HttpSessionContext) session.getAttribute(HttpSessionContext.class.getName());
+		} catch (IllegalStateException invalidated) {
+			return;
+		}
+		if (ctx == null || !ctx.snapshotModifiedEntries() || !pendingTasks.add(ctx)) return;
+		try {
+			executor.schedule(() -> runPendingTask(ctx), windowMillis, MILLISECONDS);
+		} catch (RejectedExecutionException shutdown) {
+			pendingTasks.remove(ctx);
+		}
+	}
+
+	/**
+	 * {@code Contexts} with tasks scheduled but not started yet. Kept here rather than obtained
+	 * from {@link #executor}, so that modifications within a window can be coalesced.
+	 */
+	final Set<HttpSessionContext> pendingTasks = ConcurrentHashMap.newKeySet();
+
+
+
+	/**
+	 * Prepares the serialized form of {@code ctx} from its snapshots unless it has been discarded
+	 * by {@link #shutdown()}. {@code ctx} is removed from {@link #pendingTasks} before the
+	 * preparation, so that modifications performed meanwhile schedule a new task.
+	 */
+	void runPendingTask(HttpSessionContext ctx) {
+		if ( !pendingTasks.remove(ctx)) return;
+		try {
+			ctx.encodeEntrySnapshots();
+		} catch (IOException | RuntimeException e) {
+			// the container's passivation path will prepare the serialized form synchronously
+			log.log(WARNING, WRITE_BEHIND_FAILED_WARNING, e);
+		}
+	}
+
+	static final String WRITE_BEHIND_FAILED_WARNING =
+			"write-behind preparation of a serialized HttpSessionContext failed";
+
+
+
+	/**
+	 * Discards pending tasks and waits for the one being run, if any, to complete. Serialized
+	 * forms of {@code Contexts} with discarded tasks are prepared synchronously by the container's
+	 * passivation path as usually.
+	 * Called by {@link GuiceServletContextListener#contextDestroyed(ServletContextEvent)}.
+	 */
+	void shutdown() throws InterruptedException {
+		executor.shutdownNow();
+		pendingTasks.clear();
+		if ( !executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, SECONDS)) {
+			log.warning(SHUTDOWN_TIMEOUT_WARNING);
+		}
+	}
+
+	static final long SHUTDOWN_TIMEOUT_SECONDS = 5L;
+	static final String SHUTDOWN_TIMEOUT_WARNING =
+			"write-behind of HttpSessionContexts did not terminate in time";
+
+
+
+	static final Logger log = Logger.getLogger(HttpSessionContextWriteBehind.class.getName());
+}
@@ -0,0 +1,146 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+
+
+/**
+ * Generates at build time class files of context-aware proxies for {@code Endpoint} classes, so
+ * that {@link GuiceEndpointConfigurator#getProxyClass(Class)} may load them instead of creating
+ * dynamic proxy classes at runtime.
+ * Generated class files should be placed together with the app's own classes (usually
+ * {@code target/classes}) to be packaged into the app's artifact. Note that
+ * {@link GuiceEndpointConfigurator} looks for prebuilt classes using its own {@code ClassLoader},
+ * so they will be found only if {@code servlet-scopes} lib is loaded by the same
+ * {@code ClassLoader} as the app (for example both are in the same war file). Otherwise dynamic
+ * proxy classes will be created as usual.
+ * <p>
+ * The easiest way to run this class is using {@code exec-maven-plugin} during
+ * {@code process-classes} phase:</p>
+ * <pre>{@code
+ * <plugin>
+ *   <groupId>org.codehaus.mojo</groupId>
+ *   <artifactId>exec-maven-plugin</artifactId>
+ *   <executions>
+ *     <execution>
+ *       <id>generate-endpoint-proxies</id>
+ *       <phase>process-classes</phase>
+ *       <goals><goal>java</goal></goals>
+ *       <configuration>
+ *         <mainClass>pl.morgwai.base.servlet.guice.scopes.ProxyClassGenerator</mainClass>
+ *         <arguments>
+ *           <argument>${project.build.outputDirectory}</argument>
+ *           <argument>com.example.MyProgrammaticEndpoint</argument>
+ *           <argument>com.example.MyClientEndpoint</argument>
+ *         </arguments>
+ *       </configuration>
+ *     </execution>
+ *   </executions>
+ * </plugin>}</pre>
+ * <p>
+ * Options that change the generated code (given as args preceding the output directory) must
+ * match the respective settings of {@link GuiceEndpointConfigurator}s used by the app at runtime,
+ * otherwise prebuilt classes will not be used:</p>
+ * <ul>
+ *   <li>{@value #DIRECT_DISPATCH_OPTION} corresponds to
+ *       {@link GuiceEndpointConfigurator#isDirectDispatchEnabled()}</li>
+ *   <li>{@value #LIFECYCLE_ONLY_OPTION} corresponds to
+ *       {@link GuiceEndpointConfigurator#isLifecycleOnlyInterceptionEnabled()}</li>
+ *   <li>{@value #REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_OPTION} corresponds to
+ *       {@link GuiceEndpointConfigurator#REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_PARAM}</li>
+ * </ul>
+ * <p>
+ * <b>NOTE:</b> proxy classes for @{@link javax.websocket.server.ServerEndpoint} annotated
+ * {@code Endpoints} retain the annotation, so apps that rely on container's annotation scanning
+ * must exclude them from it (for example using
+ * {@link javax.websocket.server.ServerApplicationConfig}) or add their {@code Endpoints}
+ * programmatically.</p>
+ */
+public class ProxyClassGenerator {
+
+
+
+	public static final String DIRECT_DISPATCH_OPTION = "-directDispatch";
+	public static final String LIFECYCLE_ONLY_OPTION = "-lifecycleOnly";
+	public static final String REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_OPTION =
+			"-requireTopLevelMethodAnnotations";
+
+
+
+	/**
+	 * Generates proxy classes for {@code Endpoint} classes given by args.
+	 * @param args {@code [options...] outputDirectory endpointClassName...}
+	 */
+	public static void main(String[] args) throws ClassNotFoundException, IOException {
+		final var options = new HashSet<String>(3);
+		int i = 0;
+		while (i < args.length && args[i].startsWith("-")) options.add(args[i++]);
+		if (args.length - i < 2) throw new IllegalArgumentException(USAGE_MESSAGE);
+		final var directDispatch = options.remove(DIRECT_DISPATCH_OPTION);
+		final var lifecycleOnly = options.remove(LIFECYCLE_ONLY_OPTION);
+		final var requireTopLevelMethodAnnotations =
+				options.remove(REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_OPTION);
+		if ( !options.isEmpty()) {
+			throw new IllegalArgumentException(UNKNOWN_OPTION_MESSAGE + options);
+		}
+
+		final var outputDir = new File(args[i++]);
+		final var classLoader = Thread.currentThread().getContextClassLoader();
+		final var endpointClasses = new ArrayList<Class<?>>(args.length - i);
+		while (i < args.length) endpointClasses.add(Class.forName(args[i++], false, classLoader));
+		final var configurator =
+				new GuiceEndpointConfigurator(null, null, requireTopLevelMethodAnnotations) {
+
+			@Override
+			protected boolean isDirectDispatchEnabled() {
+				return directDispatch;
+			}
+
+			@Override
+			protected boolean isLifecycleOnlyInterceptionEnabled() {
+				return lifecycleOnly;
+			}
+		};
+		generateProxyClasses(configurator, outputDir, endpointClasses);
+	}
+
+	static final String USAGE_MESSAGE = "usage: ProxyClassGenerator [" + DIRECT_DISPATCH_OPTION
+			+ "] [" + LIFECYCLE_ONLY_OPTION + "] [" + REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_OPTION
+			+ "] outputDirectory endpointClassName...";
+	static final String UNKNOWN_OPTION_MESSAGE = "unknown options: ";
+
+
+
+	/**
+	 * Generates class files of proxies for {@code endpointClasses} as would be created by
+	 * {@code configurator} and saves them in {@code outputDir}.
+	 * @throws IllegalArgumentException if any of {@code endpointClasses} does not pass
+	 *     {@link GuiceEndpointConfigurator#checkIfRequiredEndpointMethodsPresent(Class)
+	 *     configurator's verification}.
+	 */
+	public static void generateProxyClasses(
+		GuiceEndpointConfigurator configurator,
+		File outputDir,
+		Collection<Class<?>> endpointClasses
+	) throws IOException {
+		for (var endpointClass: endpointClasses) {
+			try (
+				final var proxyClass = configurator.makeProxyClass(
+						endpointClass, configurator.getPrebuiltProxyClassName(endpointClass));
+			) {
+				if (proxyClass.hasAliveLoadedTypeInitializers()) {
+					// should never happen: would mean that some generated code needs live init
+					throw new IllegalStateException(
+							LIVE_INITIALIZER_MESSAGE + endpointClass.getName());
+				}
+				proxyClass.saveIn(outputDir);
+			}
+		}
+	}
+
+	static final String LIVE_INITIALIZER_MESSAGE =
+			"proxy class requires runtime initialization and cannot be prebuilt for ";
+}
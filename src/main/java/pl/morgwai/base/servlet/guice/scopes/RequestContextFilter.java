@@ -33,12 +33,62 @@ import pl.morgwai.base.guice.scopes.ContextTracker;
  * {@link ServletContext#getRequestDispatcher(String) dispatched}" more than once to some
  * given target {@link ServletContext deployment}, it will have a separate
  * {@link ServletRequestContext} each time in that target deployment.</p>
+ * <p>
+ * Requests that do not need {@link ServletRequestContext}s (static resources, health checks,
+ * metrics scrapes etc) may bypass this {@code Filter} using {@link #INCLUDED_PATHS_PARAM} and
+ * {@link #EXCLUDED_PATHS_PARAM}.</p>
  */
 public class RequestContextFilter implements Filter {
 
 
 
+	/** See {@link #INCLUDED_PATHS_PARAM}. */
+	public static final String INCLUDED_PATHS_PARAM_SUFFIX = ".includedPaths";
+	/**
+	 * Name of the {@link ServletContext#getInitParameter(String) deployment init-param}
+	 * containing a comma separated list of URL patterns
+	 * ({@code /prefix/*}, {@code *.extension} or {@code /exact/path}) of requests that should be
+	 * processed by this {@code Filter}. If absent, all requests not matching
+	 * {@link #EXCLUDED_PATHS_PARAM} are processed.
+	 * Patterns are matched against the path of the given dispatch relative to the deployment's
+	 * context path (for {@link DispatcherType#INCLUDE included} requests the path of the included
+	 * resource).
+	 * The value is a concatenation of
+	 * {@link Class#getName() the fully qualified name of this class} and
+	 * {@value #INCLUDED_PATHS_PARAM_SUFFIX}.
+	 */
+	public static final String INCLUDED_PATHS_PARAM =
+			RequestContextFilter.class.getName() + INCLUDED_PATHS_PARAM_SUFFIX;
+	RequestPathMatcher includedPaths;
+
+	/** See {@link #EXCLUDED_PATHS_PARAM}. */
+	public static final String EXCLUDED_PATHS_PARAM_SUFFIX = ".excludedPaths";
+	/**
+	 * Name of the {@link ServletContext#getInitParameter(String) deployment init-param}
+	 * containing a comma separated list of URL patterns of requests that should bypass this
+	 * {@code Filter}: their processing will not run within a {@link ServletRequestContext}.
+	 * Takes precedence over {@link #INCLUDED_PATHS_PARAM}, see there for the pattern format.
+	 * <p>
+	 * If an {@link DispatcherType#ASYNC async} or {@link DispatcherType#ERROR error} dispatch of
+	 * a bypassed request targets a path that is not bypassed, a new {@link ServletRequestContext}
+	 * is created for it. Similarly for {@link RequestDispatcher#forward(ServletRequest,
+	 * ServletResponse) forwards} and {@link RequestDispatcher#include(ServletRequest,
+	 * ServletResponse) includes}.</p>
+	 * <p>
+	 * The value is a concatenation of
+	 * {@link Class#getName() the fully qualified name of this class} and
+	 * {@value #EXCLUDED_PATHS_PARAM_SUFFIX}.</p>
+	 */
+	public static final String EXCLUDED_PATHS_PARAM =
+			RequestContextFilter.class.getName() + EXCLUDED_PATHS_PARAM_SUFFIX;
+	RequestPathMatcher excludedPaths;
+
+
+
 	ContextTracker<ContainerCallContext> ctxTracker;
+	ContainerCallMetrics metrics = ContainerCallMetrics.NOOP;
+	/** Non-null if {@link HttpSessionContext#WRITE_BEHIND_WINDOW_PARAM write-behind} is enabled. */
+	HttpSessionContextWriteBehind writeBehind;
 
 
 
@@ -47,11 +97,23 @@ public class RequestContextFilter implements Filter {
 		this.ctxTracker = ctxTracker;
 	}
 
+	/** Injected if {@link ContainerCallMetrics} is bound. */
+	@Inject(optional = true)
+	public void setMetrics(ContainerCallMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public void init(FilterConfig config) {
+		final var appDeployment = config.getServletContext();
+		writeBehind = (HttpSessionContextWriteBehind)
+				appDeployment.getAttribute(HttpSessionContextWriteBehind.class.getName());
+		includedPaths = RequestPathMatcher.compile(
+				appDeployment.getInitParameter(INCLUDED_PATHS_PARAM));
+		excludedPaths = RequestPathMatcher.compile(
+				appDeployment.getInitParameter(EXCLUDED_PATHS_PARAM));
 		if (ctxTracker != null) return;
-		((Injector) config.getServletContext().getAttribute(Injector.class.getName()))
-				.injectMembers(this);
+		((Injector) appDeployment.getAttribute(Injector.class.getName())).injectMembers(this);
 	}
 
 
@@ -73,46 +135,164 @@ public class RequestContextFilter implements Filter {
 					break;
 				}
 
-				// dispatch from another deployment: continue to create a Ctx for this deployment
+				// dispatch from another deployment or from a bypassed request of this deployment
+				if (isBypassed(request)) {
+					chain.doFilter(request, response);
+					return;
+				}
+				// create a Ctx for this deployment and add it to the Ctxs stored by the others
+				ctxToActivate = newCtx(request);
+				addStoredCtx(request, ctxToActivate);
+				break;
 			case REQUEST:  // create a new Ctx, store it in the attribute, activate it
-				ctxToActivate = new ServletRequestContext(request, ctxTracker);
-				getStoredCtxsMap(request).put(ctxTracker, ctxToActivate);
+				if (isBypassed(request)) {
+					chain.doFilter(request, response);
+					return;
+				}
+				ctxToActivate = newCtx(request);
+				// no other deployment could have processed request yet: store the Ctx directly
+				request.setAttribute(ServletRequestContext.class.getName(), ctxToActivate);
 				break;
 			default:  // ASYNC/ERROR: reactivate the Ctx stored in the attribute
-				ctxToActivate = getStoredCtxsMap(request).get(ctxTracker);
-				if (ctxToActivate == null) {  // misconfigured app
+				final var storedCtx = getStoredCtx(request, ctxTracker);
+				if (storedCtx != null) {
+					ctxToActivate = storedCtx;
+					break;
+				}
+				if (includedPaths == null && excludedPaths == null) {  // misconfigured app
 					throw new ServletException(formatCtxNotFoundMessage(request));
 				}
+
+				// the initial dispatch of request was bypassed
+				if (isBypassed(request)) {
+					chain.doFilter(request, response);
+					return;
+				}
+				ctxToActivate = newCtx(request);
+				addStoredCtx(request, ctxToActivate);
 		}
-		if (ctxToActivate == null) {  // already running within the Ctx of this request
-			chain.doFilter(request, response);
-		} else {  // (re)-activate the Ctx of this request
-			ctxToActivate.executeWithinSelf((ThrowingTask<IOException, ServletException>)
-					() -> chain.doFilter(request, response));
+		final var startNanos = (metrics != ContainerCallMetrics.NOOP) ? System.nanoTime() : 0L;
+		try {
+			if (ctxToActivate == null) {  // already running within the Ctx of this request
+				chain.doFilter(request, response);
+			} else {  // (re)-activate the Ctx of this request
+				ctxToActivate.executeWithinSelf((ThrowingTask<IOException, ServletException>)
+						() -> chain.doFilter(request, response));
+			}
+		} finally {
+			if (writeBehind != null && ctxToActivate != null) writeBehind.onRequestEnd(request);
+			if (metrics != ContainerCallMetrics.NOOP) {
+				metrics.onServletDispatch(
+						request.getDispatcherType(), System.nanoTime() - startNanos);
+			}
+		}
+	}
+
+	/**
+	 * Whether {@code request}'s current dispatch should bypass this {@code Filter} according to
+	 * {@link #INCLUDED_PATHS_PARAM} and {@link #EXCLUDED_PATHS_PARAM}.
+	 */
+	boolean isBypassed(HttpServletRequest request) {
+		if (includedPaths == null && excludedPaths == null) return false;
+		final var path = getDispatchPath(request);
+		return (includedPaths != null && !includedPaths.matches(path))
+				|| (excludedPaths != null && excludedPaths.matches(path));
+	}
+
+
+
+	/**
+	 * Returns the path of the resource targeted by {@code request}'s current dispatch relative to
+	 * the deployment's context path.
+	 */
+	static String getDispatchPath(HttpServletRequest request) {
+		final String servletPath;
+		final String pathInfo;
+		if (request.getDispatcherType() == DispatcherType.INCLUDE) {
+			servletPath = (String) request.getAttribute(RequestDispatcher.INCLUDE_SERVLET_PATH);
+			pathInfo = (String) request.getAttribute(RequestDispatcher.INCLUDE_PATH_INFO);
+		} else {
+			servletPath = request.getServletPath();
+			pathInfo = request.getPathInfo();
 		}
+		if (pathInfo == null) return servletPath != null ? servletPath : "";
+		return servletPath != null ? servletPath + pathInfo : pathInfo;
 	}
 
+
+
+	ServletRequestContext newCtx(HttpServletRequest request) {
+		final var ctx = new ServletRequestContext(request, ctxTracker);
+		metrics.onContextCreated(ServletRequestContext.class);
+		return ctx;
+	}
+
+
+
 	/**
-	 * Obtains from {@code request}'s {@link HttpServletRequest#getAttribute(String) attribute} a
-	 * {@code Map} of {@link ServletRequestContext}s stored by each deployment that processed
-	 * {@code request}.
-	 * If the attribute is empty, initializes it with a new {@code Map}. {@code Context}s are
-	 * indexed using their respective {@link #ctxTracker}s.
+	 * Obtains from {@code request}'s {@link HttpServletRequest#getAttribute(String) attribute} the
+	 * {@link ServletRequestContext} stored by the deployment of {@code ctxTracker}.
+	 * The attribute contains either a single {@link ServletRequestContext} if {@code request} was
+	 * processed by only 1 deployment (the usual case), or a {@code Map} of
+	 * {@link ServletRequestContext}s stored by each deployment that processed {@code request},
+	 * indexed by their respective {@link #ctxTracker}s.
+	 * @return the stored {@code Context} or {@code null} if there's none for {@code ctxTracker}.
 	 */
-	static Map<
-		ContextTracker<ContainerCallContext>,
-		ServletRequestContext
-	> getStoredCtxsMap(HttpServletRequest request) {
+	static ServletRequestContext getStoredCtx(
+		HttpServletRequest request,
+		ContextTracker<ContainerCallContext> ctxTracker
+	) {
+		final var storedCtxs = request.getAttribute(ServletRequestContext.class.getName());
+		if (storedCtxs instanceof ServletRequestContext) {
+			final var singleCtx = (ServletRequestContext) storedCtxs;
+			return singleCtx.getTracker() == ctxTracker ? singleCtx : null;
+		}
+		if (storedCtxs == null) return null;
 		@SuppressWarnings("unchecked")
-		var storedCtxs = (Map<ContextTracker<ContainerCallContext>, ServletRequestContext>)
-				request.getAttribute(ServletRequestContext.class.getName());
-		if (storedCtxs == null) {
-			storedCtxs = new HashMap<>(3);
-			request.setAttribute(ServletRequestContext.class.getName(), storedCtxs);
+		final var ctxMap = (Map<ContextTracker<ContainerCallContext>, ServletRequestContext>)
+				storedCtxs;
+		return ctxMap.get(ctxTracker);
+	}
+
+
+
+	/**
+	 * Adds {@code ctx} to the {@link ServletRequestContext}s stored in {@code request}'s
+	 * {@link HttpServletRequest#getAttribute(String) attribute}
+	 * (see {@link #getStoredCtx(HttpServletRequest, ContextTracker)}). If the attribute contains
+	 * a single {@code Context} of another deployment, replaces it with a {@code Map} containing
+	 * both.
+	 */
+	static void addStoredCtx(HttpServletRequest request, ServletRequestContext ctx) {
+		final var storedCtxs = request.getAttribute(ServletRequestContext.class.getName());
+		if (
+			storedCtxs == null  // request not processed by any RequestContextFilter before
+			|| (
+				storedCtxs instanceof ServletRequestContext
+				&& ((ServletRequestContext) storedCtxs).getTracker() == ctx.getTracker()
+			)
+		) {
+			request.setAttribute(ServletRequestContext.class.getName(), ctx);
+			return;
+		}
+
+		final Map<ContextTracker<ContainerCallContext>, ServletRequestContext> ctxMap;
+		if (storedCtxs instanceof ServletRequestContext) {  // switch to a multi-deployment Map
+			final var singleCtx = (ServletRequestContext) storedCtxs;
+			ctxMap = new HashMap<>(3);
+			ctxMap.put(singleCtx.getTracker(), singleCtx);
+			request.setAttribute(ServletRequestContext.class.getName(), ctxMap);
+		} else {
+			@SuppressWarnings("unchecked")
+			final var existingMap =
+					(Map<ContextTracker<ContainerCallContext>, ServletRequestContext>) storedCtxs;
+			ctxMap = existingMap;
 		}
-		return storedCtxs;
+		ctxMap.put(ctx.getTracker(), ctx);
 	}
 
+
+
 	static String formatCtxNotFoundMessage(HttpServletRequest request) {
 		final var dispatcherType = request.getDispatcherType();
 		return String.format(
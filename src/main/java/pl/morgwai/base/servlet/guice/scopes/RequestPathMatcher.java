@@ -0,0 +1,137 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.*;
+
+
+
+/**
+ * Matches request paths against a set of servlet URL patterns compiled once at deployment.
+ * Supported patterns are the same as in servlet mappings: path prefixes ({@code /static/*}),
+ * extensions ({@code *.css}) and exact paths ({@code /health}). Prefix patterns are compiled into
+ * a character trie, so that matching a path does not depend on the number of patterns and does
+ * not allocate.
+ * @see RequestContextFilter#EXCLUDED_PATHS_PARAM
+ */
+class RequestPathMatcher {
+
+
+
+	final Set<String> exactPaths = new HashSet<>();
+	final List<String> extensionSuffixes = new ArrayList<>(3);
+	final TrieNode prefixesRoot = new TrieNode();
+
+
+
+	/**
+	 * Compiles a comma separated list of URL patterns.
+	 * @return matcher for {@code patternList} or {@code null} if it does not contain any pattern.
+	 * @throws IllegalArgumentException if any of the patterns is not a valid servlet URL pattern.
+	 */
+	static RequestPathMatcher compile(String patternList) {
+		if (patternList == null) return null;
+		final var matcher = new RequestPathMatcher();
+		boolean empty = true;
+		for (var pattern: patternList.split(",")) {
+			pattern = pattern.strip();
+			if (pattern.isEmpty()) continue;
+			matcher.addPattern(pattern);
+			empty = false;
+		}
+		return empty ? null : matcher;
+	}
+
+
+
+	void addPattern(String pattern) {
+		if (pattern.startsWith("*.")) {
+			if (pattern.indexOf('/') != -1 || pattern.indexOf('.', 2) != -1) {
+				throw new IllegalArgumentException(String.format(INVALID_PATTERN_MESSAGE, pattern));
+			}
+			extensionSuffixes.add(pattern.substring(1));
+		} else if ( !pattern.startsWith("/") || pattern.indexOf('*') != pattern.lastIndexOf('*')) {
+			throw new IllegalArgumentException(String.format(INVALID_PATTERN_MESSAGE, pattern));
+		} else if (pattern.endsWith("/*")) {
+			prefixesRoot.insert(pattern.substring(0, pattern.length() - 2));
+		} else if (pattern.indexOf('*') != -1) {
+			throw new IllegalArgumentException(String.format(INVALID_PATTERN_MESSAGE, pattern));
+		} else {
+			exactPaths.add(pattern);
+		}
+	}
+
+	static final String INVALID_PATTERN_MESSAGE = "\"%s\" is not a valid URL pattern";
+
+
+
+	/**
+	 * Whether {@code path} (relative to the deployment's context path) matches any of the
+	 * compiled patterns.
+	 */
+	boolean matches(String path) {
+		if (prefixesRoot.matchesPrefixOf(path)) return true;
+		for (var suffix: extensionSuffixes) {
+			if (path.endsWith(suffix) && path.lastIndexOf('/') < path.length() - suffix.length()) {
+				return true;
+			}
+		}
+		return exactPaths.contains(path);
+	}
+
+
+
+	/** Node of a character trie of prefix patterns. */
+	static class TrieNode {
+
+		char[] keys = new char[0];  // sorted
+		TrieNode[] children = new TrieNode[0];
+		/** Whether a prefix pattern ends at this node. */
+		boolean terminal;
+
+
+
+		void insert(String prefix) {
+			var node = this;
+			for (int i = 0; i < prefix.length(); i++) node = node.getOrAddChild(prefix.charAt(i));
+			node.terminal = true;
+		}
+
+
+
+		TrieNode getOrAddChild(char key) {
+			final var index = Arrays.binarySearch(keys, key);
+			if (index >= 0) return children[index];
+			final var insertionPoint = -index - 1;
+			final var child = new TrieNode();
+			final var newKeys = new char[keys.length + 1];
+			final var newChildren = new TrieNode[keys.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insertionPoint);
+			System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+			newKeys[insertionPoint] = key;
+			newChildren[insertionPoint] = child;
+			final var tailLength = keys.length - insertionPoint;
+			System.arraycopy(keys, insertionPoint, newKeys, insertionPoint + 1, tailLength);
+			System.arraycopy(children, insertionPoint, newChildren, insertionPoint + 1, tailLength);
+			keys = newKeys;
+			children = newChildren;
+			return child;
+		}
+
+
+
+		/**
+		 * Whether some prefix pattern matches {@code path}, i.e. {@code path} is equal to the
+		 * prefix or continues it with a {@code '/'}.
+		 */
+		boolean matchesPrefixOf(String path) {
+			var node = this;
+			for (int i = 0; ; i++) {
+				if (node.terminal && (i == path.length() || path.charAt(i) == '/')) return true;
+				if (i == path.length()) return false;
+				final var index = Arrays.binarySearch(node.keys, path.charAt(i));
+				if (index < 0) return false;
+				node = node.children[index];
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import pl.morgwai.base.servlet.guice.scopes.WebsocketConnectionExecutor.OverflowPolicy;
+
+
+
+/**
+ * {@link Executor} that executes submitted tasks one at a time, in the order of submission, using
+ * {@code Threads} of its backing {@code Executor}.
+ * At most 1 task of a given {@code SerialExecutor} is being executed at any given time, even if
+ * the backing {@code Executor} creates a new {@code Thread} for each task (like
+ * virtual-thread-per-task {@code Executors} do), so tasks submitted for a given connection are
+ * executed in the same order as the container delivered its events.
+ * <p>
+ * The number of queued tasks may be limited, in which case submitting a task to a full queue is
+ * handled according to a given {@link OverflowPolicy}.</p>
+ */
+class SerialExecutor implements Executor {
+
+
+
+	final Executor backingExecutor;
+	final int maxQueueSize;
+	final OverflowPolicy overflowPolicy;
+
+	final Queue<Runnable> tasks = new LinkedList<>();  // guarded by this
+	boolean running = false;  // guarded by this
+	boolean shutdown = false;  // guarded by this
+	/** {@code Thread} currently executing tasks of this {@code SerialExecutor} if any. */
+	volatile Thread executingThread;
+
+
+
+	SerialExecutor(Executor backingExecutor, int maxQueueSize, OverflowPolicy overflowPolicy) {
+		this.backingExecutor = backingExecutor;
+		this.maxQueueSize = maxQueueSize;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/** Creates an instance with an unbounded queue. */
+	SerialExecutor(Executor backingExecutor) {
+		this(backingExecutor, Integer.MAX_VALUE, OverflowPolicy.REJECT);
+	}
+
+
+
+	/**
+	 * Enqueues {@code task} and if no other task is being executed, passes
+	 * {@link #executeQueuedTasks()} to {@link #backingExecutor}.
+	 * If the queue already contains {@link #maxQueueSize} tasks, then {@link #overflowPolicy} is
+	 * applied.
+	 * If {@link #backingExecutor} rejects it, then {@code task} is removed from the queue and the
+	 * exception is propagated to the caller: tasks submitted concurrently in the meantime (if any)
+	 * will be executed after the next successful submission.
+	 * @throws RejectedExecutionException if this executor is {@link #shutdown() shut down} or if
+	 *     its queue is full and {@link #overflowPolicy} is {@link OverflowPolicy#REJECT REJECT}.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		synchronized (this) {
+			if (shutdown) throw new RejectedExecutionException(SHUTDOWN_MESSAGE);
+			if (tasks.size() >= maxQueueSize) {
+				switch (overflowPolicy) {
+					case DISCARD_NEWEST: return;
+					case DISCARD_OLDEST:
+						tasks.remove();
+						break;
+					default: throw new RejectedExecutionException(QUEUE_FULL_MESSAGE);
+				}
+			}
+			tasks.add(task);
+			if (running) return;
+			running = true;
+		}
+		try {
+			backingExecutor.execute(this::executeQueuedTasks);
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				tasks.remove(task);
+				running = false;
+			}
+			throw e;
+		}
+	}
+
+
+
+	/** Executes queued tasks until the queue is empty. */
+	void executeQueuedTasks() {
+		executingThread = Thread.currentThread();
+		while (true) {
+			final Runnable task;
+			synchronized (this) {
+				task = tasks.poll();
+				if (task == null) {
+					executingThread = null;
+					running = false;
+					return;
+				}
+			}
+			try {
+				task.run();
+			} catch (Throwable e) {
+				log.log(Level.WARNING, TASK_FAILED_WARNING, e);
+			}
+		}
+	}
+
+	static final String TASK_FAILED_WARNING = "a task of a SerialExecutor failed";
+	static final String SHUTDOWN_MESSAGE = "executor is shut down";
+	static final String QUEUE_FULL_MESSAGE = "task queue is full";
+
+
+
+	/**
+	 * Rejects all subsequently submitted tasks. Already queued tasks will still be executed.
+	 */
+	synchronized void shutdown() {
+		shutdown = true;
+	}
+
+	synchronized boolean isShutdown() {
+		return shutdown;
+	}
+
+
+
+	/** Whether the current {@code Thread} is executing a task of this {@code SerialExecutor}. */
+	boolean isExecutingCurrentThread() {
+		return executingThread == Thread.currentThread();
+	}
+
+
+
+	static final Logger log = Logger.getLogger(SerialExecutor.class.getName());
+}
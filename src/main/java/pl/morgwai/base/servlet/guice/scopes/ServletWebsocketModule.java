@@ -76,16 +76,73 @@ public class ServletWebsocketModule implements Module {
 		containerCallScope = websocketModule.containerCallScope;
 		websocketConnectionScope = websocketModule.websocketConnectionScope;
 		ctxBinder = websocketModule.ctxBinder;
-		httpSessionScope = websocketModule.packageExposedNewInducedContextScope(
-			"ServletWebsocketModule.httpSessionScope",
-			HttpSessionContext.class,
-			containerCallScope,
-			ContainerCallContext::getHttpSessionContext
+		httpSessionScope = new HttpSessionScope(
+			websocketModule.packageExposedNewInducedContextScope(
+				"ServletWebsocketModule.httpSessionScope",
+				HttpSessionContext.class,
+				containerCallScope,
+				ContainerCallContext::getHttpSessionContext
+			)
 		);
 	}
 
 
 
+	/**
+	 * {@link InducedContextScope} that delegates providing of scoped objects to
+	 * {@link HttpSessionContext#produce(Key, Provider)}, so that {@link HttpSessionContext}s can
+	 * track modifications of their scoped objects and encode them using
+	 * {@link CompactScopedObjectsFormat} relying only on the public API of
+	 * {@link InjectionContext}.
+	 */
+	static class HttpSessionScope
+			extends InducedContextScope<ContainerCallContext, HttpSessionContext> {
+
+		/**
+		 * Creates a {@code Scope} with the same name and {@link ContextTracker} as
+		 * {@code registeredScope}, which was obtained from
+		 * {@link ScopeModule#newInducedContextScope(String, Class, ContextScope,
+		 * java.util.function.Function)} to register {@link HttpSessionContext} for binding.
+		 */
+		HttpSessionScope(ContextScope<ContainerCallContext> registeredScope) {
+			super(
+				registeredScope.getName(),
+				registeredScope.getTracker(),
+				ContainerCallContext::getHttpSessionContext
+			);
+		}
+
+
+
+		@Override
+		public <T> Provider<T> scope(Key<T> key, Provider<T> producer) {
+			return new Provider<>() {
+
+				@Override
+				public T get() {
+					final HttpSessionContext ctx;
+					try {
+						ctx = getCurrentContext();
+					} catch (NullPointerException e) {
+						throw new OutOfScopeException(String.format(
+								NO_CONTEXT_MESSAGE, getName(), Thread.currentThread().getName()));
+					}
+					return ctx.produce(key, producer);
+				}
+
+				@Override
+				public String toString() {
+					return "ScopedProvider { scope = \"" + getName() + "\", key = " + key
+							+ ", producer = " + producer + " }";
+				}
+			};
+		}
+
+		static final String NO_CONTEXT_MESSAGE = "no Context of Scope \"%s\" in Thread \"%s\"";
+	}
+
+
+
 	/**
 	 * {@link Binder#install(Module) Installs} {@link #websocketModule}, binds
 	 * {@link ServletContext} type to {@link #appDeployment}, stores the resulting {@link Injector}
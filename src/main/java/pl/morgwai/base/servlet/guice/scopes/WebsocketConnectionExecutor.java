@@ -0,0 +1,100 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+
+
+/**
+ * {@link Executor} that executes tasks submitted for a given websocket connection strictly one at
+ * a time, in the order of submission, using {@code Threads} of a shared worker pool.
+ * Each task is executed within a new {@link WebsocketEventContext} of the connection, so both
+ * {@link WebsocketModule#websocketConnectionScope} and {@link WebsocketModule#containerCallScope}
+ * are available to it.
+ * <p>
+ * Instances are usually obtained by injection: {@link WebsocketModule} binds this class in
+ * {@link WebsocketModule#websocketConnectionScope} using
+ * {@link WebsocketModule#newConnectionExecutor(WebsocketConnectionContext)}. Each instance is
+ * {@link #shutdown() shut down} automatically after its connection's {@code onClose(...)} method
+ * returns.</p>
+ * <p>
+ * This allows to move heavy per-message work off container {@code Threads} without losing
+ * ordering and without dedicating a {@code Thread} to each connection.</p>
+ */
+public class WebsocketConnectionExecutor implements Executor {
+
+
+
+	/** How tasks submitted to an executor with a full queue are handled. */
+	public enum OverflowPolicy {
+		/** Throw a {@link RejectedExecutionException}. */
+		REJECT,
+		/** Silently discard the submitted task. */
+		DISCARD_NEWEST,
+		/** Discard the oldest queued task that has not started executing yet. */
+		DISCARD_OLDEST
+	}
+
+
+
+	final WebsocketConnectionProxy connectionProxy;
+	final SerialExecutor serialExecutor;
+
+
+
+	/**
+	 * Creates an executor for the connection of {@code connectionCtx} and registers it to be
+	 * {@link #shutdown() shut down} when the connection is closed.
+	 * @param workerPool shared pool executing tasks of all connections.
+	 * @param maxQueueSize maximum number of queued tasks that have not started executing yet.
+	 * @param overflowPolicy how tasks submitted when the queue is full are handled.
+	 */
+	public WebsocketConnectionExecutor(
+		WebsocketConnectionContext connectionCtx,
+		Executor workerPool,
+		int maxQueueSize,
+		OverflowPolicy overflowPolicy
+	) {
+		if (maxQueueSize < 1) throw new IllegalArgumentException(MAX_QUEUE_SIZE_MESSAGE);
+		this.connectionProxy = connectionCtx.connectionProxy;
+		this.serialExecutor = new SerialExecutor(workerPool, maxQueueSize, overflowPolicy);
+		connectionProxy.registerConnectionExecutor(this);
+	}
+
+	static final String MAX_QUEUE_SIZE_MESSAGE = "maxQueueSize must be positive";
+
+
+
+	/**
+	 * Enqueues {@code task} to be executed within a new {@link WebsocketEventContext} of this
+	 * executor's connection after all previously submitted tasks.
+	 * Exceptions thrown by {@code task} are logged.
+	 * @throws RejectedExecutionException if this executor is {@link #shutdown() shut down}, if its
+	 *     queue is full and its {@link OverflowPolicy} is {@link OverflowPolicy#REJECT REJECT} or
+	 *     if the worker pool rejects it.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		serialExecutor.execute(() -> connectionProxy.executeWithinEventContext(() -> {
+			task.run();
+			return null;
+		}));
+	}
+
+
+
+	/**
+	 * Rejects all subsequently submitted tasks. Already queued tasks will still be executed.
+	 * Called automatically after the connection's {@code onClose(...)} method returns.
+	 */
+	public void shutdown() {
+		serialExecutor.shutdown();
+	}
+
+
+
+	public boolean isShutdown() {
+		return serialExecutor.isShutdown();
+	}
+}
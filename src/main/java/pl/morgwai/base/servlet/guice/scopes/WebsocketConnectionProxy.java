@@ -2,16 +2,30 @@
 package pl.morgwai.base.servlet.guice.scopes;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.servlet.http.HttpSession;
 import javax.websocket.*;
 import javax.websocket.RemoteEndpoint.Async;
 import javax.websocket.RemoteEndpoint.Basic;
 
+import pl.morgwai.base.function.ThrowingComputation;
 import pl.morgwai.base.guice.scopes.ContextTracker;
+import pl.morgwai.base.servlet.guice.scopes.ContainerCallMetrics.WebsocketEventType;
 
 import static java.util.stream.Collectors.toUnmodifiableMap;
 
@@ -20,6 +34,9 @@ import static java.util.stream.Collectors.toUnmodifiableMap;
 /**
  * Decorates {@link MessageHandler}s passed to {@link #addMessageHandler(MessageHandler)} method
  * family with {@link WebsocketEventContext} tracking.
+ * Additionally provides {@link #broadcast(Object, Predicate) broadcasting} to peer connections.
+ * {@link Session} params of lifecycle methods of {@code Endpoints} created by
+ * {@link GuiceEndpointConfigurator} are instances of this class.
  */
 public class WebsocketConnectionProxy implements Session {
 
@@ -125,22 +142,368 @@ public class WebsocketConnectionProxy implements Session {
 
 
 
+	/**
+	 * Returns a read-only view of proxies of peer connections.
+	 * The view is backed by the {@code Set} returned by the wrapped connection: no copy is made and
+	 * each proxy is obtained lazily from its connection's {@link WebsocketConnectionContext} only
+	 * when reached by an iterator.
+	 */
 	@Override
 	public Set<Session> getOpenSessions() {
-		final var rawPeerConnections = wrappedConnection.getOpenSessions();
-		final var proxies = new HashSet<Session>(rawPeerConnections.size(), 1.0f);
-		for (final var peerConnection: rawPeerConnections) {
-			final var peerConnectionCtx = (WebsocketConnectionContext)
-					peerConnection.getUserProperties()
-							.get(WebsocketConnectionContext.class.getName());
-			if (peerConnectionCtx.getConnection() == null) {
-				// peerConnection from another cluster node that supports userProperties clustering
-				peerConnectionCtx.connectionProxy =
-						new WebsocketConnectionProxy(peerConnection, ctxTracker, null);
+		return new PeerConnectionsView(wrappedConnection.getOpenSessions());
+	}
+
+
+
+	/**
+	 * Calls {@link #broadcast(Object, Predicate, int, long)
+	 * broadcast(message, filter, DEFAULT_MAX_IN_FLIGHT_SENDS, DEFAULT_SLOW_PEER_TIMEOUT_MILLIS)}.
+	 */
+	public CompletableFuture<Map<Session, Throwable>> broadcast(
+		Object message,
+		Predicate<Session> filter
+	) {
+		return broadcast(
+				message, filter, DEFAULT_MAX_IN_FLIGHT_SENDS, DEFAULT_SLOW_PEER_TIMEOUT_MILLIS);
+	}
+
+	public static final int DEFAULT_MAX_IN_FLIGHT_SENDS = 64;
+	public static final long DEFAULT_SLOW_PEER_TIMEOUT_MILLIS = 5000L;
+
+
+
+	/**
+	 * Asynchronously sends {@code message} to all {@link #getOpenSessions() peer connections}
+	 * accepted by {@code filter} (including this connection if accepted).
+	 * {@link String} messages are sent as text and {@link ByteBuffer} or {@code byte[]} messages
+	 * as binary, both without any per-peer encoding. Messages of other types are passed to
+	 * {@link javax.websocket.RemoteEndpoint.Async#sendObject(Object, SendHandler)}, so they are
+	 * encoded by peers' {@link Encoder}s: to encode such a message only once, an app should encode
+	 * it itself and broadcast the result.
+	 * <p>
+	 * At most {@code maxInFlightSends} sends are pending at any given time: subsequent ones are
+	 * started as the previous ones complete, so this method never blocks. A send not completed
+	 * within {@code slowPeerTimeoutMillis} is reported as failed with a
+	 * {@link java.util.concurrent.TimeoutException} and stops counting towards the limit
+	 * (it is not cancelled though).</p>
+	 * <p>
+	 * {@code filter} is called on container {@code Threads} completing previous sends and is
+	 * <b>not</b> executed within any {@code Context}.</p>
+	 * @return a future completed when all sends have finished or timed out, with a {@code Map} of
+	 *     peers, to which sending failed, to the respective failures.
+	 */
+	public CompletableFuture<Map<Session, Throwable>> broadcast(
+		Object message,
+		Predicate<Session> filter,
+		int maxInFlightSends,
+		long slowPeerTimeoutMillis
+	) {
+		return new Broadcast(
+			(message instanceof byte[]) ? ByteBuffer.wrap((byte[]) message) : message,
+			getOpenSessions().iterator(),
+			filter,
+			maxInFlightSends,
+			slowPeerTimeoutMillis
+		).start();
+	}
+
+
+
+	/** Maps raw peer connections of a backing {@code Set} to their proxies on the fly. */
+	class PeerConnectionsView extends AbstractSet<Session> {
+
+		final Set<Session> rawPeerConnections;
+
+		PeerConnectionsView(Set<Session> rawPeerConnections) {
+			this.rawPeerConnections = rawPeerConnections;
+		}
+
+		@Override public int size() {
+			return rawPeerConnections.size();
+		}
+
+		@Override public boolean contains(Object peerConnection) {
+			return (peerConnection instanceof WebsocketConnectionProxy)
+					&& rawPeerConnections.contains(
+							((WebsocketConnectionProxy) peerConnection).wrappedConnection);
+		}
+
+		@Override public Iterator<Session> iterator() {
+			final var rawPeerConnectionIterator = rawPeerConnections.iterator();
+			return new Iterator<>() {
+
+				@Override public boolean hasNext() {
+					return rawPeerConnectionIterator.hasNext();
+				}
+
+				@Override public Session next() {
+					return getPeerConnectionProxy(rawPeerConnectionIterator.next());
+				}
+			};
+		}
+	}
+
+
+
+	Session getPeerConnectionProxy(Session rawPeerConnection) {
+		final var peerConnectionCtx = (WebsocketConnectionContext) rawPeerConnection
+			.getUserProperties()
+			.get(WebsocketConnectionContext.class.getName());
+		if (peerConnectionCtx.getConnection() == null) {
+			// peerConnection from another cluster node that supports userProperties clustering
+			peerConnectionCtx.connectionProxy =
+					new WebsocketConnectionProxy(rawPeerConnection, ctxTracker, null);
+		}
+		return peerConnectionCtx.getConnection();
+	}
+
+
+
+	/**
+	 * Whether {@link #obtainEventContext()} should reuse {@link #recycledEventCtx}.
+	 * Set by {@link EndpointProxyHandler} if
+	 * {@link GuiceEndpointConfigurator#isEventContextRecyclingEnabled() recycling is enabled}.
+	 */
+	boolean eventCtxRecyclingEnabled = false;
+	private WebsocketEventContext recycledEventCtx;
+	/** Guards against reentrant events that would otherwise share {@link #recycledEventCtx}. */
+	private final AtomicBoolean recycledEventCtxInUse = new AtomicBoolean(false);
+
+
+
+	/**
+	 * Returns a {@link WebsocketEventContext} for a new event of this connection.
+	 * If {@link #eventCtxRecyclingEnabled recycling is enabled} and {@link #recycledEventCtx} is
+	 * not in use by some other event, then it is returned instead of a new instance.
+	 * Each obtained {@code Context} must be passed to {@link #releaseEventContext(
+	 * WebsocketEventContext)} after its event is handled.
+	 */
+	WebsocketEventContext obtainEventContext() {
+		if (eventCtxRecyclingEnabled && recycledEventCtxInUse.compareAndSet(false, true)) {
+			if (recycledEventCtx == null) {
+				recycledEventCtx = newEventContext();
+				recycledEventCtx.enableRecycling();
 			}
-			proxies.add(peerConnectionCtx.getConnection());
+			return recycledEventCtx;
 		}
-		return proxies;
+		return newEventContext();
+	}
+
+	private WebsocketEventContext newEventContext() {
+		metrics.onContextCreated(WebsocketEventContext.class);
+		return new WebsocketEventContext(connectionCtx, httpSession, ctxTracker);
+	}
+
+	/**
+	 * Removes objects scoped to {@code eventCtx} if it is {@link #recycledEventCtx} and makes it
+	 * available for the next event.
+	 */
+	void releaseEventContext(WebsocketEventContext eventCtx) {
+		if (eventCtx != recycledEventCtx) return;
+		eventCtx.removeScopedObjects();
+		recycledEventCtxInUse.set(false);
+	}
+
+
+
+	/**
+	 * Executes events of this connection if
+	 * {@link GuiceEndpointConfigurator#getEventExecutor(Class) offloading is enabled},
+	 * {@code null} otherwise. Set by {@link EndpointProxyHandler}.
+	 */
+	SerialExecutor eventExecutor;
+
+	/**
+	 * Handles exceptions thrown by events passed to {@link #eventExecutor} without awaiting their
+	 * completion. Set by {@link EndpointProxyHandler} to deliver them to the {@code onError(...)}
+	 * method of the connection's {@code Endpoint}. If {@code null}, they are only logged.
+	 */
+	Consumer<Throwable> offloadedEventErrorHandler;
+
+	/** Set by {@link EndpointProxyHandler} and {@link ClientEndpointProxy}. */
+	ContainerCallMetrics metrics = ContainerCallMetrics.NOOP;
+
+
+
+	/**
+	 * Executes {@code eventHandler} within a {@link #obtainEventContext() WebsocketEventContext}.
+	 * If {@link #eventExecutor} is set, then {@code eventHandler} is passed to it, unless the
+	 * current {@code Thread} is already executing some event of this connection (reentrant call),
+	 * in which case {@code eventHandler} is executed directly.
+	 * @param handlerClass class of the {@code Endpoint} or {@link MessageHandler} handling the
+	 *     event for {@link ContainerCallMetrics#onWebsocketEvent(Class, WebsocketEventType, long)
+	 *     metrics}.
+	 * @param awaitCompletion whether the current {@code Thread} should wait for completion of
+	 *     {@code eventHandler} passed to {@link #eventExecutor}. If {@code false}, then
+	 *     {@code null} is returned immediately and exceptions thrown by {@code eventHandler} are
+	 *     passed to {@link #offloadedEventErrorHandler}.
+	 * @return the result of {@code eventHandler}.
+	 */
+	<E extends Throwable> Object executeEvent(
+		Class<?> handlerClass,
+		WebsocketEventType eventType,
+		ThrowingComputation<Object, E, RuntimeException> eventHandler,
+		boolean awaitCompletion
+	) throws E {
+		if (eventExecutor == null || eventExecutor.isExecutingCurrentThread()) {
+			return executeWithinEventContext(handlerClass, eventType, eventHandler);
+		}
+
+		if ( !awaitCompletion) {
+			eventExecutor.execute(() -> {
+				try {
+					executeWithinEventContext(handlerClass, eventType, eventHandler);
+				} catch (Throwable e) {
+					onOffloadedEventFailed(e);
+				}
+			});
+			return null;
+		}
+
+		final var result = new CompletableFuture<>();
+		eventExecutor.execute(() -> {
+			try {
+				result.complete(executeWithinEventContext(handlerClass, eventType, eventHandler));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		try {
+			return result.join();  // uninterruptible, just as executing eventHandler directly
+		} catch (CompletionException e) {
+			@SuppressWarnings("unchecked")
+			final var eventHandlerException = (E) e.getCause();
+			throw eventHandlerException;
+		}
+	}
+
+	/**
+	 * Passes {@code error} thrown by an event offloaded without awaiting to
+	 * {@link #offloadedEventErrorHandler} or logs it if there is none.
+	 */
+	void onOffloadedEventFailed(Throwable error) {
+		final var errorHandler = offloadedEventErrorHandler;
+		if (errorHandler != null) {
+			errorHandler.accept(error);
+		} else {
+			log.log(Level.WARNING, OFFLOADED_EVENT_FAILED_WARNING, error);
+		}
+	}
+
+	static final String OFFLOADED_EVENT_FAILED_WARNING = "offloaded websocket event failed";
+	static final Logger log = Logger.getLogger(WebsocketConnectionProxy.class.getName());
+
+
+
+	/**
+	 * Executes {@code eventHandler} {@link #executeWithinEventContext(ThrowingComputation)
+	 * within an event Context} and reports it to {@link #metrics}.
+	 */
+	<E extends Throwable> Object executeWithinEventContext(
+		Class<?> handlerClass,
+		WebsocketEventType eventType,
+		ThrowingComputation<Object, E, RuntimeException> eventHandler
+	) throws E {
+		if (metrics == ContainerCallMetrics.NOOP) return executeWithinEventContext(eventHandler);
+		final var startNanos = System.nanoTime();
+		try {
+			return executeWithinEventContext(eventHandler);
+		} finally {
+			metrics.onWebsocketEvent(handlerClass, eventType, System.nanoTime() - startNanos);
+		}
+	}
+
+	<E extends Throwable> Object executeWithinEventContext(
+		ThrowingComputation<Object, E, RuntimeException> eventHandler
+	) throws E {
+		final var eventCtx = obtainEventContext();
+		try {
+			return eventCtx.executeWithinSelf(eventHandler);
+		} finally {
+			releaseEventContext(eventCtx);
+		}
+	}
+
+
+
+	/**
+	 * Whether {@link #lastInboundMessageNanos} should be updated on each inbound message.
+	 * See {@link #enableInboundActivityTracking()}.
+	 */
+	volatile boolean inboundActivityTracking = false;
+	private volatile long lastInboundMessageNanos;
+
+
+
+	/**
+	 * Enables tracking of time of the most recent inbound message of this connection.
+	 * Inbound messages are all messages delivered to {@code Endpoint} methods annotated with
+	 * {@link javax.websocket.OnMessage} and to {@link MessageHandler}s added to this proxy,
+	 * except {@link PongMessage}s. Allows for example to suppress pinging of busy connections.
+	 * Tracking is disabled by default as it requires a {@link System#nanoTime()} call per message.
+	 */
+	public void enableInboundActivityTracking() {
+		lastInboundMessageNanos = System.nanoTime();
+		inboundActivityTracking = true;
+	}
+
+	public boolean isInboundActivityTrackingEnabled() {
+		return inboundActivityTracking;
+	}
+
+
+
+	/**
+	 * Returns {@link System#nanoTime()} of the most recent inbound message or of
+	 * {@link #enableInboundActivityTracking() enabling of tracking} if no message arrived since.
+	 * Meaningful only if tracking is enabled.
+	 */
+	public long getLastInboundMessageNanos() {
+		return lastInboundMessageNanos;
+	}
+
+
+
+	/** Records an inbound message if {@link #inboundActivityTracking tracking is enabled}. */
+	void onInboundMessage() {
+		if (inboundActivityTracking) lastInboundMessageNanos = System.nanoTime();
+	}
+
+
+
+	/**
+	 * {@link WebsocketConnectionExecutor}s of this connection to be
+	 * {@link WebsocketConnectionExecutor#shutdown() shut down} after its {@code onClose(...)}.
+	 * Created lazily as most connections don't use any.
+	 */
+	private List<WebsocketConnectionExecutor> connectionExecutors;  // guarded by this
+
+	synchronized void registerConnectionExecutor(WebsocketConnectionExecutor executor) {
+		if (connectionExecutors == null) connectionExecutors = new ArrayList<>(1);
+		connectionExecutors.add(executor);
+	}
+
+	synchronized boolean hasConnectionExecutors() {
+		return connectionExecutors != null;
+	}
+
+	/** Called by {@link EndpointProxyHandler} after {@code onClose(...)} returns. */
+	synchronized void shutdownConnectionExecutors() {
+		if (connectionExecutors == null) return;
+		for (var executor: connectionExecutors) executor.shutdown();
+	}
+
+
+
+	/**
+	 * Whether {@code message} may be owned by the container after its handler returns, in which
+	 * case the handler must not be executed asynchronously.
+	 */
+	static boolean isContainerOwned(Object message) {
+		return message instanceof ByteBuffer
+				|| message instanceof InputStream
+				|| message instanceof Reader
+				|| message instanceof PongMessage;
 	}
 
 
@@ -164,26 +527,78 @@ public class WebsocketConnectionProxy implements Session {
 	}
 
 	static Class<?> getHandlerMessageClass(MessageHandler handler) {
+		return handlerMessageClasses.get(handler.getClass());
+	}
+
+	/**
+	 * Caches message classes of {@link MessageHandler} classes, so that reflection is performed
+	 * only once per handler class. Resolution failures are not cached.
+	 */
+	static final ClassValue<Class<?>> handlerMessageClasses = new ClassValue<>() {
+		@Override protected Class<?> computeValue(Class<?> handlerClass) {
+			return resolveHandlerMessageClass(handlerClass);
+		}
+	};
+
+	/**
+	 * Finds the type argument of {@link MessageHandler.Whole} or {@link MessageHandler.Partial}
+	 * implemented by {@code handlerClass} or by the closest of its superclasses.
+	 * Type variables of generic superclasses are resolved using the type arguments given by their
+	 * subclasses.
+	 * @throws IllegalArgumentException if the message class cannot be determined, for example
+	 *     when both interfaces are implemented or the type argument is not a concrete class.
+	 */
+	static Class<?> resolveHandlerMessageClass(Class<?> handlerClass) {
 		try {
-			ParameterizedType handlerType = null;
-			for (final var implementedInterface: handler.getClass().getGenericInterfaces()) {
-				if ( !(implementedInterface instanceof ParameterizedType)) continue;
-				final var parameterizedInterface = (ParameterizedType) implementedInterface;
-				final var parameterizedInterfaceClass = parameterizedInterface.getRawType();
-				if (
-					parameterizedInterfaceClass.equals(MessageHandler.Whole.class)
-					|| parameterizedInterfaceClass.equals(MessageHandler.Partial.class)
-				) {
-					if (handlerType != null) throw new IllegalArgumentException();
-					handlerType = parameterizedInterface;
+			Map<TypeVariable<?>, Type> typeVarBindings = Map.of();
+			for (
+				Class<?> classUnderScan = handlerClass;
+				classUnderScan != null;
+				classUnderScan = classUnderScan.getSuperclass()
+			) {
+				Type messageType = null;
+				for (final var implementedInterface: classUnderScan.getGenericInterfaces()) {
+					if ( !(implementedInterface instanceof ParameterizedType)) continue;
+					final var parameterizedInterface = (ParameterizedType) implementedInterface;
+					final var parameterizedInterfaceClass = parameterizedInterface.getRawType();
+					if (
+						parameterizedInterfaceClass.equals(MessageHandler.Whole.class)
+						|| parameterizedInterfaceClass.equals(MessageHandler.Partial.class)
+					) {
+						if (messageType != null) throw new IllegalArgumentException();
+						messageType = parameterizedInterface.getActualTypeArguments()[0];
+					}
+				}
+				if (messageType != null) {
+					return (Class<?>) typeVarBindings.getOrDefault(messageType, messageType);
 				}
+
+				final var genericSuperclass = classUnderScan.getGenericSuperclass();
+				if ( !(genericSuperclass instanceof ParameterizedType)) {
+					typeVarBindings = Map.of();
+					continue;
+				}
+				final var superclassTypeArgs =
+						((ParameterizedType) genericSuperclass).getActualTypeArguments();
+				final var superclassTypeVars = classUnderScan.getSuperclass().getTypeParameters();
+				final var superclassTypeVarBindings =
+						new HashMap<TypeVariable<?>, Type>(superclassTypeVars.length * 2);
+				for (int i = 0; i < superclassTypeVars.length; i++) {
+					superclassTypeVarBindings.put(
+						superclassTypeVars[i],
+						typeVarBindings.getOrDefault(superclassTypeArgs[i], superclassTypeArgs[i])
+					);
+				}
+				typeVarBindings = superclassTypeVarBindings;
 			}
-			return (Class<?>) handlerType.getActualTypeArguments()[0];
-		} catch (IllegalArgumentException | NullPointerException | ClassCastException e) {
-			throw new IllegalArgumentException("cannot determine handler type");
+			throw new IllegalArgumentException();
+		} catch (IllegalArgumentException | ClassCastException e) {
+			throw new IllegalArgumentException(UNKNOWN_HANDLER_TYPE_MESSAGE);
 		}
 	}
 
+	static final String UNKNOWN_HANDLER_TYPE_MESSAGE = "cannot determine handler type";
+
 
 
 	@Override
@@ -232,8 +647,16 @@ public class WebsocketConnectionProxy implements Session {
 		final MessageHandler.Whole<T> wrappedHandler;
 
 		@Override public void onMessage(T message) {
-			new WebsocketEventContext(connectionCtx, httpSession, ctxTracker).executeWithinSelf(
-					() -> wrappedHandler.onMessage(message));
+			if ( !(message instanceof PongMessage)) onInboundMessage();
+			executeEvent(
+				wrappedHandler.getClass(),
+				WebsocketEventType.MESSAGE,
+				() -> {
+					wrappedHandler.onMessage(message);
+					return null;
+				},
+				isContainerOwned(message)
+			);
 		}
 
 		WholeMessageHandlerDecorator(MessageHandler.Whole<T> handlerToWrap) {
@@ -250,8 +673,16 @@ public class WebsocketConnectionProxy implements Session {
 		final MessageHandler.Partial<T> wrappedHandler;
 
 		@Override public void onMessage(T message, boolean last) {
-			new WebsocketEventContext(connectionCtx, httpSession, ctxTracker).executeWithinSelf(
-					() -> wrappedHandler.onMessage(message, last));
+			onInboundMessage();
+			executeEvent(
+				wrappedHandler.getClass(),
+				WebsocketEventType.MESSAGE,
+				() -> {
+					wrappedHandler.onMessage(message, last);
+					return null;
+				},
+				isContainerOwned(message)
+			);
 		}
 
 		PartialMessageHandlerDecorator(MessageHandler.Partial<T> handlerToWrap) {
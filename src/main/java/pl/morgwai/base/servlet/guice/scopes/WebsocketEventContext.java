@@ -1,9 +1,12 @@
 // Copyright 2021 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
 package pl.morgwai.base.servlet.guice.scopes;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.servlet.http.HttpSession;
 import javax.websocket.*;
 
+import com.google.inject.Key;
 import pl.morgwai.base.guice.scopes.ContextTracker;
 
 
@@ -23,6 +26,10 @@ import pl.morgwai.base.guice.scopes.ContextTracker;
  * {@link MessageHandler} methods
  * (&nbsp;{@link MessageHandler.Whole#onMessage(Object) Whole.onMessage(message)},
  * {@link MessageHandler.Partial#onMessage(Object, boolean) Partial.onMessage(...)}&nbsp;).
+ * <p>
+ * If {@link GuiceEndpointConfigurator#isEventContextRecyclingEnabled() recycling is enabled}, the
+ * same instance may be reused for subsequent events of a given connection, but objects scoped to
+ * it are removed after each event.</p>
  */
 public class WebsocketEventContext extends ContainerCallContext {
 
@@ -45,4 +52,43 @@ public class WebsocketEventContext extends ContainerCallContext {
 		this.connectionContext = connectionContext;
 		this.httpSession = httpSession;
 	}
+
+
+
+	/**
+	 * {@link Key}s of objects scoped to this {@code Context} since the last
+	 * {@link #removeScopedObjects()}, recorded only if this {@code Context} is recycled:
+	 * {@code null} otherwise.
+	 */
+	Queue<Key<?>> scopedObjectKeys;
+
+
+
+	/** Makes this {@code Context} record {@link #scopedObjectKeys}. */
+	void enableRecycling() {
+		scopedObjectKeys = new ConcurrentLinkedQueue<>();
+	}
+
+
+
+	/**
+	 * Called by {@link WebsocketModule.ContainerCallScope} when a new object is scoped to this
+	 * {@code Context}.
+	 */
+	void onScopedObjectProduced(Key<?> key) {
+		final var scopedObjectKeys = this.scopedObjectKeys;
+		if (scopedObjectKeys != null) scopedObjectKeys.add(key);
+	}
+
+
+
+	/**
+	 * {@link #removeScopedObject(Key) Removes} all objects scoped to this {@code Context} by
+	 * {@link WebsocketModule#containerCallScope}, so that it may be reused for another event.
+	 * Must be called only after {@link #enableRecycling()}.
+	 */
+	void removeScopedObjects() {
+		Key<?> key;
+		while ((key = scopedObjectKeys.poll()) != null) removeScopedObject(key);
+	}
 }
@@ -2,10 +2,13 @@
 package pl.morgwai.base.servlet.guice.scopes;
 
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import com.google.inject.*;
 import pl.morgwai.base.guice.scopes.*;
+import pl.morgwai.base.servlet.guice.scopes.WebsocketConnectionExecutor.OverflowPolicy;
 
 import static pl.morgwai.base.servlet.guice.scopes.GuiceEndpointConfigurator
 		.REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_KEY;
@@ -47,8 +50,8 @@ public class WebsocketModule extends ScopeModule {
 	 * {@link WebsocketEventContext websocket event} depending which type is active at the moment of
 	 * a given {@link Provider#get() provisioning}.
 	 */
-	public final ContextScope<ContainerCallContext> containerCallScope =
-			newContextScope("WebsocketModule.containerCallScope", ContainerCallContext.class);
+	public final ContextScope<ContainerCallContext> containerCallScope = new ContainerCallScope(
+			newContextScope("WebsocketModule.containerCallScope", ContainerCallContext.class));
 
 	/**
 	 * Scopes objects to the {@link WebsocketConnectionContext Context of a websocket connections
@@ -116,13 +119,22 @@ public class WebsocketModule extends ScopeModule {
 	 * annotated with {@link GuiceClientEndpoint} to {@link Provider}s based on
 	 * {@link GuiceEndpointConfigurator}.
 	 * Additionally binds {@link GuiceEndpointConfigurator#REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_KEY}
-	 * to {@link #requireTopLevelMethodAnnotations}.
+	 * to {@link #requireTopLevelMethodAnnotations} and {@link WebsocketConnectionExecutor} to
+	 * {@link #newConnectionExecutor(WebsocketConnectionContext)} in
+	 * {@link #websocketConnectionScope}.
 	 */
 	@Override
 	public void configure(Binder binder) {
 		super.configure(binder);
 		binder.bind(REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_KEY)
 			.toInstance(requireTopLevelMethodAnnotations);
+		final var connectionCtxProvider = binder.getProvider(WebsocketConnectionContext.class);
+		binder.bind(WebsocketConnectionExecutor.class)
+			.toProvider(
+				(Provider<WebsocketConnectionExecutor>)
+						() -> newConnectionExecutor(connectionCtxProvider.get())
+			)
+			.in(websocketConnectionScope);
 		for (var clientEndpointClass: clientEndpointClasses) {
 			bindClientEndpoint(binder, clientEndpointClass);
 		}
@@ -207,6 +219,72 @@ public class WebsocketModule extends ScopeModule {
 
 
 
+	/**
+	 * Creates a {@link WebsocketConnectionExecutor} for the connection of {@code connectionCtx}.
+	 * By default returns an executor backed by {@link #getConnectionExecutorWorkerPool()} with
+	 * queue size of {@link #DEFAULT_CONNECTION_EXECUTOR_QUEUE_SIZE} and
+	 * {@link OverflowPolicy#REJECT REJECT} {@link OverflowPolicy}. Subclasses may override this
+	 * method to change these parameters.
+	 */
+	protected WebsocketConnectionExecutor newConnectionExecutor(
+		WebsocketConnectionContext connectionCtx
+	) {
+		return new WebsocketConnectionExecutor(
+			connectionCtx,
+			getConnectionExecutorWorkerPool(),
+			DEFAULT_CONNECTION_EXECUTOR_QUEUE_SIZE,
+			OverflowPolicy.REJECT
+		);
+	}
+
+	public static final int DEFAULT_CONNECTION_EXECUTOR_QUEUE_SIZE = 1000;
+
+	/**
+	 * Returns the worker pool shared by all {@link WebsocketConnectionExecutor}s created by
+	 * {@link #newConnectionExecutor(WebsocketConnectionContext)}.
+	 * By default a virtual-{@code Thread}-per-task {@code Executor} if the runtime supports
+	 * virtual {@code Threads} (Java 21+), so that blocking tasks do not starve each other. On older
+	 * runtimes there is no default: subclasses using {@link WebsocketConnectionExecutor}s must
+	 * override this method to return a dedicated pool suitable for their tasks and shut it down
+	 * when the app is stopped.
+	 * @throws IllegalStateException if virtual {@code Threads} are not supported and this method
+	 *     was not overridden.
+	 */
+	protected Executor getConnectionExecutorWorkerPool() {
+		final var virtualThreadExecutor = VirtualThreadExecutorHolder.INSTANCE;
+		if (virtualThreadExecutor == null) {
+			throw new IllegalStateException(NO_DEFAULT_WORKER_POOL_MESSAGE);
+		}
+		return virtualThreadExecutor;
+	}
+
+	static final String NO_DEFAULT_WORKER_POOL_MESSAGE = "virtual Threads are not supported by "
+			+ "this runtime: override getConnectionExecutorWorkerPool() to provide a worker pool";
+
+	/** Lazily creates the default {@link #getConnectionExecutorWorkerPool() worker pool}. */
+	static class VirtualThreadExecutorHolder {
+		/** {@code null} if virtual {@code Threads} are not supported. */
+		static final Executor INSTANCE = newVirtualThreadPerTaskExecutor();
+	}
+
+	/**
+	 * Obtains {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively, as this lib
+	 * targets Java 11.
+	 * @return the obtained {@code Executor} or {@code null} if virtual {@code Threads} are not
+	 *     supported.
+	 */
+	static Executor newVirtualThreadPerTaskExecutor() {
+		try {
+			return (Executor)
+					Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException notSupported) {
+			// Java 20 or older: on 19-20 without preview features enabled invoke(...) throws
+			return null;
+		}
+	}
+
+
+
 	static final TypeLiteral<ContextTracker<ContainerCallContext>> CTX_TRACKER_TYPE =
 			new TypeLiteral<>() {};
 	/** {@code Key} for the {@link ContextTracker} of {@link #containerCallScope}. */
@@ -215,6 +293,46 @@ public class WebsocketModule extends ScopeModule {
 
 
 
+	/**
+	 * {@link ContextScope} that reports {@link Key}s of objects it scopes to
+	 * {@link WebsocketEventContext}s, so that they may be
+	 * {@link WebsocketEventContext#removeScopedObjects() removed} when a {@code Context} is
+	 * recycled.
+	 * The report is made only when a new object is produced, so retrieving already scoped objects
+	 * has no additional cost.
+	 */
+	static class ContainerCallScope extends ContextScope<ContainerCallContext> {
+
+		/**
+		 * Creates a {@code Scope} with the same name and {@link ContextTracker} as
+		 * {@code registeredScope}, which was obtained from
+		 * {@link ScopeModule#newContextScope(String, Class)} to register
+		 * {@link ContainerCallContext} for binding.
+		 */
+		ContainerCallScope(ContextScope<ContainerCallContext> registeredScope) {
+			super(registeredScope.getName(), registeredScope.getTracker());
+		}
+
+
+
+		@Override
+		public <T> Provider<T> scope(Key<T> key, Provider<T> producer) {
+			return super.scope(
+				key,
+				() -> {
+					final var scopedObject = producer.get();
+					final var eventCtx = getCurrentContext();
+					if (eventCtx instanceof WebsocketEventContext) {
+						((WebsocketEventContext) eventCtx).onScopedObjectProduced(key);
+					}
+					return scopedObject;
+				}
+			);
+		}
+	}
+
+
+
 	/** For {@link ServletWebsocketModule}. */
 	<
 		BaseContextT extends TrackableContext<? super BaseContextT>,
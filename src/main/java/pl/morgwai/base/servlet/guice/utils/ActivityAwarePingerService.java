@@ -0,0 +1,220 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import javax.websocket.Session;
+
+import pl.morgwai.base.servlet.guice.scopes.WebsocketConnectionProxy;
+import pl.morgwai.base.servlet.utils.WebsocketPingerService;
+
+
+
+/**
+ * {@link WebsocketPingerService} that suspends pinging of connections that have received an
+ * inbound message within the last ping interval: such connections are provably alive, so their
+ * pings (and ping content hashing) would be wasted.
+ * <p>
+ * {@link WebsocketConnectionProxy Connections} passed to
+ * {@link #addConnection(Session, BiConsumer)} have their
+ * {@link WebsocketConnectionProxy#enableInboundActivityTracking() activity tracking enabled}. Once
+ * per ping interval, a sweep task {@link WebsocketPingerService#removeConnection(Session)
+ * removes} from pinging those of them that were active during the last interval and
+ * {@link WebsocketPingerService#addConnection(Session, BiConsumer) adds back} those that became
+ * idle, so that their pinging resumes immediately. Only the public API of
+ * {@link WebsocketPingerService} is used for this. Connections of other types are pinged as
+ * usual.</p>
+ * <p>
+ * Busy connections are never closed for not responding to pings, while RTT reports for them
+ * become less frequent.</p>
+ * @see PingingServletContextListener#shouldSuppressPingsOnActivity()
+ */
+public class ActivityAwarePingerService extends WebsocketPingerService {
+
+
+
+	final long intervalNanos;
+	final ScheduledFuture<?> sweepTask;
+	/** Connections with activity tracking enabled. */
+	final ConcurrentMap<Session, Registration> registrations = new ConcurrentHashMap<>();
+
+
+
+	/**
+	 * Creates an instance in the expect-timely-pongs mode. See
+	 * {@link WebsocketPingerService#WebsocketPingerService(long, TimeUnit, int, String,
+	 * ScheduledExecutorService, boolean) super}.
+	 */
+	public ActivityAwarePingerService(
+		long interval,
+		TimeUnit unit,
+		int failureLimit,
+		String hashFunction,
+		ScheduledExecutorService scheduler,
+		boolean synchronizeSending
+	) {
+		super(interval, unit, failureLimit, hashFunction, scheduler, synchronizeSending);
+		intervalNanos = unit.toNanos(interval);
+		sweepTask = scheduler.scheduleAtFixedRate(
+				() -> suspendOrResumePinging(System.nanoTime()), interval, interval, unit);
+	}
+
+	/**
+	 * Creates an instance in the keep-alive-only mode. See
+	 * {@link WebsocketPingerService#WebsocketPingerService(long, TimeUnit, String,
+	 * ScheduledExecutorService, boolean) super}.
+	 */
+	public ActivityAwarePingerService(
+		long interval,
+		TimeUnit unit,
+		String hashFunction,
+		ScheduledExecutorService scheduler,
+		boolean synchronizeSending
+	) {
+		super(interval, unit, hashFunction, scheduler, synchronizeSending);
+		intervalNanos = unit.toNanos(interval);
+		sweepTask = scheduler.scheduleAtFixedRate(
+				() -> suspendOrResumePinging(System.nanoTime()), interval, interval, unit);
+	}
+
+
+
+	/** A {@link WebsocketConnectionProxy connection} with activity tracking enabled. */
+	static class Registration {
+
+		final WebsocketConnectionProxy connection;
+		final BiConsumer<Session, Long> rttObserver;
+		/** Whether {@link #connection} is currently added to {@code super}. */
+		boolean pinged = false;  // guarded by this
+		/** Whether {@link #connection} has been removed or the service shut down. */
+		boolean removed = false;  // guarded by this
+
+		Registration(WebsocketConnectionProxy connection, BiConsumer<Session, Long> rttObserver) {
+			this.connection = connection;
+			this.rttObserver = rttObserver;
+		}
+	}
+
+
+
+	/**
+	 * Enables activity tracking of {@code connection} if it is a
+	 * {@link WebsocketConnectionProxy} and calls {@code super}.
+	 */
+	@Override
+	public void addConnection(Session connection, BiConsumer<Session, Long> rttObserver) {
+		if ( !(connection instanceof WebsocketConnectionProxy)) {
+			super.addConnection(connection, rttObserver);
+			return;
+		}
+		final var connectionProxy = (WebsocketConnectionProxy) connection;
+		connectionProxy.enableInboundActivityTracking();
+		final var registration = new Registration(connectionProxy, rttObserver);
+		synchronized (registration) {
+			registrations.put(connection, registration);
+			super.addConnection(connection, rttObserver);
+			registration.pinged = true;
+		}
+	}
+
+
+
+	@Override
+	public boolean removeConnection(Session connection) {
+		final var registration = registrations.remove(connection);
+		if (registration == null) return super.removeConnection(connection);
+		synchronized (registration) {
+			registration.removed = true;
+			if (registration.pinged) super.removeConnection(connection);
+			return true;
+		}
+	}
+
+
+
+	@Override
+	public boolean containsConnection(Session connection) {
+		return registrations.containsKey(connection) || super.containsConnection(connection);
+	}
+
+
+
+	/** Includes connections with suspended pinging. */
+	@Override
+	public int getNumberOfConnections() {
+		int suspendedCount = 0;
+		for (var registration: registrations.values()) {
+			synchronized (registration) {
+				if ( !registration.pinged && !registration.removed) suspendedCount++;
+			}
+		}
+		return super.getNumberOfConnections() + suspendedCount;
+	}
+
+
+
+	/**
+	 * Removes from {@code super} connections that received an inbound message within the last
+	 * interval preceding {@code now} and adds back those that did not. Executed periodically by
+	 * the scheduler.
+	 */
+	void suspendOrResumePinging(long now) {
+		for (var registration: registrations.values()) {
+			synchronized (registration) {
+				if (registration.removed) continue;
+				final var active =
+						now - registration.connection.getLastInboundMessageNanos() < intervalNanos;
+				if (active && registration.pinged) {
+					super.removeConnection(registration.connection);
+					registration.pinged = false;
+				} else if ( !active && !registration.pinged) {
+					super.addConnection(registration.connection, registration.rttObserver);
+					registration.pinged = true;
+				}
+			}
+		}
+	}
+
+
+
+	/**
+	 * Stops the sweep task and calls {@code super}.
+	 * @return connections that were registered, including ones with suspended pinging.
+	 */
+	@Override
+	public Set<Session> shutdown() {
+		final var remainingConnections = stopSweeping();
+		remainingConnections.addAll(super.shutdown());
+		return remainingConnections;
+	}
+
+
+
+	/** Stops the sweep task and calls {@code super}. */
+	@Override
+	public void shutdownNow() {
+		stopSweeping();
+		super.shutdownNow();
+	}
+
+
+
+	/**
+	 * Cancels {@link #sweepTask} and discards all {@link #registrations}.
+	 * @return connections with suspended pinging.
+	 */
+	Set<Session> stopSweeping() {
+		sweepTask.cancel(false);
+		final var suspendedConnections = new HashSet<Session>();
+		for (var registration: registrations.values()) {
+			synchronized (registration) {
+				registration.removed = true;
+				if ( !registration.pinged) suspendedConnections.add(registration.connection);
+			}
+		}
+		registrations.clear();
+		return suspendedConnections;
+	}
+}
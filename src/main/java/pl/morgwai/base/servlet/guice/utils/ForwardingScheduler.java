@@ -0,0 +1,132 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+
+
+/**
+ * Base class for {@link ScheduledExecutorService} decorators of
+ * {@link pl.morgwai.base.servlet.utils.WebsocketPingerService}'s scheduler: forwards all calls to
+ * {@link #backingScheduler}.
+ */
+abstract class ForwardingScheduler implements ScheduledExecutorService {
+
+
+
+	final ScheduledExecutorService backingScheduler;
+
+
+
+	ForwardingScheduler(ScheduledExecutorService backingScheduler) {
+		this.backingScheduler = backingScheduler;
+	}
+
+
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(
+		Runnable task,
+		long initialDelay,
+		long period,
+		TimeUnit unit
+	) {
+		return backingScheduler.scheduleAtFixedRate(task, initialDelay, period, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(
+		Runnable task,
+		long initialDelay,
+		long delay,
+		TimeUnit unit
+	) {
+		return backingScheduler.scheduleWithFixedDelay(task, initialDelay, delay, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		return backingScheduler.schedule(task, delay, unit);
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> task, long delay, TimeUnit unit) {
+		return backingScheduler.schedule(task, delay, unit);
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		backingScheduler.execute(task);
+	}
+
+	@Override
+	public Future<?> submit(Runnable task) {
+		return backingScheduler.submit(task);
+	}
+
+	@Override
+	public <T> Future<T> submit(Runnable task, T result) {
+		return backingScheduler.submit(task, result);
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		return backingScheduler.submit(task);
+	}
+
+	@Override
+	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+			throws InterruptedException {
+		return backingScheduler.invokeAll(tasks);
+	}
+
+	@Override
+	public <T> List<Future<T>> invokeAll(
+		Collection<? extends Callable<T>> tasks,
+		long timeout,
+		TimeUnit unit
+	) throws InterruptedException {
+		return backingScheduler.invokeAll(tasks, timeout, unit);
+	}
+
+	@Override
+	public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+			throws InterruptedException, ExecutionException {
+		return backingScheduler.invokeAny(tasks);
+	}
+
+	@Override
+	public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		return backingScheduler.invokeAny(tasks, timeout, unit);
+	}
+
+
+
+	@Override
+	public void shutdown() {
+		backingScheduler.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return backingScheduler.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return backingScheduler.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return backingScheduler.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return backingScheduler.awaitTermination(timeout, unit);
+	}
+}
@@ -0,0 +1,134 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.DispatcherType;
+
+import pl.morgwai.base.guice.scopes.InjectionContext;
+import pl.morgwai.base.servlet.guice.scopes.ContainerCallMetrics;
+
+
+
+/**
+ * {@link ContainerCallMetrics} that aggregates reports in memory: {@link LatencyHistogram}s of
+ * websocket events per handler class and {@link WebsocketEventType event type},
+ * {@link LatencyHistogram}s of {@code Servlet} dispatches per {@link DispatcherType}, numbers of
+ * active connections per {@code Endpoint} class and numbers of created {@code Contexts} per
+ * {@code Context} class.
+ * Event counts are available via {@link LatencyHistogram#getCount()}.
+ * <p>
+ * Usage:</p>
+ * <pre>{@code
+ * bind(ContainerCallMetrics.class).toInstance(new InMemoryContainerCallMetrics());}</pre>
+ */
+public class InMemoryContainerCallMetrics implements ContainerCallMetrics {
+
+
+
+	final ConcurrentHashMap<Class<?>, AtomicReferenceArray<LatencyHistogram>> eventLatencies =
+			new ConcurrentHashMap<>();
+	final AtomicReferenceArray<LatencyHistogram> dispatchLatencies =
+			new AtomicReferenceArray<>(DispatcherType.values().length);
+	final ConcurrentHashMap<Class<?>, LongAdder> activeConnections = new ConcurrentHashMap<>();
+	final ConcurrentHashMap<Class<?>, LongAdder> createdCtxs = new ConcurrentHashMap<>();
+
+
+
+	@Override
+	public void onWebsocketEvent(
+		Class<?> handlerClass,
+		WebsocketEventType eventType,
+		long durationNanos
+	) {
+		final var handlerLatencies = eventLatencies.computeIfAbsent(
+			handlerClass,
+			(ignored) -> new AtomicReferenceArray<>(WebsocketEventType.values().length)
+		);
+		getOrCreate(handlerLatencies, eventType.ordinal()).record(durationNanos);
+	}
+
+
+
+	@Override
+	public void onConnectionOpened(Class<?> endpointClass) {
+		activeConnections.computeIfAbsent(endpointClass, (ignored) -> new LongAdder()).increment();
+	}
+
+
+
+	@Override
+	public void onConnectionClosed(Class<?> endpointClass) {
+		activeConnections.computeIfAbsent(endpointClass, (ignored) -> new LongAdder()).decrement();
+	}
+
+
+
+	@Override
+	public void onServletDispatch(DispatcherType dispatcherType, long durationNanos) {
+		getOrCreate(dispatchLatencies, dispatcherType.ordinal()).record(durationNanos);
+	}
+
+
+
+	@Override
+	public void onContextCreated(Class<? extends InjectionContext> ctxClass) {
+		createdCtxs.computeIfAbsent(ctxClass, (ignored) -> new LongAdder()).increment();
+	}
+
+
+
+	static LatencyHistogram getOrCreate(AtomicReferenceArray<LatencyHistogram> histograms, int i) {
+		final var histogram = histograms.get(i);
+		if (histogram != null) return histogram;
+		histograms.compareAndSet(i, null, new LatencyHistogram());
+		return histograms.get(i);
+	}
+
+
+
+	/**
+	 * Returns the histogram of latencies of events of {@code eventType} handled by
+	 * {@code handlerClass} or {@code null} if no such event was reported.
+	 */
+	public LatencyHistogram getEventLatencies(Class<?> handlerClass, WebsocketEventType eventType) {
+		final var handlerLatencies = eventLatencies.get(handlerClass);
+		return handlerLatencies == null ? null : handlerLatencies.get(eventType.ordinal());
+	}
+
+
+
+	/**
+	 * Returns the histogram of latencies of {@code Servlet} dispatches of
+	 * {@code dispatcherType} or {@code null} if no such dispatch was reported.
+	 */
+	public LatencyHistogram getDispatchLatencies(DispatcherType dispatcherType) {
+		return dispatchLatencies.get(dispatcherType.ordinal());
+	}
+
+
+
+	public long getActiveConnections(Class<?> endpointClass) {
+		final var count = activeConnections.get(endpointClass);
+		return count == null ? 0L : count.sum();
+	}
+
+
+
+	public long getCreatedContexts(Class<? extends InjectionContext> ctxClass) {
+		final var count = createdCtxs.get(ctxClass);
+		return count == null ? 0L : count.sum();
+	}
+
+
+
+	/** Returns a snapshot of numbers of active connections per {@code Endpoint} class. */
+	public Map<Class<?>, Long> getActiveConnections() {
+		final var snapshot = new ConcurrentHashMap<Class<?>, Long>(activeConnections.size());
+		activeConnections.forEach(
+				(endpointClass, count) -> snapshot.put(endpointClass, count.sum()));
+		return snapshot;
+	}
+}
@@ -0,0 +1,68 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.concurrent.*;
+
+
+
+/**
+ * {@link ScheduledExecutorService} decorator that delays the first execution of each periodic
+ * task by a random amount uniformly distributed between {@code 0} and the task's period.
+ * All other methods are forwarded to the backing scheduler unchanged.
+ * <p>
+ * {@link pl.morgwai.base.servlet.utils.WebsocketPingerService} schedules a separate periodic
+ * pinging task for each connection with no initial delay, so connections registered in a burst
+ * (for example when clients reconnect after a server restart) would be pinged in bursts for their
+ * whole lifetime. Wrapping the pinger's scheduler with this decorator spreads pings uniformly
+ * across the interval, which flattens CPU usage and egress of pinging.</p>
+ * @see PingingServletContextListener#shouldSpreadPings()
+ */
+public class JitteringScheduler extends ForwardingScheduler {
+
+
+
+	public JitteringScheduler(ScheduledExecutorService backingScheduler) {
+		super(backingScheduler);
+	}
+
+
+
+	/** Returns {@code initialDelay} increased by a random value between 0 and {@code period}. */
+	static long jitter(long initialDelay, long period) {
+		if (period <= 0L) return initialDelay;
+		return initialDelay + ThreadLocalRandom.current().nextLong(period);
+	}
+
+
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(
+		Runnable task,
+		long initialDelay,
+		long period,
+		TimeUnit unit
+	) {
+		return backingScheduler.scheduleAtFixedRate(
+				task, jitter(initialDelay, period), period, unit);
+	}
+
+
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(
+		Runnable task,
+		long initialDelay,
+		long delay,
+		TimeUnit unit
+	) {
+		return backingScheduler.scheduleWithFixedDelay(
+				task, jitter(initialDelay, delay), delay, unit);
+	}
+
+
+
+	@Override
+	public String toString() {
+		return "JitteringScheduler { backingScheduler = " + backingScheduler + " }";
+	}
+}
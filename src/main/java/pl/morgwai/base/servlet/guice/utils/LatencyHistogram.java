@@ -0,0 +1,110 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with log-linear buckets, similar to
+ * <a href="https://github.com/HdrHistogram/HdrHistogram">HdrHistogram</a>.
+ * Values are grouped into buckets whose width doubles every {@value #SUB_BUCKET_HALF_COUNT}
+ * buckets, so that the relative error of reported values does not exceed
+ * {@code 1/}{@value #SUB_BUCKET_HALF_COUNT}. Values above {@link #HIGHEST_TRACKABLE_VALUE} (about
+ * 68 seconds) are recorded as {@link #HIGHEST_TRACKABLE_VALUE}.
+ * <p>
+ * {@link #record(long) Recording} is wait-free and may be performed concurrently with queries,
+ * in which case queries may not reflect the most recent recordings.</p>
+ */
+public class LatencyHistogram {
+
+
+
+	static final int SUB_BUCKET_BITS = 7;
+	static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = SUB_BUCKET_BITS - 1;
+	static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+	static final long SUB_BUCKET_MASK = (1L << SUB_BUCKET_BITS) - 1;
+	public static final long HIGHEST_TRACKABLE_VALUE = (1L << 36) - 1;
+
+	final AtomicLongArray counts = new AtomicLongArray(countsIndex(HIGHEST_TRACKABLE_VALUE) + 1);
+	final LongAdder totalCount = new LongAdder();
+	final LongAdder totalNanos = new LongAdder();
+	final AtomicLong maxNanos = new AtomicLong();
+
+
+
+	public void record(long nanos) {
+		final var value = Math.max(0L, Math.min(nanos, HIGHEST_TRACKABLE_VALUE));
+		counts.incrementAndGet(countsIndex(value));
+		totalCount.increment();
+		totalNanos.add(value);
+		if (value > maxNanos.get()) maxNanos.accumulateAndGet(value, Math::max);
+	}
+
+
+
+	static int countsIndex(long value) {
+		final var bucketIndex = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK)
+				- SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+		final var subBucketIndex = (int) (value >>> bucketIndex);
+		return (bucketIndex << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + subBucketIndex;
+	}
+
+	/** Returns the highest value that is recorded at {@code countsIndex}. */
+	static long highestEquivalentValue(int countsIndex) {
+		final var bucketIndex =
+				Math.max(0, (countsIndex >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1);
+		final long subBucketIndex = countsIndex - (bucketIndex << SUB_BUCKET_HALF_COUNT_MAGNITUDE);
+		return ((subBucketIndex + 1) << bucketIndex) - 1;
+	}
+
+
+
+	public long getCount() {
+		return totalCount.sum();
+	}
+
+
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+
+
+	/** Returns the mean of recorded values or {@code 0.0} if none were recorded. */
+	public double getMeanNanos() {
+		final var count = totalCount.sum();
+		return count == 0L ? 0.0 : ((double) totalNanos.sum()) / count;
+	}
+
+
+
+	/**
+	 * Returns the value below or at which {@code percentile}% of recorded values fall, or
+	 * {@code 0} if none were recorded.
+	 * @param percentile between {@code 0.0} and {@code 100.0}.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0.0 || percentile > 100.0) {
+			throw new IllegalArgumentException(PERCENTILE_MESSAGE);
+		}
+		final var length = counts.length();
+		long count = 0L;
+		for (int i = 0; i < length; i++) count += counts.get(i);
+		if (count == 0L) return 0L;
+		final var targetCount = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+		long cumulativeCount = 0L;
+		for (int i = 0; i < length; i++) {
+			cumulativeCount += counts.get(i);
+			if (cumulativeCount >= targetCount) {
+				return Math.min(highestEquivalentValue(i), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	static final String PERCENTILE_MESSAGE = "percentile must be between 0.0 and 100.0";
+}
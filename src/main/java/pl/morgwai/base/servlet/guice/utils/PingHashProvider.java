@@ -0,0 +1,181 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.security.*;
+import java.util.UUID;
+
+import pl.morgwai.base.servlet.utils.WebsocketPingerService;
+
+
+
+/**
+ * Security {@link Provider} of non-cryptographic {@link MessageDigest}s for
+ * {@link WebsocketPingerService} ping payloads.
+ * {@link WebsocketPingerService} hashes each ping payload only to match pongs to their pings, which
+ * does not require tamper resistance, so a cryptographic hash function (such as the default
+ * {@value WebsocketPingerService#DEFAULT_HASH_FUNCTION}) is a waste of CPU with large numbers of
+ * connections. This class provides 2 cheaper alternatives:
+ * <ul>
+ *   <li>{@value #FNV1A_64}: a 64-bit <a href="http://www.isthe.com/chongo/tech/comp/fnv/">FNV-1a
+ *       </a> checksum that keeps no state besides a single {@code long}.</li>
+ *   <li>{@value #SEQUENCE_NUMBER}: an empty digest, so that pongs are matched to pings only by
+ *       the sequence numbers that {@link WebsocketPingerService} puts in each payload. This
+ *       avoids hashing completely, but a misbehaving client may then fake pongs for pings it has
+ *       not received, which with the salted checksums is not feasible.</li>
+ * </ul>
+ * <p>
+ * As {@link WebsocketPingerService} obtains its {@link MessageDigest} by name from
+ * {@link Security}, a {@code PingHashProvider} must be {@link #install() installed} there before
+ * creating the pinger and {@link #uninstall() uninstalled} after the pinger is shut down. Each
+ * {@link #install()} call adds a separate instance with a unique name, so that several
+ * deployments may share the JVM-wide {@link Security} without removing each other's
+ * {@code Providers} and without pinning each other's {@code ClassLoaders}.
+ * {@link PingingServletContextListener} does all of this automatically if
+ * {@link PingingServletContextListener#getHashFunctionName()} returns {@value #FNV1A_64} or
+ * {@value #SEQUENCE_NUMBER}.</p>
+ */
+public class PingHashProvider extends Provider {
+
+
+
+	/** Prefix of names of {@link #install() installed} {@code PingHashProviders}. */
+	public static final String NAME_PREFIX = "ServletScopesPingHash-";
+	/** Name of the 64-bit FNV-1a {@link MessageDigest}. */
+	public static final String FNV1A_64 = "FNV-1a-64";
+	/** Name of the empty {@link MessageDigest} matching pongs only by ping sequence numbers. */
+	public static final String SEQUENCE_NUMBER = "PingSequenceNumber";
+
+
+
+	PingHashProvider(String name) {
+		super(name, "1.0", "Non-cryptographic MessageDigests for websocket ping payloads");
+		putService(new Service(this, "MessageDigest", FNV1A_64, Fnv1a64.class.getName(), null, null)
+		{
+			@Override public Object newInstance(Object constructorParameter) {
+				return new Fnv1a64();
+			}
+		});
+		putService(new Service(
+			this, "MessageDigest", SEQUENCE_NUMBER, SequenceNumberOnly.class.getName(), null, null)
+		{
+			@Override public Object newInstance(Object constructorParameter) {
+				return new SequenceNumberOnly();
+			}
+		});
+	}
+
+
+
+	/**
+	 * Adds a new {@code PingHashProvider} with a unique name to {@link Security}.
+	 * @return the added {@code Provider} to be {@link #uninstall() uninstalled} when no longer
+	 *     needed.
+	 */
+	public static PingHashProvider install() {
+		while (true) {
+			final var provider = new PingHashProvider(NAME_PREFIX + UUID.randomUUID());
+			if (Security.addProvider(provider) != -1) return provider;
+		}
+	}
+
+
+
+	/**
+	 * Removes this {@code Provider} from {@link Security}. {@link MessageDigest}s obtained from it
+	 * remain usable.
+	 */
+	public void uninstall() {
+		Security.removeProvider(getName());
+	}
+
+
+
+	/** 64-bit FNV-1a checksum with big-endian output. */
+	static class Fnv1a64 extends MessageDigestSpi implements Cloneable {
+
+		static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+		static final long PRIME = 0x100000001b3L;
+		static final int DIGEST_LENGTH = Long.BYTES;
+
+		long hash = OFFSET_BASIS;
+
+
+
+		@Override
+		protected void engineUpdate(byte input) {
+			hash = (hash ^ (input & 0xff)) * PRIME;
+		}
+
+		@Override
+		protected void engineUpdate(byte[] input, int offset, int len) {
+			var hash = this.hash;
+			final var end = offset + len;
+			for (int i = offset; i < end; i++) hash = (hash ^ (input[i] & 0xff)) * PRIME;
+			this.hash = hash;
+		}
+
+
+
+		@Override
+		protected byte[] engineDigest() {
+			final var digest = new byte[DIGEST_LENGTH];
+			writeDigest(digest, 0);
+			return digest;
+		}
+
+		/** Writes the digest to {@code buf} without allocating. */
+		@Override
+		protected int engineDigest(byte[] buf, int offset, int len) throws DigestException {
+			if (len < DIGEST_LENGTH) throw new DigestException(BUFFER_TOO_SHORT_MESSAGE);
+			writeDigest(buf, offset);
+			return DIGEST_LENGTH;
+		}
+
+		static final String BUFFER_TOO_SHORT_MESSAGE = "output buffer too short";
+
+		void writeDigest(byte[] buf, int offset) {
+			for (int i = DIGEST_LENGTH - 1; i >= 0; i--) {
+				buf[offset + i] = (byte) hash;
+				hash >>>= 8;
+			}
+			engineReset();
+		}
+
+
+
+		@Override
+		protected void engineReset() {
+			hash = OFFSET_BASIS;
+		}
+
+		@Override
+		protected int engineGetDigestLength() {
+			return DIGEST_LENGTH;
+		}
+
+		@Override
+		public Object clone() throws CloneNotSupportedException {
+			return super.clone();
+		}
+	}
+
+
+
+	/** Empty digest: pongs are matched to pings only by their sequence numbers. */
+	static class SequenceNumberOnly extends MessageDigestSpi implements Cloneable {
+
+		static final byte[] EMPTY_DIGEST = new byte[0];
+
+		@Override protected void engineUpdate(byte input) {}
+		@Override protected void engineUpdate(byte[] input, int offset, int len) {}
+		@Override protected byte[] engineDigest() { return EMPTY_DIGEST; }
+		@Override protected int engineDigest(byte[] buf, int offset, int len) { return 0; }
+		@Override protected void engineReset() {}
+		@Override protected int engineGetDigestLength() { return 0; }
+
+		@Override
+		public Object clone() throws CloneNotSupportedException {
+			return super.clone();
+		}
+	}
+}
@@ -22,11 +22,17 @@ public class PingingClientEndpointProxy extends ClientEndpointProxy {
 
 
 	final WebsocketPingerService pingerService;
+	final RttAggregator rttAggregator;
 
 
 
+	/**
+	 * Creates a proxy that additionally records RTTs of its connection in {@code rttAggregator}
+	 * (if not {@code null}).
+	 */
 	public PingingClientEndpointProxy(
 		WebsocketPingerService pingerService,
+		RttAggregator rttAggregator,
 		Endpoint endpointToWrap,
 		ContextTracker<ContainerCallContext> ctxTracker,
 		WebsocketConnectionContext enclosingCtx,
@@ -34,6 +40,17 @@ public class PingingClientEndpointProxy extends ClientEndpointProxy {
 	) {
 		super(endpointToWrap, ctxTracker, enclosingCtx, httpSession);
 		this.pingerService = pingerService;
+		this.rttAggregator = rttAggregator;
+	}
+
+	public PingingClientEndpointProxy(
+		WebsocketPingerService pingerService,
+		Endpoint endpointToWrap,
+		ContextTracker<ContainerCallContext> ctxTracker,
+		WebsocketConnectionContext enclosingCtx,
+		HttpSession httpSession
+	) {
+		this(pingerService, null, endpointToWrap, ctxTracker, enclosingCtx, httpSession);
 	}
 
 	public PingingClientEndpointProxy(
@@ -49,11 +66,9 @@ public class PingingClientEndpointProxy extends ClientEndpointProxy {
 	@Override
 	public void onOpen(Session connection, EndpointConfig config) {
 		super.onOpen(connection, config);
-		if (wrappedEndpoint instanceof RttObserver) {
-			pingerService.addConnection(
-				connectionProxy,
-				(connection2, rttNanos) -> ((RttObserver) wrappedEndpoint).onPong(rttNanos)
-			);
+		final var rttReceiver = RttAggregator.newRttReceiver(rttAggregator, wrappedEndpoint);
+		if (rttReceiver != null) {
+			pingerService.addConnection(connectionProxy, rttReceiver);
 		} else {
 			pingerService.addConnection(connectionProxy);
 		}
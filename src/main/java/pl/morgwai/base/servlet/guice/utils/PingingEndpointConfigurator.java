@@ -4,7 +4,9 @@ package pl.morgwai.base.servlet.guice.utils;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import javax.websocket.*;
 
 import com.google.inject.Inject;
@@ -21,7 +23,9 @@ import pl.morgwai.base.servlet.utils.WebsocketPingerService;
  * {@link GuiceEndpointConfigurator} that automatically registers and deregisters created
  * {@code Endpoints} to its associated {@link WebsocketPingerService}.
  * Additionally if an {@code Endpoint} created using this {@code Configurator} implements
- * {@link RttObserver}, then it will be receiving RTT reports on each pong.
+ * {@link RttObserver}, then it will be receiving RTT reports on each pong. If an
+ * {@link RttAggregator} is passed to the constructor, RTTs of all connections are also recorded
+ * there per {@code Endpoint} class.
  * <p>
  * In addition to usage instructions from the super class, annotated {@code Endpoints} that need to
  * be created using this {@code Configurator} <b>must</b> have a method annotated
@@ -33,6 +37,8 @@ public class PingingEndpointConfigurator extends GuiceEndpointConfigurator {
 
 
 	final WebsocketPingerService pingerService;
+	/** If not {@code null}, RTTs of all connections are recorded here. */
+	final RttAggregator rttAggregator;
 
 
 
@@ -41,10 +47,26 @@ public class PingingEndpointConfigurator extends GuiceEndpointConfigurator {
 		Injector injector,
 		ContextTracker<ContainerCallContext> ctxTracker,
 		@Named(REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_NAME) boolean requireTopLevelMethodAnnotations,
-		@PingingClientEndpoint WebsocketPingerService pingerService
+		@PingingClientEndpoint WebsocketPingerService pingerService,
+		RttAggregator rttAggregator
 	) {
 		super(injector, ctxTracker, requireTopLevelMethodAnnotations);
 		this.pingerService = pingerService;
+		this.rttAggregator = rttAggregator;
+	}
+
+	/**
+	 * Calls {@link #PingingEndpointConfigurator(Injector, ContextTracker, boolean,
+	 * WebsocketPingerService, RttAggregator) this(injector, ctxTracker,
+	 * requireTopLevelMethodAnnotations, pingerService, null)}, so that RTTs are not aggregated.
+	 */
+	public PingingEndpointConfigurator(
+		Injector injector,
+		ContextTracker<ContainerCallContext> ctxTracker,
+		boolean requireTopLevelMethodAnnotations,
+		WebsocketPingerService pingerService
+	) {
+		this(injector, ctxTracker, requireTopLevelMethodAnnotations, pingerService, null);
 	}
 
 
@@ -58,6 +80,46 @@ public class PingingEndpointConfigurator extends GuiceEndpointConfigurator {
 
 
 
+	/**
+	 * Pre-computes {@link #lifecycleMethodRoles lifecycle roles of methods} of
+	 * {@code endpointClass} together with its proxy class.
+	 */
+	@Override
+	public <EndpointT> Class<? extends EndpointT> getProxyClass(Class<EndpointT> endpointClass) {
+		lifecycleMethodRoles.get(endpointClass);
+		return super.getProxyClass(endpointClass);
+	}
+
+
+
+	/** Lifecycle roles of {@code Endpoint} methods relevant to pinging. */
+	enum LifecycleRole { OPEN, CLOSE }
+
+	/**
+	 * Maps {@code Endpoint} classes to tables of their methods that are either
+	 * {@link #isOnOpen(Method) onOpen} or {@link #isOnClose(Method) onClose}, so that
+	 * {@link EndpointDecorator}s don't need to perform any reflection on each invocation.
+	 */
+	static final ClassValue<Map<Method, LifecycleRole>> lifecycleMethodRoles = new ClassValue<>() {
+		@Override protected Map<Method, LifecycleRole> computeValue(Class<?> endpointClass) {
+			return getLifecycleMethodRoles(endpointClass);
+		}
+	};
+
+	static Map<Method, LifecycleRole> getLifecycleMethodRoles(Class<?> endpointClass) {
+		final var roles = new HashMap<Method, LifecycleRole>(4);
+		for (var method: endpointClass.getMethods()) {
+			if (isOnOpen(method)) {
+				roles.put(method, LifecycleRole.OPEN);
+			} else if (isOnClose(method)) {
+				roles.put(method, LifecycleRole.CLOSE);
+			}
+		}
+		return roles;
+	}
+
+
+
 	/**
 	 * Returns a handler that additionally registers/deregisters {@code endpoint}'s
 	 * {@link Session connection} to the associated {@link WebsocketPingerService}.
@@ -72,19 +134,23 @@ public class PingingEndpointConfigurator extends GuiceEndpointConfigurator {
 	class EndpointDecorator implements InvocationHandler {
 
 		final Object endpoint;
+		final Map<Method, LifecycleRole> lifecycleMethodRoles;
 
 
 
 		EndpointDecorator(Object endpoint) {
 			this.endpoint = endpoint;
+			this.lifecycleMethodRoles =
+					PingingEndpointConfigurator.lifecycleMethodRoles.get(endpoint.getClass());
 		}
 
 
 
 		@Override
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			final var lifecycleRole = lifecycleMethodRoles.get(method);
 			if ( !open) {
-				if (isOnOpen(method)) {
+				if (lifecycleRole == LifecycleRole.OPEN) {
 					open = true;
 					for (var arg : args) {
 						if (arg instanceof Session) {
@@ -92,22 +158,20 @@ public class PingingEndpointConfigurator extends GuiceEndpointConfigurator {
 							break;
 						}
 					}
-					if (endpoint instanceof RttObserver) {
-						pingerService.addConnection(
-							connection,
-							(connection, rttNanos) -> ((RttObserver) endpoint).onPong(rttNanos)
-						);
+					final var rttReceiver = RttAggregator.newRttReceiver(rttAggregator, endpoint);
+					if (rttReceiver != null) {
+						pingerService.addConnection(connection, rttReceiver);
 					} else {
 						pingerService.addConnection(connection);
 					}
 				}
-			} else {
-				if (isOnClose(method)) pingerService.removeConnection(connection);
+			} else if (lifecycleRole == LifecycleRole.CLOSE) {
+				pingerService.removeConnection(connection);
 			}
 			return method.invoke(endpoint, args);
 		}
 
-		boolean open = false;  // performance optimization: avoids some reflection
+		boolean open = false;
 		Session connection;  // performance optimization: avoids iterating through onClose() args
 	}
 
@@ -128,54 +192,4 @@ public class PingingEndpointConfigurator extends GuiceEndpointConfigurator {
 	static boolean isOnClose(Method method) {
 		return isEndpointLifecycleMethod(method, OnClose.class, "onClose");
 	}
-
-	/**
-	 * Checks if {@code method} or any of its prototypes is either annotated with
-	 * {@code annotationClass} or overrides the {@link Endpoint} method given by
-	 * {@code endpointMethodName}.
-	 */
-	private static boolean isEndpointLifecycleMethod(
-		Method method,
-		Class<? extends Annotation> annotationClass,
-		String endpointMethodName
-	) {
-		if ( !Endpoint.class.isAssignableFrom(method.getDeclaringClass())) {
-			return isAnnotatedLifecycleMethod(method, annotationClass);
-		}
-
-		if ( !method.getName().equals(endpointMethodName)) return false;
-		try {
-			Endpoint.class.getMethod(endpointMethodName, method.getParameterTypes());
-			return true;
-		} catch (NoSuchMethodException e) {
-			return false;
-		}
-	}
-
-	/**
-	 * Checks if {@code method} or any of its prototypes are annotated with {@code annotationClass}.
-	 * This is a Jetty-style verification, however if {@code method} was called at all by a Tyrus
-	 * container, means it is directly annotated and this method will work properly anyway.
-	 * Theoretically some corner cases are possible when {@code method}'s prototype was annotated
-	 * with different lifecycle annotation than {@code method} itself, but these don't happen in
-	 * practice due to parameter incompatibilities.
-	 */
-	private static boolean isAnnotatedLifecycleMethod(
-		Method method,
-		Class<? extends Annotation> annotationClass
-	) {
-		if (method.isAnnotationPresent(annotationClass)) return true;
-		var classUnderScan = method.getDeclaringClass();
-		while ( !classUnderScan.equals(Object.class)) {
-			classUnderScan = classUnderScan.getSuperclass();
-			try {
-				var methodPrototypeUnderScan = classUnderScan.getDeclaredMethod(
-						method.getName(), method.getParameterTypes());
-				if (methodPrototypeUnderScan.isAnnotationPresent(annotationClass)) return true;
-			} catch (NoSuchMethodException e) {
-				return false;
-			}
-		}
-		return false;
-	}
 }
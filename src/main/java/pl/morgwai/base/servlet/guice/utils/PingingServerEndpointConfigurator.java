@@ -33,7 +33,9 @@ public class PingingServerEndpointConfigurator extends GuiceServerEndpointConfig
 			injector,
 			injector.getInstance(CTX_TRACKER_KEY),
 			injector.getInstance(REQUIRE_TOP_LEVEL_METHOD_ANNOTATIONS_KEY),
-			injector.getInstance(Key.get(WebsocketPingerService.class, PingingClientEndpoint.class))
+			injector.getInstance(
+					Key.get(WebsocketPingerService.class, PingingClientEndpoint.class)),
+			injector.getInstance(RttAggregator.class)
 		) {
 			@Override
 			protected <ProxyT> ProxyT createEndpointProxyInstance(Class<ProxyT> proxyClass)
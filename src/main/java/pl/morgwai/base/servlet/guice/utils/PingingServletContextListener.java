@@ -33,6 +33,13 @@ public abstract class PingingServletContextListener extends GuiceServletContextL
 	 */
 	protected WebsocketPingerService pingerService;
 
+	/**
+	 * {@link PingHashProvider} installed by {@link #createPingerService()} if
+	 * {@link #getHashFunctionName()} requires it. Uninstalled after {@link #pingerService} is
+	 * shut down.
+	 */
+	PingHashProvider pingHashProvider;
+
 
 
 	/**
@@ -81,6 +88,12 @@ public abstract class PingingServletContextListener extends GuiceServletContextL
 	 * hashing by {@link #pingerService}.
 	 * By default {@value WebsocketPingerService#DEFAULT_HASH_FUNCTION}.
 	 * <p>
+	 * Pings are hashed only to match pongs to them, so with large numbers of connections it may be
+	 * worthwhile to return {@link PingHashProvider#FNV1A_64} here to use a non-cryptographic
+	 * checksum instead or {@link PingHashProvider#SEQUENCE_NUMBER} to avoid hashing completely:
+	 * a {@link PingHashProvider} will be then automatically installed for the lifetime of
+	 * {@link #pingerService}.</p>
+	 * <p>
 	 * This method is called by {@link #createPingerService()}, it may use {@link #appDeployment}
 	 * and {@link #injector}.</p>
 	 */
@@ -103,6 +116,37 @@ public abstract class PingingServletContextListener extends GuiceServletContextL
 
 
 
+	/**
+	 * Allows to spread pings of {@link #pingerService} uniformly across the ping interval.
+	 * If {@code true}, the result of {@link #createScheduler()} is wrapped with a
+	 * {@link JitteringScheduler}, so that connections registered in a burst are not pinged in
+	 * bursts. The backing scheduler's threads share the pinging load as usual.
+	 * By default {@code false}.
+	 * <p>
+	 * This method is called by {@link #createPingerService()}, it may use {@link #appDeployment}
+	 * and {@link #injector}.</p>
+	 */
+	protected boolean shouldSpreadPings() {
+		return false;
+	}
+
+
+
+	/**
+	 * Allows to suppress pings of connections that have received an inbound message within the
+	 * last ping interval.
+	 * If {@code true}, {@link #pingerService} is an {@link ActivityAwarePingerService}.
+	 * By default {@code false}.
+	 * <p>
+	 * This method is called by {@link #createPingerService()}, it may use {@link #appDeployment}
+	 * and {@link #injector}.</p>
+	 */
+	protected boolean shouldSuppressPingsOnActivity() {
+		return false;
+	}
+
+
+
 	/**
 	 * Allows to override {@link #pingerService}'s {@code synchronizeSending} flag.
 	 * By default {@code false}.
@@ -120,30 +164,58 @@ public abstract class PingingServletContextListener extends GuiceServletContextL
 	 * Called to creates {@link #pingerService the app-wide PingerService}.
 	 * By default it calls {@link #isPingerInKeepAliveOnlyMode()}, {@link #getPingIntervalMillis()}
 	 * and {@link #getPingFailureLimit()}, {@link #getHashFunctionName()},
-	 * {@link #createScheduler()} and {@link #shouldSynchronizePingSending()} to configure the
-	 * {@link WebsocketPingerService}.
+	 * {@link #createScheduler()}, {@link #shouldSpreadPings()},
+	 * {@link #shouldSuppressPingsOnActivity()} and {@link #shouldSynchronizePingSending()} to
+	 * configure the {@link WebsocketPingerService}.
 	 * <p>
 	 * This method is called once in {@link #createWebsocketModule(boolean, Set)} and may be
 	 * overridden if further customizations are required.</p>
 	 */
 	protected WebsocketPingerService createPingerService() {
+		final var hashFunctionName = getHashFunctionName();
+		if (
+			hashFunctionName.equals(PingHashProvider.FNV1A_64)
+			|| hashFunctionName.equals(PingHashProvider.SEQUENCE_NUMBER)
+		) {
+			pingHashProvider = PingHashProvider.install();
+		}
+		var scheduler = createScheduler();
+		if (shouldSpreadPings()) scheduler = new JitteringScheduler(scheduler);
+		final var suppressPingsOnActivity = shouldSuppressPingsOnActivity();
 		if (isPingerInKeepAliveOnlyMode()) {
-			return new WebsocketPingerService(
-				getPingIntervalMillis(),
-				MILLISECONDS,
-				getHashFunctionName(),
-				createScheduler(),
-				shouldSynchronizePingSending()
-			);
+			return suppressPingsOnActivity
+				? new ActivityAwarePingerService(
+					getPingIntervalMillis(),
+					MILLISECONDS,
+					hashFunctionName,
+					scheduler,
+					shouldSynchronizePingSending()
+				)
+				: new WebsocketPingerService(
+					getPingIntervalMillis(),
+					MILLISECONDS,
+					hashFunctionName,
+					scheduler,
+					shouldSynchronizePingSending()
+				);
 		} else {
-			return new WebsocketPingerService(
-				getPingIntervalMillis(),
-				MILLISECONDS,
-				getPingFailureLimit(),
-				getHashFunctionName(),
-				createScheduler(),
-				shouldSynchronizePingSending()
-			);
+			return suppressPingsOnActivity
+				? new ActivityAwarePingerService(
+					getPingIntervalMillis(),
+					MILLISECONDS,
+					getPingFailureLimit(),
+					hashFunctionName,
+					scheduler,
+					shouldSynchronizePingSending()
+				)
+				: new WebsocketPingerService(
+					getPingIntervalMillis(),
+					MILLISECONDS,
+					getPingFailureLimit(),
+					hashFunctionName,
+					scheduler,
+					shouldSynchronizePingSending()
+				);
 		}
 	}
 
@@ -165,6 +237,7 @@ public abstract class PingingServletContextListener extends GuiceServletContextL
 				log.warning(deploymentName + ": pingerService failed to shutdown cleanly");
 			}
 		});
+		if (pingHashProvider != null) addShutdownHook(pingHashProvider::uninstall);
 		return new PingingWebsocketModule(
 			pingerService,
 			requireTopLevelMethodAnnotations,
@@ -181,4 +254,12 @@ public abstract class PingingServletContextListener extends GuiceServletContextL
 	protected PingingServerEndpointConfigurator createEndpointConfigurator(Injector injector) {
 		return new PingingServerEndpointConfigurator(injector);
 	}
+
+
+
+	/** Uses {@link PingingEndpointConfigurator} to pre-build client {@code Endpoint}s proxies. */
+	@Override
+	protected PingingEndpointConfigurator getClientEndpointConfigurator() {
+		return injector.getInstance(PingingEndpointConfigurator.class);
+	}
 }
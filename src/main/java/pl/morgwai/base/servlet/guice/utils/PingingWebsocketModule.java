@@ -19,6 +19,13 @@ public class PingingWebsocketModule extends WebsocketModule {
 
 	final WebsocketPingerService pingerService;
 
+	/**
+	 * Aggregates RTTs of all connections of {@code Endpoints} created by
+	 * {@link PingingEndpointConfigurator}s of this module.
+	 * Bound in {@link #configure(Binder)}, so it may be also injected.
+	 */
+	public final RttAggregator rttAggregator = new RttAggregator();
+
 
 
 	public PingingWebsocketModule(
@@ -50,11 +57,13 @@ public class PingingWebsocketModule extends WebsocketModule {
 	 * {@link Provider}s based on {@link PingingEndpointConfigurator}.
 	 * Also binds {@link WebsocketPingerService} class to the instance from
 	 * {@link #PingingWebsocketModule(WebsocketPingerService, boolean, Set) the constructor}'s
-	 * param.
+	 * param and {@link RttAggregator} class to {@link #rttAggregator}.
 	 */
 	@Override
 	public void configure(Binder binder) {
 		super.configure(binder);
+		binder.bind(RttAggregator.class)
+			.toInstance(rttAggregator);
 		binder.bind(WebsocketPingerService.class)
 			.toInstance(pingerService);
 		binder.bind(WebsocketPingerService.class)
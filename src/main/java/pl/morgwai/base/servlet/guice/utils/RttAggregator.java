@@ -0,0 +1,86 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import javax.websocket.Session;
+
+import pl.morgwai.base.servlet.utils.WebsocketPingerService;
+
+
+
+/**
+ * Aggregates round-trip times reported by a {@link WebsocketPingerService} into
+ * {@link LatencyHistogram}s per {@code Endpoint} class.
+ * Each {@link PingingWebsocketModule} binds its own instance, which is then used by
+ * {@link PingingEndpointConfigurator} and may be used by {@link PingingClientEndpointProxy} to
+ * record RTTs of all pinged connections, regardless whether their {@code Endpoints} implement
+ * {@link RttObserver} or not.
+ * <p>
+ * Recording is lock-free: the histogram of a given {@code Endpoint} class is obtained once, when
+ * a connection is registered to the pinger, and each pong then only updates its atomic counters.
+ * </p>
+ */
+public class RttAggregator {
+
+
+
+	final ConcurrentHashMap<Class<?>, LatencyHistogram> rttHistograms = new ConcurrentHashMap<>();
+
+
+
+	/** Records {@code rttNanos} in the histogram of {@code endpointClass}. */
+	public void record(Class<?> endpointClass, long rttNanos) {
+		getOrCreateHistogram(endpointClass).record(rttNanos);
+	}
+
+
+
+	LatencyHistogram getOrCreateHistogram(Class<?> endpointClass) {
+		final var histogram = rttHistograms.get(endpointClass);
+		if (histogram != null) return histogram;
+		return rttHistograms.computeIfAbsent(endpointClass, (ignored) -> new LatencyHistogram());
+	}
+
+
+
+	/**
+	 * Returns the histogram of RTTs of connections of {@code endpointClass} or {@code null} if no
+	 * such connection was registered for pinging yet.
+	 */
+	public LatencyHistogram getRttHistogram(Class<?> endpointClass) {
+		return rttHistograms.get(endpointClass);
+	}
+
+
+
+	/** Returns a read-only view of {@code Endpoint} classes that have RTT histograms. */
+	public Set<Class<?>> getEndpointClasses() {
+		return Collections.unmodifiableSet(rttHistograms.keySet());
+	}
+
+
+
+	/**
+	 * Returns an RTT receiver for {@link WebsocketPingerService} that records RTTs of connections
+	 * of {@code endpoint} in {@code rttAggregator} (if not {@code null}) and passes them to
+	 * {@code endpoint} if it is an {@link RttObserver}.
+	 * If neither applies, {@code null} is returned.
+	 */
+	static BiConsumer<Session, Long> newRttReceiver(RttAggregator rttAggregator, Object endpoint)
+	{
+		final var rttObserver = endpoint instanceof RttObserver ? (RttObserver) endpoint : null;
+		if (rttAggregator == null) {
+			if (rttObserver == null) return null;
+			return (connection, rttNanos) -> rttObserver.onPong(rttNanos);
+		}
+		final var histogram = rttAggregator.getOrCreateHistogram(endpoint.getClass());
+		if (rttObserver == null) return (connection, rttNanos) -> histogram.record(rttNanos);
+		return (connection, rttNanos) -> {
+			histogram.record(rttNanos);
+			rttObserver.onPong(rttNanos);
+		};
+	}
+}
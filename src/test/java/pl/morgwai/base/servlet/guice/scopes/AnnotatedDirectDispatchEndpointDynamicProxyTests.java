@@ -0,0 +1,17 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+
+
+public class AnnotatedDirectDispatchEndpointDynamicProxyTests
+		extends AnnotatedEndpointDynamicProxyTests {
+
+
+
+	@Override
+	protected void additionalSetup() {
+		final var directDispatchConfigurator = new TestConfigurator();
+		directDispatchConfigurator.directDispatch = true;
+		configurator = directDispatchConfigurator;
+	}
+}
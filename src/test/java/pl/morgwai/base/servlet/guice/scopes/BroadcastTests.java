@@ -0,0 +1,143 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import javax.websocket.*;
+import javax.websocket.RemoteEndpoint.Async;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+
+
+
+public class BroadcastTests {
+
+
+
+	/** Sends passed to peers' {@link Async}s that are not completed yet. */
+	final Map<Session, SendHandler> pendingSends = new ConcurrentHashMap<>();
+
+
+
+	/**
+	 * Creates a fake {@link Session} whose {@link Async#sendText(String, SendHandler)} calls
+	 * {@code onSend}.
+	 */
+	static Session newPeer(String id, BiConsumer<Session, SendHandler> onSend) {
+		final var peerHolder = new Session[1];
+		final var async = (Async) Proxy.newProxyInstance(
+			Async.class.getClassLoader(),
+			new Class<?>[] {Async.class},
+			(proxy, method, args) -> {
+				if ( !method.getName().equals("sendText")) {
+					throw new UnsupportedOperationException();
+				}
+				onSend.accept(peerHolder[0], (SendHandler) args[1]);
+				return null;
+			}
+		);
+		peerHolder[0] = (Session) Proxy.newProxyInstance(
+			Session.class.getClassLoader(),
+			new Class<?>[] {Session.class},
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+					case "getAsyncRemote": return async;
+					case "getId":
+					case "toString": return id;
+					case "hashCode": return System.identityHashCode(proxy);
+					case "equals": return proxy == args[0];
+					default: throw new UnsupportedOperationException();
+				}
+			}
+		);
+		return peerHolder[0];
+	}
+
+	List<Session> newPeers(int count) {
+		final var peers = new ArrayList<Session>(count);
+		for (int i = 0; i < count; i++) {
+			peers.add(newPeer("peer-" + i, pendingSends::put));
+		}
+		return peers;
+	}
+
+
+
+	@Test
+	public void testInFlightSendsAreBounded() throws Exception {
+		final var peers = newPeers(5);
+		final var excludedPeer = peers.get(2);
+		final var broadcast = new Broadcast(
+				"msg", peers.iterator(), (peer) -> peer != excludedPeer, 2, 5000L);
+
+		final var result = broadcast.start();
+		final var sentPeers = new HashSet<Session>();
+		while ( !pendingSends.isEmpty()) {
+			assertTrue("number of in-flight sends should not exceed the limit",
+					pendingSends.size() <= 2);
+			assertFalse("result should not be completed while sends are pending",
+					result.isDone());
+			final var pendingSend = pendingSends.entrySet().iterator().next();
+			sentPeers.add(pendingSend.getKey());
+			pendingSends.remove(pendingSend.getKey());
+			pendingSend.getValue().onResult(new SendResult());
+		}
+
+		assertTrue("there should be no failed peers", result.get(2L, SECONDS).isEmpty());
+		assertEquals("all accepted peers should be sent to", 4, sentPeers.size());
+		assertFalse("peers rejected by the filter should not be sent to",
+				sentPeers.contains(excludedPeer));
+	}
+
+
+
+	@Test
+	public void testSlowAndFailedPeersAreReported() throws Exception {
+		final var slowPeer = newPeer("slow", (peer, sendHandler) -> {});
+		final var sendError = new IOException("expected");
+		final var failingPeer = newPeer(
+				"failing", (peer, sendHandler) -> sendHandler.onResult(new SendResult(sendError)));
+		final var okPeer = newPeer(
+				"ok", (peer, sendHandler) -> sendHandler.onResult(new SendResult()));
+		final var broadcast = new Broadcast(
+				"msg", List.of(slowPeer, failingPeer, okPeer).iterator(), (peer) -> true, 1, 50L);
+
+		final var failedPeers = broadcast.start().get(2L, SECONDS);
+		assertEquals("only slow and failing peers should be reported",
+				Set.of(slowPeer, failingPeer), failedPeers.keySet());
+		assertTrue("slow peer should be reported with a TimeoutException",
+				failedPeers.get(slowPeer) instanceof TimeoutException);
+		assertSame("failing peer should be reported with its send error",
+				sendError, failedPeers.get(failingPeer));
+	}
+
+
+
+	@Test
+	public void testInlineCompletionsDoNotRecurse() throws Exception {
+		final var peers = new ArrayList<Session>(20_000);
+		for (int i = 0; i < 20_000; i++) {
+			peers.add(newPeer(
+					"peer-" + i, (peer, sendHandler) -> sendHandler.onResult(new SendResult())));
+		}
+		final var broadcast = new Broadcast("msg", peers.iterator(), (peer) -> true, 1, 5000L);
+
+		assertTrue("there should be no failed peers",
+				broadcast.start().get(5L, SECONDS).isEmpty());
+	}
+
+
+
+	@Test
+	public void testEmptyBroadcastCompletesImmediately() {
+		final var result = new Broadcast(
+				"msg", newPeers(3).iterator(), (peer) -> false, 2, 5000L).start();
+		assertTrue("result should be completed", result.isDone());
+		assertTrue("no sends should be attempted", pendingSends.isEmpty());
+	}
+}
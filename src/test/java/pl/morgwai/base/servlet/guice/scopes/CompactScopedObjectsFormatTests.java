@@ -0,0 +1,272 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.*;
+import java.lang.annotation.Retention;
+import java.util.*;
+
+import com.google.inject.BindingAnnotation;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+import javax.servlet.http.HttpSession;
+import org.junit.Test;
+
+import pl.morgwai.base.guice.scopes.ContextSerializationTestUtils;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.CompactScopedObjectsFormat.*;
+
+
+
+public class CompactScopedObjectsFormatTests {
+
+
+
+	@Retention(RUNTIME) @BindingAnnotation @interface Marker {}
+
+	@Retention(RUNTIME) @BindingAnnotation @interface Tagged { String value(); }
+
+	@Marker @Tagged("tag") static class AnnotationHolder {}
+
+	static class SerializableValue implements Serializable {
+		final String value;
+		SerializableValue(String value) { this.value = value; }
+		@Override public boolean equals(Object other) {
+			return other instanceof SerializableValue
+					&& ((SerializableValue) other).value.equals(value);
+		}
+		@Override public int hashCode() { return value.hashCode(); }
+		private static final long serialVersionUID = 1L;
+	}
+
+
+
+	static final Set<Class<?>> NATIVE_TYPES =
+			Set.of(String.class, Integer.class, Long.class, Boolean.class);
+
+	public void testRoundTrip(boolean lazy) throws Exception {
+		final var scopedObjects = new LinkedHashMap<Key<?>, Object>();
+		scopedObjects.put(Key.get(String.class), "string");
+		scopedObjects.put(Key.get(String.class, Names.named("other")), "otherString");
+		scopedObjects.put(Key.get(Integer.class), 666);
+		scopedObjects.put(Key.get(Long.class, Marker.class), 666L);
+		scopedObjects.put(
+				Key.get(Boolean.class, AnnotationHolder.class.getAnnotation(Marker.class)), true);
+		scopedObjects.put(
+				Key.get(String.class, AnnotationHolder.class.getAnnotation(Tagged.class)), "tag");
+		scopedObjects.put(
+				Key.get(new TypeLiteral<List<SerializableValue>>() {}),
+				new ArrayList<>(List.of(new SerializableValue("listed"))));
+		scopedObjects.put(
+				Key.get(new TypeLiteral<Map<String, List<? extends Number>>>() {}),
+				new HashMap<>(Map.of("numbers", List.of(1, 2L))));
+		scopedObjects.put(Key.get(int[].class), new int[] {6, 6, 6});
+		scopedObjects.put(Key.get(SerializableValue.class), new SerializableValue("single"));
+
+		final var decoded = decode(encode(scopedObjects, 0), lazy);
+		assertEquals("all entries should be decoded", scopedObjects.size(), decoded.size());
+		for (var scopedObject: scopedObjects.entrySet()) {
+			var decodedValue = decoded.get(scopedObject.getKey());
+			if (lazy && !NATIVE_TYPES.contains(scopedObject.getValue().getClass())) {
+				assertTrue("value of " + scopedObject.getKey() + " should be lazily deserialized",
+						decodedValue instanceof SerializedValue);
+				decodedValue = ((SerializedValue) decodedValue).deserialize();
+			}
+			if (scopedObject.getValue() instanceof int[]) {
+				assertArrayEquals("value of " + scopedObject.getKey() + " should be decoded",
+						(int[]) scopedObject.getValue(), (int[]) decodedValue);
+			} else {
+				assertEquals("value of " + scopedObject.getKey() + " should be decoded",
+						scopedObject.getValue(), decodedValue);
+			}
+		}
+	}
+
+
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		testRoundTrip(false);
+	}
+
+	@Test
+	public void testLazyRoundTrip() throws Exception {
+		testRoundTrip(true);
+	}
+
+
+
+	@Test
+	public void testLazyReEncodingOfSerializedValues() throws Exception {
+		final var key = Key.get(SerializableValue.class);
+		final var serializedValue = SerializedValue.serialize(new SerializableValue("value"));
+		final var reEncoded = encode(Map.of(key, serializedValue), 0);
+		assertArrayEquals("serialized value should be written back as it is",
+				serializedValue.bytes, ((SerializedValue) decode(reEncoded, true).get(key)).bytes);
+		assertEquals("serialized value should be deserialized by eager decoding",
+				new SerializableValue("value"), decode(reEncoded, false).get(key));
+	}
+
+
+
+	@Test
+	public void testNonSerializableValuesAreSkipped() throws Exception {
+		final var scopedObjects = new LinkedHashMap<Key<?>, Object>();
+		scopedObjects.put(Key.get(Object.class), new Object());
+		scopedObjects.put(Key.get(new TypeLiteral<List<Object>>() {}),
+				new ArrayList<>(List.of(new Object())));
+		scopedObjects.put(Key.get(String.class), "string");
+		scopedObjects.put(Key.get(SerializableValue.class), new SerializableValue("after"));
+
+		final var decoded = decode(encode(scopedObjects, 0), false);
+		assertEquals("only the serializable entries should be decoded",
+				Map.of(
+					Key.get(String.class), "string",
+					Key.get(SerializableValue.class), new SerializableValue("after")
+				),
+				decoded);
+	}
+
+
+
+	/** Over 65535 bytes of modified UTF-8, which is the limit of {@link DataOutput#writeUTF}. */
+	static final String LONG_STRING = "x\u0105\uD83D\uDE00".repeat(20_000);
+
+	@Test
+	public void testLongStringsRoundTrip() throws Exception {
+		final var unpairedSurrogates = "\uD83D".repeat(30_000) + "\uDE00";
+		final var scopedObjects = Map.<Key<?>, Object>of(
+			Key.get(String.class), LONG_STRING,
+			Key.get(String.class, Names.named("unpaired")), unpairedSurrogates
+		);
+		for (var lazy: List.of(false, true)) {
+			final var decoded = decode(encode(scopedObjects, 0), lazy);
+			assertEquals("long string should be decoded",
+					LONG_STRING, decoded.get(Key.get(String.class)));
+			var decodedUnpaired = decoded.get(Key.get(String.class, Names.named("unpaired")));
+			if (lazy) decodedUnpaired = ((SerializedValue) decodedUnpaired).deserialize();
+			assertEquals("string with unpaired surrogates should be retained exactly",
+					unpairedSurrogates, decodedUnpaired);
+		}
+	}
+
+
+
+	HttpSessionContext newSessionContext(boolean compactSerialization) {
+		final var appDeployment = new FakeAppDeployment("");
+		appDeployment.setInitParameter(
+			HttpSessionContext.COMPACT_SERIALIZATION_PARAM,
+			String.valueOf(compactSerialization)
+		);
+		final HttpSession mockSession = createMock(HttpSession.class);
+		expect(mockSession.getServletContext())
+			.andReturn(appDeployment)
+			.anyTimes();
+		mockSession.setAttribute(
+				eq(HttpSessionContext.class.getName()), anyObject(HttpSessionContext.class));
+		expectLastCall().anyTimes();  // marking session as modified
+		replay(mockSession);
+		final var ctx = new HttpSessionContext(mockSession);
+		for (int i = 0; i < 20; i++) {
+			final var value = new SerializableValue("v" + i);
+			ctx.produce(Key.get(SerializableValue.class, Names.named("value" + i)), () -> value);
+			ctx.produce(Key.get(String.class, Names.named("string" + i)), () -> "s");
+		}
+		return ctx;
+	}
+
+	static byte[] serialize(Object toSerialize) throws IOException {
+		final var serializedBytes = new ByteArrayOutputStream();
+		try (final var serializedObjects = new ObjectOutputStream(serializedBytes)) {
+			serializedObjects.writeObject(toSerialize);
+		}
+		return serializedBytes.toByteArray();
+	}
+
+	@Test
+	public void testPayloadIsSmallerThanStandardSerialization() throws Exception {
+		final var standard = serialize(newSessionContext(false));
+		final var compact = serialize(newSessionContext(true));
+		assertTrue("compact payload (" + compact.length + " bytes) should be smaller than the "
+						+ "standard one (" + standard.length + " bytes)",
+				compact.length < standard.length);
+		final var deserializedCtx = (HttpSessionContext) ContextSerializationTestUtils
+				.serialize(newSessionContext(true));
+		assertEquals("scoped objects should be restored",
+				new SerializableValue("v7"),
+				deserializedCtx.produce(
+						Key.get(SerializableValue.class, Names.named("value7")), () -> null));
+	}
+
+
+
+	@Test
+	public void testLargePayloadsAreCompressed() throws Exception {
+		final var largeString = "x".repeat(10_000);
+		final var scopedObjects = Map.<Key<?>, Object>of(Key.get(String.class), largeString);
+
+		final var uncompressed = encode(scopedObjects, 0);
+		final var compressed = encode(scopedObjects, 1024);
+		assertEquals("uncompressed payload should not be flagged as deflated",
+				0, uncompressed[2] & FLAG_DEFLATED);
+		assertEquals("large payload should be flagged as deflated",
+				FLAG_DEFLATED, compressed[2] & FLAG_DEFLATED);
+		assertTrue("compressed payload should be smaller",
+				compressed.length < uncompressed.length);
+		assertEquals("compressed payload should be decoded",
+				largeString, decode(compressed, false).get(Key.get(String.class)));
+
+		final var small = encode(Map.of(Key.get(String.class), "small"), 1024);
+		assertEquals("payload below the threshold should not be compressed",
+				0, small[2] & FLAG_DEFLATED);
+	}
+
+
+
+	@Test
+	public void testUnsupportedVersionIsRejected() throws Exception {
+		final var encoded = encode(Map.of(Key.get(String.class), "string"), 0);
+		encoded[1] = VERSION + 1;
+		try {
+			decode(encoded, false);
+			fail("unsupported version should be rejected");
+		} catch (InvalidClassException expected) {}
+		encoded[0] = 0;
+		try {
+			decode(encoded, false);
+			fail("invalid magic byte should be rejected");
+		} catch (StreamCorruptedException expected) {}
+	}
+
+
+
+	static byte[] encodeValueWithLength(int length) throws IOException {
+		final var encodedBytes = new ByteArrayOutputStream();
+		encodedBytes.write(MAGIC);
+		encodedBytes.write(VERSION);
+		encodedBytes.write(0);
+		try (final var encoder = new Encoder(encodedBytes)) {
+			encoder.output.writeBoolean(true);
+			encoder.writeVarInt(VALUE_OBJECT);
+			encoder.writeKey(Key.get(SerializableValue.class));
+			encoder.writeVarInt(length);
+			encoder.output.write(new byte[] {6, 6, 6});
+		}
+		return encodedBytes.toByteArray();
+	}
+
+	@Test
+	public void testCorruptedLengthsAreRejected() throws Exception {
+		try {
+			decode(encodeValueWithLength(Integer.MAX_VALUE), true);
+			fail("length exceeding the payload should be rejected");
+		} catch (EOFException expected) {}
+		try {
+			decode(encodeValueWithLength(-1), true);
+			fail("negative length should be rejected");
+		} catch (StreamCorruptedException expected) {}
+	}
+}
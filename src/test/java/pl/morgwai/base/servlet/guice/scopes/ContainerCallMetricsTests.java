@@ -0,0 +1,162 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.websocket.*;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.*;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import pl.morgwai.base.servlet.guice.scopes.ContainerCallMetrics.WebsocketEventType;
+import pl.morgwai.base.servlet.guice.utils.InMemoryContainerCallMetrics;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.*;
+
+
+
+public class ContainerCallMetricsTests extends EasyMockSupport {
+
+
+
+	final InMemoryContainerCallMetrics metrics = new InMemoryContainerCallMetrics();
+	final WebsocketModule websocketModule = new WebsocketModule(false);
+	final Injector injector = Guice.createInjector(
+		websocketModule,
+		(binder) -> binder.bind(ContainerCallMetrics.class).toInstance(metrics)
+	);
+
+	@Mock Session mockConnection;
+	final Map<String, Object> userProperties = new HashMap<>(2);
+
+
+
+	@Before
+	public void setup() {
+		injectMocks(this);
+		expect(mockConnection.getUserProperties())
+			.andReturn(userProperties)
+			.anyTimes();
+		replayAll();
+	}
+
+
+
+	@After
+	public void verifyMocks() {
+		verifyAll();
+	}
+
+
+
+	@ClientEndpoint
+	public static class MeasuredEndpoint {
+		@OnOpen public void onOpen(Session connection) {}
+		@OnMessage public void onMessage(String message) {}
+		@OnClose public void onClose(Session connection) {}
+		public void helper() {}
+	}
+
+	void testEndpointProxyReportsMetrics(boolean directDispatch) throws Exception {
+		final var configurator = new GuiceEndpointConfigurator(
+			injector,
+			websocketModule.containerCallScope.tracker,
+			false
+		) {
+			@Override protected boolean isDirectDispatchEnabled() {
+				return directDispatch;
+			}
+		};
+		final var endpointProxy =
+				configurator.getProxyForEndpoint(new MeasuredEndpoint(), false, false);
+
+		endpointProxy.onOpen(mockConnection);
+		assertEquals("opened connection should be reported",
+				1L, metrics.getActiveConnections(MeasuredEndpoint.class));
+		endpointProxy.onMessage("1");
+		endpointProxy.onMessage("2");
+		endpointProxy.helper();
+		endpointProxy.onClose(mockConnection);
+
+		assertEquals("closed connection should be reported",
+				0L, metrics.getActiveConnections(MeasuredEndpoint.class));
+		assertEquals("open event should be reported", 1L,
+				metrics.getEventLatencies(MeasuredEndpoint.class, WebsocketEventType.OPEN)
+					.getCount());
+		assertEquals("message events should be reported", 2L,
+				metrics.getEventLatencies(MeasuredEndpoint.class, WebsocketEventType.MESSAGE)
+					.getCount());
+		assertEquals("calls to other methods should be reported", 1L,
+				metrics.getEventLatencies(MeasuredEndpoint.class, WebsocketEventType.OTHER)
+					.getCount());
+		assertEquals("close event should be reported", 1L,
+				metrics.getEventLatencies(MeasuredEndpoint.class, WebsocketEventType.CLOSE)
+					.getCount());
+		assertNull("no error events should be reported",
+				metrics.getEventLatencies(MeasuredEndpoint.class, WebsocketEventType.ERROR));
+		assertEquals("created connection Context should be reported",
+				1L, metrics.getCreatedContexts(WebsocketConnectionContext.class));
+		assertEquals("created event Contexts should be reported",
+				5L, metrics.getCreatedContexts(WebsocketEventContext.class));
+	}
+
+	@Test
+	public void testEndpointProxyReportsMetrics() throws Exception {
+		testEndpointProxyReportsMetrics(false);
+	}
+
+	@Test
+	public void testEndpointProxyReportsMetricsWithDirectDispatch() throws Exception {
+		testEndpointProxyReportsMetrics(true);
+	}
+
+
+
+	public static class MeasuredClientEndpoint extends Endpoint {
+		@Override public void onOpen(Session connection, EndpointConfig config) {}
+	}
+
+	@Test
+	public void testClientEndpointProxyReportsMetrics() {
+		final var endpointProxy = new ClientEndpointProxy(
+			new MeasuredClientEndpoint(),
+			websocketModule.containerCallScope.tracker,
+			null,
+			null,
+			metrics
+		);
+
+		endpointProxy.onOpen(mockConnection, null);
+		endpointProxy.onError(mockConnection, new Exception("expected"));
+		endpointProxy.onClose(mockConnection, null);
+
+		for (var eventType: new WebsocketEventType[] {
+			WebsocketEventType.OPEN,
+			WebsocketEventType.ERROR,
+			WebsocketEventType.CLOSE
+		}) {
+			assertEquals(eventType + " event should be reported", 1L,
+					metrics.getEventLatencies(MeasuredClientEndpoint.class, eventType).getCount());
+		}
+		assertEquals("closed connection should be reported",
+				0L, metrics.getActiveConnections(MeasuredClientEndpoint.class));
+		assertEquals("created event Contexts should be reported",
+				3L, metrics.getCreatedContexts(WebsocketEventContext.class));
+	}
+
+
+
+	@Test
+	public void testNoopMetricsWhenNotBound() {
+		assertSame("NOOP should be used if ContainerCallMetrics is not bound",
+				ContainerCallMetrics.NOOP,
+				ContainerCallMetrics.of(Guice.createInjector(new WebsocketModule(false))));
+		assertSame("NOOP should be used without an Injector",
+				ContainerCallMetrics.NOOP, ContainerCallMetrics.of(null));
+		assertSame("bound instance should be used",
+				metrics, ContainerCallMetrics.of(injector));
+	}
+}
@@ -7,8 +7,14 @@ import javax.servlet.http.HttpSession;
 import javax.websocket.Session;
 import org.junit.Test;
 
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static pl.morgwai.base.guice.scopes.ContextSerializationTestUtils.serialize;
 import static pl.morgwai.base.guice.scopes.ContextSerializationTestUtils.testContextSerialization;
+import static pl.morgwai.base.servlet.guice.scopes.HttpSessionContext.COMPACT_SERIALIZATION_PARAM;
 import static pl.morgwai.base.servlet.guice.scopes.HttpSessionContext.CUSTOM_SERIALIZATION_PARAM;
 
 
@@ -33,30 +39,57 @@ public class ContextSerializationTests {
 
 
 
-	public void testHttpSessionContextSerialization(boolean customSerialization) throws IOException
-	{
+	public void testHttpSessionContextSerialization(
+		boolean customSerialization,
+		boolean compactSerialization
+	) throws IOException {
 		final var servletContextMock = new FakeAppDeployment("");
 		servletContextMock.setInitParameter(
 			CUSTOM_SERIALIZATION_PARAM,
 			String.valueOf(customSerialization)
 		);
+		servletContextMock.setInitParameter(
+			COMPACT_SERIALIZATION_PARAM,
+			String.valueOf(compactSerialization)
+		);
 		final HttpSession sessionMock = createMock(HttpSession.class);
 		expect(sessionMock.getServletContext())
 			.andReturn(servletContextMock)
 			.anyTimes();
+		sessionMock.setAttribute(
+				eq(HttpSessionContext.class.getName()), anyObject(HttpSessionContext.class));
+		expectLastCall().anyTimes();  // marking session as modified
 		replay(sessionMock);
 		final var ctx = new HttpSessionContext(sessionMock);
 		testContextSerialization(ctx);
+		final var longStringKey = Key.get(String.class, Names.named("long"));
+		ctx.produce(longStringKey, () -> CompactScopedObjectsFormatTests.LONG_STRING);
+		final var deserializedCtx = (HttpSessionContext) serialize(ctx);
+		assertEquals("long string should be retained throughout ctx (de)serialization",
+				CompactScopedObjectsFormatTests.LONG_STRING,
+				deserializedCtx.produce(longStringKey, () -> "another"));
 		verify(sessionMock);
 	}
 
 	@Test
 	public void testHttpSessionContextSerializationWithCustomSerialization() throws IOException {
-		testHttpSessionContextSerialization(true);
+		testHttpSessionContextSerialization(true, false);
 	}
 
 	@Test
 	public void testHttpSessionContextSerializationWithStandardSerialization() throws IOException {
-		testHttpSessionContextSerialization(false);
+		testHttpSessionContextSerialization(false, false);
+	}
+
+	@Test
+	public void testHttpSessionContextCompactSerializationWithCustomSerialization()
+			throws IOException {
+		testHttpSessionContextSerialization(true, true);
+	}
+
+	@Test
+	public void testHttpSessionContextCompactSerializationWithStandardSerialization()
+			throws IOException {
+		testHttpSessionContextSerialization(false, true);
 	}
 }
@@ -0,0 +1,161 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import javax.servlet.http.HttpSession;
+import javax.websocket.*;
+import org.junit.*;
+
+import pl.morgwai.base.guice.scopes.ContextTracker;
+import pl.morgwai.base.servlet.guice.scopes.EndpointProxyTests.AnnotatedTestEndpoint;
+
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.GuiceEndpointConfigurator
+		.isDirectlyDispatchable;
+
+
+
+/**
+ * Tests specific to {@link GuiceEndpointConfigurator#isDirectDispatchEnabled() direct dispatch}.
+ * The common contract is verified in this mode by
+ * {@link AnnotatedDirectDispatchEndpointDynamicProxyTests} and
+ * {@link ProgrammaticDirectDispatchEndpointDynamicProxyTests}.
+ */
+public class DirectDispatchEndpointProxyTests extends MockConnectionTests {
+
+
+
+	/** Test subject. */
+	final TestConfigurator configurator = new TestConfigurator();
+
+
+
+	@Before
+	public void setup() {
+		configurator.directDispatch = true;
+	}
+
+
+
+	@ClientEndpoint
+	public static class DirectlyDispatchedEndpoint extends AnnotatedTestEndpoint {
+
+		public DirectlyDispatchedEndpoint(
+			ContextTracker<ContainerCallContext> ctxTracker,
+			Session mockConnection,
+			HttpSession mockHttpSession
+		) {
+			super(ctxTracker, mockConnection, mockHttpSession);
+		}
+
+		public DirectlyDispatchedEndpoint() {}
+
+
+
+		@OnMessage
+		public long onMessage(long message) {
+			final var eventCtx = (WebsocketEventContext) ctxTracker.getCurrentContext();
+			assertNotNull("directly dispatched methods should be executed within a Context",
+					eventCtx);
+			assertNotSame("each method should be executed within a separate WebsocketEventContext",
+					openEventCtx, eventCtx);
+			assertSame(
+				"WebsocketConnectionContext should remain the same across events on the same "
+						+ "connection",
+				connectionCtx,
+				eventCtx.connectionContext
+			);
+			return message;
+		}
+
+
+
+		public void throwChecked(IOException toThrow) throws IOException {
+			throw toThrow;
+		}
+
+
+
+		@OnError
+		public void onError(Throwable error) {}
+	}
+
+
+
+	@Test
+	public void testDirectDispatchWithinContexts() throws Exception {
+		replayAll();
+		final var endpoint =
+				new DirectlyDispatchedEndpoint(ctxTracker, mockConnection, mockHttpSession);
+		final var endpointProxy = configurator.getProxyForEndpoint(endpoint, false, false);
+
+		endpointProxy.onOpen(mockConnection, null);
+		assertEquals("result of a directly dispatched method should be returned",
+				666L, endpointProxy.onMessage(666L));
+		endpointProxy.onClose(mockConnection, null);
+		assertEquals("only onOpen(...) and onClose(...) should be passed to the decorator",
+				List.of("onOpen", "onClose"), configurator.decoratedMethodNames);
+	}
+
+
+
+	@Test
+	public void testCheckedExceptionIsNotWrapped() throws Exception {
+		replayAll();
+		final var endpoint =
+				new DirectlyDispatchedEndpoint(ctxTracker, mockConnection, mockHttpSession);
+		final var endpointProxy = configurator.getProxyForEndpoint(endpoint, false, false);
+		final var toThrow = new IOException("expected");
+
+		endpointProxy.onOpen(mockConnection, null);
+		try {
+			endpointProxy.throwChecked(toThrow);
+			fail("IOException should be thrown");
+		} catch (IOException caught) {
+			assertSame("exception thrown by the Endpoint should be passed as is",
+					toThrow, caught);
+		}
+	}
+
+
+
+	@Test
+	public void testProxyClassesAreSeparateForEachMode() {
+		replayAll();
+		final var directProxyClass = configurator.getProxyClass(DirectlyDispatchedEndpoint.class);
+		final var reflectiveProxyClass = new GuiceEndpointConfigurator(null, ctxTracker, false)
+			.getProxyClass(DirectlyDispatchedEndpoint.class);
+
+		assertNotSame("direct dispatch mode should use a separate proxy class",
+				reflectiveProxyClass, directProxyClass);
+		assertSame("proxy class should be cached",
+				directProxyClass, configurator.getProxyClass(DirectlyDispatchedEndpoint.class));
+	}
+
+
+
+	@Test
+	public void testIsDirectlyDispatchable() throws NoSuchMethodException {
+		replayAll();
+		final Class<?> endpointClass = DirectlyDispatchedEndpoint.class;
+		final Method onMessage = endpointClass.getMethod("onMessage", long.class);
+		final Method onOpen =
+				endpointClass.getMethod("onOpen", Session.class, EndpointConfig.class);
+		final Method onError = endpointClass.getMethod("onError", Throwable.class);
+		final Method equals = endpointClass.getMethod("equals", Object.class);
+		final Method getClass = endpointClass.getMethod("getClass");
+
+		assertTrue("@OnMessage methods should be directly dispatchable",
+				isDirectlyDispatchable(onMessage));
+		assertFalse("@OnOpen methods should not be directly dispatchable",
+				isDirectlyDispatchable(onOpen));
+		assertFalse("@OnError methods should not be directly dispatchable",
+				isDirectlyDispatchable(onError));
+		assertFalse("methods that may accept a Session param should not be directly dispatchable",
+				isDirectlyDispatchable(equals));
+		assertFalse("final methods should not be directly dispatchable",
+				isDirectlyDispatchable(getClass));
+	}
+}
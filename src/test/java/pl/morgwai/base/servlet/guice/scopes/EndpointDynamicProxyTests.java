@@ -40,12 +40,26 @@ public abstract class EndpointDynamicProxyTests extends EndpointProxyTests {
 
 	void setEndpointProxyHandler(
 		TestEndpoint endpointProxy,
+		TestEndpoint wrappedEndpoint,
 		InvocationHandler handler
 	) throws NoSuchFieldException, IllegalAccessException {
 		endpointProxy.getClass().getDeclaredField(INVOCATION_HANDLER_FIELD_NAME).set(
 			endpointProxy,
-			new EndpointProxyHandler(handler, ctxTracker, null, null)
+			new EndpointProxyHandler(
+				handler,
+				wrappedEndpoint,
+				ctxTracker,
+				null,
+				null,
+				false,
+				null,
+				ContainerCallMetrics.NOOP
+			)
 		);
+		if (configurator.isLifecycleOnlyInterceptionEnabled()) {
+			endpointProxy.getClass().getDeclaredField(WRAPPED_ENDPOINT_FIELD_NAME)
+				.set(endpointProxy, wrappedEndpoint);
+		}
 	}
 
 
@@ -58,7 +72,7 @@ public abstract class EndpointDynamicProxyTests extends EndpointProxyTests {
 					ctxTracker.getCurrentContext());
 			return handlerFromConfigurator.invoke(proxy, method, args);
 		};
-		setEndpointProxyHandler(endpointProxy, decoratedHandler);
+		setEndpointProxyHandler(endpointProxy, testEndpoint, decoratedHandler);
 		super.testOnOpenThenOnClose();
 	}
 
@@ -97,7 +111,7 @@ public abstract class EndpointDynamicProxyTests extends EndpointProxyTests {
 				return handlerFromConfigurator.invoke(proxy, method, args);
 			}
 		};
-		setEndpointProxyHandler(endpointProxy, decoratedHandler);
+		setEndpointProxyHandler(endpointProxy, testEndpoint, decoratedHandler);
 		super.testToStringBeforeOnOpen();
 	}
 
@@ -105,7 +119,8 @@ public abstract class EndpointDynamicProxyTests extends EndpointProxyTests {
 
 	@Override
 	public final void testTwoSeparateEndpoints() throws Exception {
-		setEndpointProxyHandler(endpointProxy, configurator.getAdditionalDecorator(testEndpoint));
+		setEndpointProxyHandler(
+				endpointProxy, testEndpoint, configurator.getAdditionalDecorator(testEndpoint));
 		super.testTwoSeparateEndpoints();
 	}
 
@@ -126,6 +141,7 @@ public abstract class EndpointDynamicProxyTests extends EndpointProxyTests {
 				.getConstructor().newInstance();
 		setEndpointProxyHandler(
 			secondProxy,
+			secondEndpoint,
 			(proxy, method, args) -> method.invoke(secondEndpoint, args)
 		);
 		return secondProxy;
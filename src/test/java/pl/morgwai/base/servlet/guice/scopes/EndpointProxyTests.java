@@ -2,13 +2,10 @@
 package pl.morgwai.base.servlet.guice.scopes;
 
 import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpSession;
 import javax.websocket.*;
-import org.easymock.EasyMockSupport;
-import org.easymock.Mock;
 import org.junit.*;
 
 import pl.morgwai.base.guice.scopes.ContextTracker;
@@ -18,7 +15,7 @@ import static org.junit.Assert.*;
 
 
 
-public abstract class EndpointProxyTests extends EasyMockSupport {
+public abstract class EndpointProxyTests extends MockConnectionTests {
 
 
 
@@ -37,22 +34,11 @@ public abstract class EndpointProxyTests extends EasyMockSupport {
 
 	/** {@code Endpoint} wrapped by {@link #endpointProxy the test subject}. */
 	protected TestEndpoint testEndpoint;
-	@Mock protected Session mockConnection;
-	final Map<String, Object> userProperties = new HashMap<>(2);
-
-	protected final ContextTracker<ContainerCallContext> ctxTracker = new ContextTracker<>();
-
-	@Mock protected HttpSession mockHttpSession;
 
 
 
 	@Before
 	public final void setup() throws Exception {
-		injectMocks(this);
-		userProperties.put(HttpSession.class.getName(), mockHttpSession);
-		expect(mockConnection.getUserProperties())
-			.andReturn(userProperties)
-			.anyTimes();
 		additionalSetup();
 
 		testEndpoint = createEndpoint(ctxTracker, mockConnection, mockHttpSession);
@@ -75,13 +61,6 @@ public abstract class EndpointProxyTests extends EasyMockSupport {
 
 
 
-	@After
-	public final void verifyMocks() {
-		verifyAll();
-	}
-
-
-
 	@ClientEndpoint
 	public static class AnnotatedTestEndpoint implements TestEndpoint {
 
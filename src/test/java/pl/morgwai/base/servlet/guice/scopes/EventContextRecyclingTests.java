@@ -0,0 +1,163 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.*;
+import javax.websocket.*;
+import org.junit.Test;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import pl.morgwai.base.guice.scopes.ContextScope;
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static org.junit.Assert.*;
+
+
+
+public class EventContextRecyclingTests extends MockConnectionTests {
+
+
+
+	final Provider<Object> scopedProvider = new WebsocketModule.ContainerCallScope(
+		new ContextScope<>("testScope", ctxTracker)
+	).scope(Key.get(Object.class), Object::new);
+
+	GuiceEndpointConfigurator createConfigurator(boolean recycling, boolean directDispatch) {
+		final var configurator = new TestConfigurator();
+		configurator.eventContextRecycling = recycling;
+		configurator.directDispatch = directDispatch;
+		return configurator;
+	}
+
+
+
+	@ClientEndpoint
+	public static class RecordingEndpoint {
+
+		ContextTracker<ContainerCallContext> ctxTracker;
+		Provider<Object> scopedProvider;
+		/** Proxy of this {@code Endpoint} for reentrant calls. */
+		RecordingEndpoint proxy;
+
+		final List<ContainerCallContext> eventCtxs = new ArrayList<>(5);
+		final List<Object> scopedObjects = new ArrayList<>(5);
+
+
+
+		void record() {
+			final var scopedObject = scopedProvider.get();
+			assertSame("scoped object should be the same within a single event",
+					scopedObject, scopedProvider.get());
+			eventCtxs.add(ctxTracker.getCurrentContext());
+			scopedObjects.add(scopedObject);
+		}
+
+
+
+		@OnOpen
+		public void onOpen(Session connection) {
+			record();
+		}
+
+
+
+		@OnMessage
+		public void onMessage(String message) {
+			record();
+			if (message.equals(REENTER)) proxy.onMessage("nested");
+		}
+
+		static final String REENTER = "reenter";
+
+
+
+		@OnClose
+		public void onClose(Session connection) {
+			record();
+		}
+	}
+
+
+
+	RecordingEndpoint createEndpointProxy(RecordingEndpoint endpoint, boolean recycling)
+			throws Exception {
+		endpoint.ctxTracker = ctxTracker;
+		endpoint.scopedProvider = scopedProvider;
+		endpoint.proxy = createConfigurator(recycling, false)
+			.getProxyForEndpoint(endpoint, false, false);
+		return endpoint.proxy;
+	}
+
+
+
+	void testRecycling(boolean directDispatch) throws Exception {
+		replayAll();
+		final var endpoint = new RecordingEndpoint();
+		endpoint.ctxTracker = ctxTracker;
+		endpoint.scopedProvider = scopedProvider;
+		final var endpointProxy = createConfigurator(true, directDispatch)
+			.getProxyForEndpoint(endpoint, false, false);
+
+		endpointProxy.onOpen(mockConnection);
+		endpointProxy.onMessage("1");
+		endpointProxy.onMessage("2");
+		endpointProxy.onClose(mockConnection);
+
+		assertEquals("all events should be recorded", 4, endpoint.eventCtxs.size());
+		for (var eventCtx: endpoint.eventCtxs) {
+			assertSame("the same WebsocketEventContext should be reused for all events",
+					endpoint.eventCtxs.get(0), eventCtx);
+		}
+		assertEquals("scoped objects should be isolated between events",
+				4, new HashSet<>(endpoint.scopedObjects).size());
+		assertNull("no Context should be active after an event", ctxTracker.getCurrentContext());
+	}
+
+	@Test
+	public void testRecycling() throws Exception {
+		testRecycling(false);
+	}
+
+	@Test
+	public void testRecyclingWithDirectDispatch() throws Exception {
+		testRecycling(true);
+	}
+
+
+
+	@Test
+	public void testNoRecyclingByDefault() throws Exception {
+		replayAll();
+		final var endpoint = new RecordingEndpoint();
+		final var endpointProxy = createEndpointProxy(endpoint, false);
+
+		endpointProxy.onOpen(mockConnection);
+		endpointProxy.onMessage("1");
+
+		assertNotSame("a new WebsocketEventContext should be created for each event",
+				endpoint.eventCtxs.get(0), endpoint.eventCtxs.get(1));
+	}
+
+
+
+	@Test
+	public void testReentrantEventGetsSeparateContext() throws Exception {
+		replayAll();
+		final var endpoint = new RecordingEndpoint();
+		final var endpointProxy = createEndpointProxy(endpoint, true);
+
+		endpointProxy.onOpen(mockConnection);
+		endpointProxy.onMessage(RecordingEndpoint.REENTER);
+		endpointProxy.onMessage("1");
+
+		final var recycledCtx = endpoint.eventCtxs.get(0);
+		assertSame("outer event should use the recycled Context",
+				recycledCtx, endpoint.eventCtxs.get(1));
+		assertNotSame("reentrant event should get a separate Context",
+				recycledCtx, endpoint.eventCtxs.get(2));
+		assertNotSame("reentrant event should not share scoped objects with the outer one",
+				endpoint.scopedObjects.get(1), endpoint.scopedObjects.get(2));
+		assertSame("recycled Context should be available again after the outer event",
+				recycledCtx, endpoint.eventCtxs.get(3));
+	}
+}
@@ -0,0 +1,296 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.websocket.*;
+import org.junit.Test;
+
+import pl.morgwai.base.guice.scopes.ContextTracker;
+import pl.morgwai.base.servlet.guice.scopes.EndpointProxyHandler.Offloading;
+
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.EndpointProxyHandler.getMethodOffloadings;
+
+
+
+public class EventOffloadingTests extends MockConnectionTests {
+
+
+
+	/** Tasks passed to the backing {@code Executor} by connections' {@link SerialExecutor}s. */
+	final Queue<Runnable> backingTasks = new ConcurrentLinkedQueue<>();
+	Executor backingExecutor = backingTasks::add;
+
+
+
+	@ClientEndpoint
+	public static class OffloadedEndpoint {
+
+		ContextTracker<ContainerCallContext> ctxTracker;
+
+		final List<String> events = new ArrayList<>(5);
+		final List<ContainerCallContext> eventCtxs = new ArrayList<>(5);
+		final List<Thread> eventThreads = new ArrayList<>(5);
+
+
+
+		void record(String event) {
+			events.add(event);
+			eventCtxs.add(ctxTracker.getCurrentContext());
+			eventThreads.add(Thread.currentThread());
+		}
+
+
+
+		@OnOpen
+		public void onOpen(Session connection) {
+			record("open");
+		}
+
+
+
+		@OnMessage
+		public String onMessage(String message) {
+			record(message);
+			return message.toUpperCase();
+		}
+
+
+
+		@OnMessage
+		public void onMessage(ByteBuffer message) {
+			record("binary");
+		}
+
+
+
+		@OnMessage
+		public void onPong(PongMessage pong, Session connection) {
+			record("pong");
+		}
+
+
+
+		@OnError
+		public void onError(Session connection, Throwable error) {
+			record("error");
+		}
+
+
+
+		@OnClose
+		public void onClose(Session connection) {
+			record("close");
+		}
+
+
+
+		public List<String> getEvents() {
+			return events;
+		}
+	}
+
+
+
+	/** Creates a proxy for {@code endpoint} with {@link #backingExecutor} as the event executor. */
+	<EndpointT> EndpointT createEndpointProxy(EndpointT endpoint, boolean directDispatch)
+			throws Exception {
+		final var configurator = new TestConfigurator();
+		configurator.eventExecutor = backingExecutor;
+		configurator.directDispatch = directDispatch;
+		return configurator.getProxyForEndpoint(endpoint, false, false);
+	}
+
+
+
+	@Test
+	public void testAsyncEventsAreExecutedInOrder() throws Exception {
+		replayAll();
+		final var endpoint = new OffloadedEndpoint();
+		endpoint.ctxTracker = ctxTracker;
+		final var endpointProxy = createEndpointProxy(endpoint, false);
+
+		endpointProxy.onOpen(mockConnection);
+		endpointProxy.onError(mockConnection, new Exception("expected"));
+		endpointProxy.onClose(mockConnection);
+		assertTrue("asynchronous calls should not be executed by the calling Thread",
+				endpoint.events.isEmpty());
+		assertEquals("only 1 task should be passed to the backing Executor at a time",
+				1, backingTasks.size());
+		backingTasks.poll().run();
+
+		assertEquals("all events should be executed in order",
+				List.of("open", "error", "close"), endpoint.events);
+		final var connectionCtx =
+				((WebsocketEventContext) endpoint.eventCtxs.get(0)).getConnectionContext();
+		for (var eventCtx: endpoint.eventCtxs) {
+			assertSame("each event should be executed within the connection's Context",
+					connectionCtx, ((WebsocketEventContext) eventCtx).getConnectionContext());
+		}
+		assertNull("no Context should be active after an event", ctxTracker.getCurrentContext());
+	}
+
+	void testAwaitedEventReturnsResultFromAnotherThread(boolean directDispatch)
+			throws Exception {
+		replayAll();
+		final var executor = Executors.newCachedThreadPool();
+		backingExecutor = executor;
+		try {
+			final var endpoint = new OffloadedEndpoint();
+			endpoint.ctxTracker = ctxTracker;
+			final var endpointProxy = createEndpointProxy(endpoint, directDispatch);
+
+			endpointProxy.onOpen(mockConnection);
+			assertEquals("result of an awaited call should be returned",
+					"MSG", endpointProxy.onMessage("msg"));
+			assertEquals("all events should be executed in order",
+					List.of("open", "msg"), endpoint.events);
+			assertNotSame("awaited call should be executed by the backing Executor",
+					Thread.currentThread(), endpoint.eventThreads.get(1));
+			assertNotNull("awaited call should be executed within a Context",
+					endpoint.eventCtxs.get(1));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testAwaitedEventReturnsResultFromAnotherThread() throws Exception {
+		testAwaitedEventReturnsResultFromAnotherThread(false);
+	}
+
+	@Test
+	public void testAwaitedEventReturnsResultFromAnotherThreadWithDirectDispatch()
+			throws Exception {
+		testAwaitedEventReturnsResultFromAnotherThread(true);
+	}
+
+
+
+	@ClientEndpoint
+	public static class FailingEndpoint {
+
+		ContextTracker<ContainerCallContext> ctxTracker;
+		final List<Throwable> errors = new ArrayList<>(2);
+		final List<ContainerCallContext> errorCtxs = new ArrayList<>(2);
+
+		@OnOpen
+		public void onOpen(Session connection) {
+			throw new RuntimeException("expected");
+		}
+
+		@OnError
+		public void onError(Session connection, Throwable error) {
+			errors.add(error);
+			errorCtxs.add(ctxTracker.getCurrentContext());
+			throw new RuntimeException("expected from onError");
+		}
+	}
+
+	@Test
+	public void testAsyncEventFailureIsDeliveredToOnError() throws Exception {
+		replayAll();
+		final var endpoint = new FailingEndpoint();
+		endpoint.ctxTracker = ctxTracker;
+		final var endpointProxy = createEndpointProxy(endpoint, false);
+
+		endpointProxy.onOpen(mockConnection);
+		backingTasks.poll().run();
+		assertEquals("failure of onOpen should be delivered to onError", 1, endpoint.errors.size());
+		assertEquals("delivered error should be the one thrown by onOpen",
+				"expected", endpoint.errors.get(0).getMessage());
+		assertTrue("onError should be executed within a WebsocketEventContext",
+				endpoint.errorCtxs.get(0) instanceof WebsocketEventContext);
+		assertNull("no Context should be active after an event", ctxTracker.getCurrentContext());
+	}
+
+	@Test
+	public void testAsyncOnErrorFailureIsNotDeliveredBack() throws Exception {
+		replayAll();
+		final var endpoint = new FailingEndpoint();
+		endpoint.ctxTracker = ctxTracker;
+		final var endpointProxy = createEndpointProxy(endpoint, false);
+		endpointProxy.onOpen(mockConnection);
+		backingTasks.poll().run();
+		endpoint.errors.clear();
+
+		final var error = new Exception("expected");
+		endpointProxy.onError(mockConnection, error);
+		backingTasks.poll().run();
+		assertEquals("onError should be called only once", List.of(error), endpoint.errors);
+	}
+
+
+
+	@Test
+	public void testConvertPathParam() throws Exception {
+		replayAll();
+		assertEquals("String should not be converted",
+				"value", EndpointProxyHandler.convertPathParam("value", String.class));
+		assertEquals("primitive param should be converted",
+				42, EndpointProxyHandler.convertPathParam("42", int.class));
+		assertEquals("wrapper param should be converted",
+				true, EndpointProxyHandler.convertPathParam("true", Boolean.class));
+		assertEquals("char param should be converted",
+				'c', EndpointProxyHandler.convertPathParam("c", char.class));
+		assertNull("missing param should be null",
+				EndpointProxyHandler.convertPathParam(null, long.class));
+	}
+
+
+
+	@Test
+	public void testNonLifecycleMethodsAreNotOffloaded() throws Exception {
+		replayAll();
+		final var endpoint = new OffloadedEndpoint();
+		endpoint.ctxTracker = ctxTracker;
+		final var endpointProxy = createEndpointProxy(endpoint, false);
+		endpointProxy.onOpen(mockConnection);
+
+		assertSame("non-lifecycle method should be executed directly",
+				endpoint.events, endpointProxy.getEvents());
+		assertEquals("non-lifecycle method should not be passed to the backing Executor",
+				1, backingTasks.size());
+	}
+
+
+
+	public static class ProgrammaticEndpoint extends Endpoint {
+		@Override public void onOpen(Session connection, EndpointConfig config) {}
+		@Override public void onClose(Session connection, CloseReason closeReason) {}
+	}
+
+	@Test
+	public void testGetMethodOffloadings() throws Exception {
+		replayAll();
+		final var annotatedOffloadings = getMethodOffloadings(OffloadedEndpoint.class);
+		final var endpointClass = OffloadedEndpoint.class;
+		assertEquals("annotated onOpen should be asynchronous",
+				Offloading.ASYNC,
+				annotatedOffloadings.get(endpointClass.getMethod("onOpen", Session.class)));
+		assertEquals("method returning a reply should be awaited",
+				Offloading.AWAIT,
+				annotatedOffloadings.get(endpointClass.getMethod("onMessage", String.class)));
+		assertEquals("method accepting a ByteBuffer should be awaited",
+				Offloading.AWAIT,
+				annotatedOffloadings.get(endpointClass.getMethod("onMessage", ByteBuffer.class)));
+		assertEquals("method accepting a PongMessage should be awaited",
+				Offloading.AWAIT,
+				annotatedOffloadings.get(
+						endpointClass.getMethod("onPong", PongMessage.class, Session.class)));
+		assertFalse("non-lifecycle methods should not be offloaded",
+				annotatedOffloadings.containsKey(endpointClass.getMethod("getEvents")));
+
+		final var programmaticOffloadings = getMethodOffloadings(ProgrammaticEndpoint.class);
+		assertEquals("programmatic onOpen should be awaited",
+				Offloading.AWAIT,
+				programmaticOffloadings.get(ProgrammaticEndpoint.class.getMethod(
+						"onOpen", Session.class, EndpointConfig.class)));
+		assertEquals("programmatic onClose should be asynchronous",
+				Offloading.ASYNC,
+				programmaticOffloadings.get(ProgrammaticEndpoint.class.getMethod(
+						"onClose", Session.class, CloseReason.class)));
+	}
+}
@@ -3,6 +3,8 @@ package pl.morgwai.base.servlet.guice.scopes;
 
 import java.lang.annotation.Annotation;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
 import org.junit.Test;
@@ -173,4 +175,31 @@ public class GuiceEndpointConfiguratorGetProxyClassTests {
 		assertTrue("proxyClass should be a subclass of ProgrammaticEndpoint",
 				ProgrammaticEndpoint.class.isAssignableFrom(proxyClass));
 	}
+
+
+
+	@Test
+	public void testPrebuildProxyClasses() {
+		final var pool = new ForkJoinPool(2);
+		try {
+			configurator.prebuildProxyClasses(
+				List.of(AnnotatedEndpoint.class, AnnotatedExtendingEndpoint.class), pool);
+			try {
+				configurator.prebuildProxyClasses(
+					List.of(
+						ProgrammaticEndpoint.class,
+						AnnotatedEndpointWithoutOnClose.class,
+						AnnotatedEndpointWithoutSessionParamInOnOpen.class
+					),
+					pool
+				);
+				fail("prebuilding should fail for invalid Endpoint classes");
+			} catch (IllegalArgumentException expected) {
+				assertEquals("failure of the other invalid class should be suppressed",
+						1, expected.getSuppressed().length);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
 }
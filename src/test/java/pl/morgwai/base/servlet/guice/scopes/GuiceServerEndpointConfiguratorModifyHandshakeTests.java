@@ -1,7 +1,6 @@
 // Copyright 2021 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
 package pl.morgwai.base.servlet.guice.scopes;
 
-import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
@@ -97,6 +96,9 @@ public class GuiceServerEndpointConfiguratorModifyHandshakeTests extends EasyMoc
 		expect(mockInjector.getInstance(ServletContext.class))
 			.andReturn(mockDeployment)
 			.anyTimes();
+		expect(mockInjector.getExistingBinding(ContainerCallMetrics.KEY))
+			.andReturn(null)
+			.anyTimes();
 	}
 
 	@After
@@ -161,21 +163,44 @@ public class GuiceServerEndpointConfiguratorModifyHandshakeTests extends EasyMoc
 			.anyTimes();
 		replayAll();
 
-		final var leakedDeploymentPath = "/leaked1";
-		GuiceServerEndpointConfigurator.deploymentInjectors.put( // test skipping leaked deployments
-				leakedDeploymentPath, new WeakReference<>(null));
 		GuiceServerEndpointConfigurator.registerInjector(mockInjector);
 		try {
 			configurator.modifyHandshake(mockConfig, mockRequest, mockResponse);
 			verifyInitialization();
 		} finally {
 			GuiceServerEndpointConfigurator.deregisterInjector(mockInjector);
-			GuiceServerEndpointConfigurator.deploymentInjectors.remove(leakedDeploymentPath);
 		}
 	}
 
 
 
+	@Mock Injector staleInjector;
+
+	@Test
+	public void testDeregisteringStaleInjectorKeepsRedeployedOne() {
+		expect(mockRequest.getHttpSession())
+			.andReturn(null)
+			.anyTimes();
+		expect(staleInjector.getInstance(APP_DEPLOYMENT_PATH_KEY))
+			.andReturn(MOCK_DEPLOYMENT_PATH)
+			.anyTimes();
+		replayAll();
+
+		GuiceServerEndpointConfigurator.registerInjector(staleInjector);
+		GuiceServerEndpointConfigurator.registerInjector(mockInjector);
+		try {
+			GuiceServerEndpointConfigurator.deregisterInjector(staleInjector);
+			configurator.modifyHandshake(mockConfig, mockRequest, mockResponse);
+			verifyInitialization();
+		} finally {
+			GuiceServerEndpointConfigurator.deregisterInjector(mockInjector);
+		}
+		assertTrue("all Injectors should be deregistered",
+				GuiceServerEndpointConfigurator.deploymentInjectors.isEmpty());
+	}
+
+
+
 	@Mock Injector secondInjector;
 
 	@Test
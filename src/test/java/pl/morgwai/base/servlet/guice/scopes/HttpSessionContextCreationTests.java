@@ -0,0 +1,117 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpSession;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.HttpSessionContext.CUSTOM_SERIALIZATION_PARAM;
+
+
+
+public class HttpSessionContextCreationTests {
+
+
+
+	final AtomicInteger initParamReadCount = new AtomicInteger(0);
+	final FakeAppDeployment appDeployment = new FakeAppDeployment("") {
+		@Override public String getInitParameter(String name) {
+			initParamReadCount.incrementAndGet();
+			return super.getInitParameter(name);
+		}
+	};
+
+
+
+	HttpSession newMockSession(String id) {
+		final var attributes = new ConcurrentHashMap<String, Object>();
+		final HttpSession mockSession = createMock(HttpSession.class);
+		expect(mockSession.getServletContext())
+			.andReturn(appDeployment)
+			.anyTimes();
+		expect(mockSession.getId())
+			.andReturn(id)
+			.anyTimes();
+		expect(mockSession.getAttribute(anyString()))
+			.andAnswer(() -> attributes.get((String) getCurrentArgument(0)))
+			.anyTimes();
+		mockSession.setAttribute(anyString(), anyObject());
+		expectLastCall()
+			.andAnswer(() -> attributes.put(getCurrentArgument(0), getCurrentArgument(1)))
+			.anyTimes();
+		replay(mockSession);
+		return mockSession;
+	}
+
+
+
+	@Test
+	public void testCtxIsCreatedOnFirstUseAndReused() {
+		final var mockSession = newMockSession("session");
+		assertNull("ctx should not be created eagerly",
+				mockSession.getAttribute(HttpSessionContext.class.getName()));
+
+		final var ctx = HttpSessionContext.of(mockSession);
+		assertSame("ctx should be stored as a session attribute",
+				ctx, mockSession.getAttribute(HttpSessionContext.class.getName()));
+		assertSame("the same ctx should be returned on subsequent calls",
+				ctx, HttpSessionContext.of(mockSession));
+		verify(mockSession);
+	}
+
+
+
+	@Test
+	public void testConcurrentFirstUsesCreateSingleCtx() throws Exception {
+		final var mockSession = newMockSession("session");
+		final int threadCount = 8;
+		final var executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			final var startBarrier = new CyclicBarrier(threadCount);
+			@SuppressWarnings("unchecked")
+			final CompletableFuture<HttpSessionContext>[] results =
+					new CompletableFuture[threadCount];
+			for (int i = 0; i < threadCount; i++) {
+				results[i] = CompletableFuture.supplyAsync(
+					() -> {
+						try {
+							startBarrier.await();
+						} catch (InterruptedException | BrokenBarrierException e) {
+							throw new CompletionException(e);
+						}
+						return HttpSessionContext.of(mockSession);
+					},
+					executor
+				);
+			}
+			final var ctx = results[0].get(5L, SECONDS);
+			assertSame("created ctx should be stored as a session attribute",
+					ctx, mockSession.getAttribute(HttpSessionContext.class.getName()));
+			for (var result: results) {
+				assertSame("all threads should obtain the same ctx", ctx, result.get(5L, SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+
+	@Test
+	public void testInitParamsAreReadOncePerDeployment() {
+		appDeployment.setInitParameter(CUSTOM_SERIALIZATION_PARAM, "true");
+		final var firstCtx = HttpSessionContext.of(newMockSession("first"));
+		final var readCount = initParamReadCount.get();
+		assertTrue("init-params should be read", readCount > 0);
+		assertTrue("init-param value should be applied", firstCtx.customSerialization);
+
+		final var secondCtx = HttpSessionContext.of(newMockSession("second"));
+		assertEquals("init-params should not be read again within the same deployment",
+				readCount, initParamReadCount.get());
+		assertTrue("init-param value should be applied", secondCtx.customSerialization);
+	}
+}
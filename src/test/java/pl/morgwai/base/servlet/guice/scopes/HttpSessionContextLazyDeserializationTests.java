@@ -0,0 +1,99 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import org.junit.*;
+
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import pl.morgwai.base.servlet.guice.scopes.CompactScopedObjectsFormat.SerializedValue;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.guice.scopes.ContextSerializationTestUtils.serialize;
+import static pl.morgwai.base.servlet.guice.scopes.HttpSessionContext.*;
+
+
+
+public class HttpSessionContextLazyDeserializationTests {
+
+
+
+	static final Key<List<String>> LIST_KEY = Key.get(new TypeLiteral<>() {});
+
+	HttpSession mockSession;
+	HttpSessionContext deserializedCtx;
+
+
+
+	@Before
+	public void setup() throws IOException {
+		final var appDeployment = new FakeAppDeployment("");
+		appDeployment.setInitParameter(COMPACT_SERIALIZATION_PARAM, "true");
+		appDeployment.setInitParameter(LAZY_DESERIALIZATION_PARAM, "true");
+		appDeployment.setInitParameter(MODIFICATION_TRACKING_PARAM, "true");
+		mockSession = createMock(HttpSession.class);
+		expect(mockSession.getServletContext())
+			.andReturn(appDeployment)
+			.anyTimes();
+		mockSession.setAttribute(eq(HttpSessionContext.class.getName()), anyObject());
+		expectLastCall().once();  // only for the initial creation of the scoped list
+		replay(mockSession);
+		final var ctx = new HttpSessionContext(mockSession);
+		ctx.produce(LIST_KEY, () -> new ArrayList<>(List.of("scoped")));
+		deserializedCtx = (HttpSessionContext) serialize(ctx);
+		deserializedCtx.sessionDidActivate(new HttpSessionEvent(mockSession));
+	}
+
+
+
+	@After
+	public void verifyMocks() {
+		verify(mockSession);
+	}
+
+
+
+	@Test
+	public void testScopedObjectIsDeserializedOnFirstAccess() {
+		final var scopedObjects = deserializedCtx.compactModeScopedObjects;
+		assertTrue("scoped object should remain serialized until accessed",
+				scopedObjects.get(LIST_KEY) instanceof SerializedValue);
+
+		final var scopedList = deserializedCtx.produce(LIST_KEY, List::of);
+		assertEquals("scoped object should be deserialized on access",
+				List.of("scoped"), scopedList);
+		assertSame("deserialized scoped object should replace its serialized form",
+				scopedList, scopedObjects.get(LIST_KEY));
+	}
+
+
+
+	@Test
+	public void testUndeserializableScopedObjectIsDiscarded() {
+		final var scopedObjects = deserializedCtx.compactModeScopedObjects;
+		scopedObjects.replace(
+				LIST_KEY, scopedObjects.get(LIST_KEY), new SerializedValue(new byte[] {6, 6, 6}));
+		final var replacement = List.of("replacement");
+		reset(mockSession);
+		mockSession.setAttribute(eq(HttpSessionContext.class.getName()), anyObject());
+		expectLastCall().once();  // creation of the replacement
+		replay(mockSession);
+
+		final var logger = Logger.getLogger(HttpSessionContext.class.getName());
+		final var previousLevel = logger.getLevel();
+		logger.setLevel(Level.OFF);
+		try {
+			assertSame("undeserializable scoped object should be replaced with a new one",
+					replacement, deserializedCtx.produce(LIST_KEY, () -> replacement));
+		} finally {
+			logger.setLevel(previousLevel);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import org.junit.Test;
+
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.guice.scopes.ContextSerializationTestUtils.serialize;
+import static pl.morgwai.base.servlet.guice.scopes.HttpSessionContext.*;
+
+
+
+public class HttpSessionContextModificationTrackingTests {
+
+
+
+	static final String CTX_ATTRIBUTE = HttpSessionContext.class.getName();
+	static final Key<String> FIRST_KEY = Key.get(String.class, Names.named("first"));
+	static final Key<String> SECOND_KEY = Key.get(String.class, Names.named("second"));
+
+
+
+	static HttpSession newMockSession(boolean compactSerialization, boolean modificationTracking) {
+		final var appDeployment = new FakeAppDeployment("");
+		appDeployment.setInitParameter(
+			COMPACT_SERIALIZATION_PARAM,
+			String.valueOf(compactSerialization)
+		);
+		appDeployment.setInitParameter(
+			MODIFICATION_TRACKING_PARAM,
+			String.valueOf(modificationTracking)
+		);
+		final HttpSession mockSession = createMock(HttpSession.class);
+		expect(mockSession.getServletContext())
+			.andReturn(appDeployment)
+			.anyTimes();
+		return mockSession;
+	}
+
+
+
+	static Object produceIfAbsent(HttpSessionContext ctx, Key<String> key, String value) {
+		return ctx.produce(key, () -> value);
+	}
+
+
+
+	@Test
+	public void testSessionIsMarkedOnlyOncePerSerialization() {
+		final var mockSession = newMockSession(false, true);
+		mockSession.setAttribute(eq(CTX_ATTRIBUTE), anyObject(HttpSessionContext.class));
+		expectLastCall().times(2);
+		replay(mockSession);
+		final var ctx = new HttpSessionContext(mockSession);
+
+		produceIfAbsent(ctx, FIRST_KEY, "first");
+		produceIfAbsent(ctx, SECOND_KEY, "second");  // session already marked
+		ctx.prepareForSerialization();
+		produceIfAbsent(ctx, FIRST_KEY, "unused");  // no modification
+		ctx.markModified(FIRST_KEY);
+		ctx.removeScopedObject(SECOND_KEY);  // session already marked
+		verify(mockSession);
+	}
+
+
+
+	@Test
+	public void testUnmodifiedCtxReusesSerializedForm() {
+		final var mockSession = newMockSession(true, true);
+		mockSession.setAttribute(eq(CTX_ATTRIBUTE), anyObject(HttpSessionContext.class));
+		expectLastCall().anyTimes();
+		replay(mockSession);
+		final var ctx = new HttpSessionContext(mockSession);
+		produceIfAbsent(ctx, FIRST_KEY, "first");
+
+		ctx.prepareForSerialization();
+		final var serializedForm = ctx.compactScopedObjects;
+		assertNotNull("scoped objects should be serialized", serializedForm);
+		ctx.prepareForSerialization();
+		assertSame("unmodified scoped objects should not be serialized again",
+				serializedForm, ctx.compactScopedObjects);
+
+		produceIfAbsent(ctx, SECOND_KEY, "second");
+		ctx.prepareForSerialization();
+		assertNotSame("modified scoped objects should be serialized again",
+				serializedForm, ctx.compactScopedObjects);
+		final var modifiedForm = ctx.compactScopedObjects;
+		ctx.markModified(FIRST_KEY);
+		ctx.prepareForSerialization();
+		assertNotSame("scoped objects marked as modified should be serialized again",
+				modifiedForm, ctx.compactScopedObjects);
+		verify(mockSession);
+	}
+
+
+
+	@Test
+	public void testNoTrackingByDefault() throws Exception {
+		final var mockSession = newMockSession(true, false);
+		replay(mockSession);  // no setAttribute(...) calls expected
+		final var ctx = new HttpSessionContext(mockSession);
+		final var mutableList = new ArrayList<String>();
+		ctx.produce(LIST_KEY, () -> mutableList);
+
+		ctx.prepareForSerialization();
+		final var serializedForm = ctx.compactScopedObjects;
+		mutableList.add("mutated in place");
+		ctx.prepareForSerialization();
+		assertNotSame("scoped objects should be serialized each time",
+				serializedForm, ctx.compactScopedObjects);
+		assertEquals("in-place mutations should be serialized",
+				List.of("mutated in place"),
+				CompactScopedObjectsFormat.decode(ctx.compactScopedObjects, false).get(LIST_KEY));
+
+		final var deserializedCtx = (HttpSessionContext) serialize(ctx);
+		assertTrue("deserialized ctx should not be considered up-to-date",
+				deserializedCtx.isSerializedFormOutdated());
+		verify(mockSession);
+	}
+
+	static final Key<List<String>> LIST_KEY = Key.get(new TypeLiteral<>() {});
+
+
+
+	public void testDeserializedCtxTracksModifications(boolean compactSerialization)
+			throws IOException {
+		final var mockSession = newMockSession(compactSerialization, true);
+		mockSession.setAttribute(eq(CTX_ATTRIBUTE), anyObject(HttpSessionContext.class));
+		expectLastCall().times(2);
+		replay(mockSession);
+		final var ctx = new HttpSessionContext(mockSession);
+		produceIfAbsent(ctx, FIRST_KEY, "first");
+
+		final var deserializedCtx = (HttpSessionContext) serialize(ctx);
+		deserializedCtx.sessionDidActivate(new HttpSessionEvent(mockSession));
+		assertEquals("scoped object should be restored",
+				"first", produceIfAbsent(deserializedCtx, FIRST_KEY, "unused"));
+		produceIfAbsent(deserializedCtx, SECOND_KEY, "second");
+		verify(mockSession);
+	}
+
+	@Test
+	public void testDeserializedCtxTracksModificationsWithCompactSerialization()
+			throws IOException {
+		testDeserializedCtxTracksModifications(true);
+	}
+
+	@Test
+	public void testDeserializedCtxTracksModificationsWithStandardSerialization()
+			throws IOException {
+		testDeserializedCtxTracksModifications(false);
+	}
+}
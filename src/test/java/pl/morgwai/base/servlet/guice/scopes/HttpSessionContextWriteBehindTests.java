@@ -0,0 +1,178 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.*;
+
+import com.google.inject.Key;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.HttpSessionContext.*;
+
+
+
+public class HttpSessionContextWriteBehindTests extends EasyMockSupport {
+
+
+
+	static final long WINDOW_MILLIS = 3_600_000L;  // tasks stay pending until run manually
+
+	final HttpSessionContextWriteBehind writeBehind =
+			new HttpSessionContextWriteBehind(WINDOW_MILLIS, "testWriteBehind");
+
+	@Mock HttpServletRequest mockRequest;
+	@Mock HttpSession mockSession;
+	HttpSessionContext ctx;
+
+
+
+	@Before
+	public void setup() {
+		injectMocks(this);
+		final var appDeployment = new FakeAppDeployment("");
+		appDeployment.setInitParameter(COMPACT_SERIALIZATION_PARAM, "true");
+		appDeployment.setInitParameter(MODIFICATION_TRACKING_PARAM, "true");
+		expect(mockSession.getServletContext())
+			.andReturn(appDeployment)
+			.anyTimes();
+		mockSession.setAttribute(eq(HttpSessionContext.class.getName()), anyObject());
+		expectLastCall().anyTimes();  // marking session as modified
+		expect(mockRequest.isAsyncStarted())
+			.andReturn(false)
+			.anyTimes();
+		expect(mockRequest.getSession(false))
+			.andReturn(mockSession)
+			.anyTimes();
+		expect(mockSession.getAttribute(HttpSessionContext.class.getName()))
+			.andAnswer(() -> ctx)
+			.anyTimes();
+		replayAll();
+		ctx = new HttpSessionContext(mockSession);
+	}
+
+
+
+	@After
+	public void shutdown() throws InterruptedException {
+		writeBehind.shutdown();
+		verifyAll();
+	}
+
+
+
+	void modifyScopedObjects(String value) {
+		ctx.removeScopedObject(Key.get(String.class));
+		ctx.produce(Key.get(String.class), () -> value);
+	}
+
+
+
+	Object decodePreparedForm(Key<?> key) throws Exception {
+		return CompactScopedObjectsFormat.decode(ctx.compactScopedObjects, false).get(key);
+	}
+
+
+
+	@Test
+	public void testRepeatedRequestsAreCoalesced() throws Exception {
+		modifyScopedObjects("first");
+		writeBehind.onRequestEnd(mockRequest);
+		modifyScopedObjects("second");
+		writeBehind.onRequestEnd(mockRequest);
+		assertEquals("modifications within the window should be coalesced into 1 task",
+				1, writeBehind.executor.getQueue().size());
+		assertEquals("coalesced task should be pending", 1, writeBehind.pendingTasks.size());
+
+		writeBehind.runPendingTask(ctx);
+		assertTrue("task should not be pending anymore", writeBehind.pendingTasks.isEmpty());
+		assertFalse("serialized form should be prepared by the task",
+				ctx.isSerializedFormOutdated());
+		assertEquals("prepared form should contain the latest modification",
+				"second", decodePreparedForm(Key.get(String.class)));
+	}
+
+
+
+	@Test
+	public void testScopedObjectsAreSnapshottedAtRequestEnd() throws Exception {
+		final var listKey = new Key<List<String>>() {};
+		final var mutableList = new ArrayList<>(List.of("atRequestEnd"));
+		ctx.produce(listKey, () -> mutableList);
+		writeBehind.onRequestEnd(mockRequest);
+		mutableList.add("afterRequestEnd");
+
+		writeBehind.runPendingTask(ctx);
+		assertEquals("prepared form should contain the state as of the end of the request",
+				List.of("atRequestEnd"), decodePreparedForm(listKey));
+	}
+
+
+
+	@Test
+	public void testModificationsAfterSnapshotKeepFormOutdated() throws Exception {
+		modifyScopedObjects("snapshotted");
+		writeBehind.onRequestEnd(mockRequest);
+		modifyScopedObjects("notSnapshotted");
+
+		writeBehind.runPendingTask(ctx);
+		assertTrue("serialized form should remain outdated", ctx.isSerializedFormOutdated());
+		ctx.prepareForSerialization();
+		assertEquals("container's passivation should serialize the latest modification",
+				"notSnapshotted", decodePreparedForm(Key.get(String.class)));
+	}
+
+
+
+	@Test
+	public void testUnmodifiedCtxIsNotScheduled() {
+		modifyScopedObjects("prepared");
+		writeBehind.onRequestEnd(mockRequest);
+		writeBehind.runPendingTask(ctx);
+		writeBehind.onRequestEnd(mockRequest);
+		assertTrue("unmodified ctx should not be scheduled", writeBehind.pendingTasks.isEmpty());
+	}
+
+
+
+	@Test
+	public void testAsyncRequestIsSkipped() {
+		final HttpServletRequest asyncRequest = createMock(HttpServletRequest.class);
+		expect(asyncRequest.isAsyncStarted())
+			.andReturn(true);
+		replay(asyncRequest);
+		modifyScopedObjects("async");
+		writeBehind.onRequestEnd(asyncRequest);
+		assertTrue("async request should not be scheduled", writeBehind.pendingTasks.isEmpty());
+	}
+
+
+
+	@Test
+	public void testStandardModeCtxIsNotScheduled() {
+		final var standardModeCtx = new HttpSessionContext(
+			mockSession,
+			new HttpSessionContext.DeploymentSettings(new FakeAppDeployment(""))
+		);
+		ctx = standardModeCtx;
+		ctx.produce(Key.get(String.class), () -> "standard");
+		writeBehind.onRequestEnd(mockRequest);
+		assertTrue("standard mode ctx should not be scheduled",
+				writeBehind.pendingTasks.isEmpty());
+	}
+
+
+
+	@Test
+	public void testRequestsAfterShutdownAreIgnored() throws InterruptedException {
+		writeBehind.shutdown();
+		modifyScopedObjects("afterShutdown");
+		writeBehind.onRequestEnd(mockRequest);
+		assertTrue("rejected task should not remain pending", writeBehind.pendingTasks.isEmpty());
+	}
+}
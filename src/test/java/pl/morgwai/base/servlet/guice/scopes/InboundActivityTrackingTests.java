@@ -0,0 +1,86 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.nio.ByteBuffer;
+import javax.websocket.*;
+import org.easymock.Capture;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+
+
+public class InboundActivityTrackingTests extends MockConnectionTests {
+
+
+
+	final GuiceEndpointConfigurator configurator = new TestConfigurator();
+
+
+
+	/** Busy-waits until {@link System#nanoTime()} advances past {@code nanos}. */
+	static void awaitNanoTimeAfter(long nanos) {
+		while (System.nanoTime() <= nanos) Thread.onSpinWait();
+	}
+
+
+
+	@ClientEndpoint
+	public static class TrackedEndpoint {
+		Session connection;
+		@OnOpen public void onOpen(Session connection) { this.connection = connection; }
+		@OnMessage public void onMessage(String message) {}
+		public void helper() {}
+	}
+
+	@Test
+	public void testEndpointOnMessageIsTracked() throws Exception {
+		replayAll();
+		final var endpoint = new TrackedEndpoint();
+		final var endpointProxy = configurator.getProxyForEndpoint(endpoint, false, false);
+		endpointProxy.onOpen(mockConnection);
+		final var connectionProxy = (WebsocketConnectionProxy) endpoint.connection;
+		endpointProxy.onMessage("untracked");
+		assertFalse("tracking should be disabled by default",
+				connectionProxy.isInboundActivityTrackingEnabled());
+
+		connectionProxy.enableInboundActivityTracking();
+		final var enabledNanos = connectionProxy.getLastInboundMessageNanos();
+		awaitNanoTimeAfter(enabledNanos);
+		endpointProxy.helper();
+		assertEquals("calls to non-onMessage methods should not be tracked",
+				enabledNanos, connectionProxy.getLastInboundMessageNanos());
+		endpointProxy.onMessage("tracked");
+		assertTrue("onMessage(...) call should be tracked",
+				connectionProxy.getLastInboundMessageNanos() > enabledNanos);
+	}
+
+
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMessageHandlerDecoratorsAreTracked() {
+		final Capture<MessageHandler.Whole<String>> textHandlerCapture = Capture.newInstance();
+		final Capture<MessageHandler.Whole<PongMessage>> pongHandlerCapture =
+				Capture.newInstance();
+		mockConnection.addMessageHandler(same(String.class), capture(textHandlerCapture));
+		mockConnection.addMessageHandler(same(PongMessage.class), capture(pongHandlerCapture));
+		replayAll();
+		final var connectionProxy = WebsocketConnectionProxy.newProxy(mockConnection, ctxTracker);
+		new WebsocketConnectionContext(connectionProxy, null);
+		connectionProxy.addMessageHandler(String.class, (MessageHandler.Whole<String>) (m) -> {});
+		connectionProxy.addMessageHandler(
+				PongMessage.class, (MessageHandler.Whole<PongMessage>) (m) -> {});
+		connectionProxy.enableInboundActivityTracking();
+		final var enabledNanos = connectionProxy.getLastInboundMessageNanos();
+		awaitNanoTimeAfter(enabledNanos);
+
+		pongHandlerCapture.getValue().onMessage(() -> ByteBuffer.allocate(0));
+		assertEquals("pongs should not be tracked",
+				enabledNanos, connectionProxy.getLastInboundMessageNanos());
+		textHandlerCapture.getValue().onMessage("tracked");
+		assertTrue("messages delivered to decorated handlers should be tracked",
+				connectionProxy.getLastInboundMessageNanos() > enabledNanos);
+	}
+}
@@ -0,0 +1,151 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.List;
+import javax.servlet.http.HttpSession;
+import javax.websocket.*;
+import org.junit.Test;
+
+import pl.morgwai.base.guice.scopes.ContextTracker;
+import pl.morgwai.base.servlet.guice.scopes.EndpointProxyTests.AnnotatedTestEndpoint;
+
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.GuiceEndpointConfigurator.isPassThroughMethod;
+
+
+
+/**
+ * Tests specific to
+ * {@link GuiceEndpointConfigurator#isLifecycleOnlyInterceptionEnabled() lifecycle-only
+ * interception}. The common contract is verified in this mode by
+ * {@link AnnotatedLifecycleOnlyEndpointDynamicProxyTests} and
+ * {@link ProgrammaticLifecycleOnlyEndpointDynamicProxyTests}.
+ */
+public class LifecycleOnlyInterceptionEndpointProxyTests extends MockConnectionTests {
+
+
+
+	@ClientEndpoint
+	public static class EndpointWithHelperMethods extends AnnotatedTestEndpoint {
+
+		public EndpointWithHelperMethods(
+			ContextTracker<ContainerCallContext> ctxTracker,
+			Session mockConnection,
+			HttpSession mockHttpSession
+		) {
+			super(ctxTracker, mockConnection, mockHttpSession);
+		}
+
+		public EndpointWithHelperMethods() {}
+
+
+
+		@OnMessage
+		public String onMessage(String message) {
+			assertNotNull("lifecycle methods should be executed within a Context",
+					ctxTracker.getCurrentContext());
+			lastMessage = message;
+			return message;
+		}
+
+		String lastMessage;
+
+
+
+		public String getLastMessage() {
+			assertNull("non-lifecycle methods should be executed outside of any Context",
+					ctxTracker.getCurrentContext());
+			return lastMessage;
+		}
+
+
+
+		@Override
+		public String toString() {
+			assertNull("non-lifecycle methods should be executed outside of any Context",
+					ctxTracker.getCurrentContext());
+			return "EndpointWithHelperMethods { lastMessage = \"" + lastMessage + "\" }";
+		}
+	}
+
+
+
+	void testLifecycleOnlyInterception(boolean directDispatch) throws Exception {
+		replayAll();
+		final var endpoint =
+				new EndpointWithHelperMethods(ctxTracker, mockConnection, mockHttpSession);
+		final var configurator = new TestConfigurator();
+		configurator.lifecycleOnlyInterception = true;
+		configurator.directDispatch = directDispatch;
+		final var endpointProxy = configurator.getProxyForEndpoint(endpoint, false, false);
+		final var message = "yo";
+
+		assertEquals("toString() should be passed to the wrapped Endpoint",
+				endpoint.toString(), endpointProxy.toString());
+		endpointProxy.onOpen(mockConnection, null);
+		assertEquals("result of a lifecycle method should be returned",
+				message, endpointProxy.onMessage(message));
+		assertEquals("result of a non-lifecycle method should be returned",
+				message, endpointProxy.getLastMessage());
+		endpointProxy.onClose(mockConnection, null);
+		assertEquals(
+			"only intercepted methods should be passed to the decorator",
+			directDispatch
+				? List.of("onOpen", "onClose")
+				: List.of("onOpen", "onMessage", "onClose"),
+			configurator.decoratedMethodNames
+		);
+	}
+
+	@Test
+	public void testLifecycleOnlyInterception() throws Exception {
+		testLifecycleOnlyInterception(false);
+	}
+
+	@Test
+	public void testLifecycleOnlyInterceptionWithDirectDispatch() throws Exception {
+		testLifecycleOnlyInterception(true);
+	}
+
+
+
+	@Test
+	public void testIsPassThroughMethod() throws NoSuchMethodException {
+		replayAll();
+		final Class<?> endpointClass = EndpointWithHelperMethods.class;
+
+		assertTrue("non-lifecycle methods should be passed through",
+				isPassThroughMethod(endpointClass.getMethod("getLastMessage")));
+		assertTrue("toString() should be passed through",
+				isPassThroughMethod(endpointClass.getMethod("toString")));
+		assertFalse("@OnMessage methods should not be passed through",
+				isPassThroughMethod(endpointClass.getMethod("onMessage", String.class)));
+		assertFalse(
+			"@OnClose methods should not be passed through",
+			isPassThroughMethod(
+					endpointClass.getMethod("onClose", Session.class, CloseReason.class))
+		);
+	}
+
+
+
+	@Test
+	public void testProgrammaticEndpointLifecycleMethodsAreNotPassedThrough()
+			throws NoSuchMethodException {
+		replayAll();
+		final Class<?> endpointClass = EndpointProxyTests.ProgrammaticTestEndpoint.class;
+
+		assertFalse(
+			"Endpoint.onOpen(...) overrides should not be passed through",
+			isPassThroughMethod(
+					endpointClass.getMethod("onOpen", Session.class, EndpointConfig.class))
+		);
+		assertFalse(
+			"Endpoint.onError(...) should not be passed through",
+			isPassThroughMethod(
+					endpointClass.getMethod("onError", Session.class, Throwable.class))
+		);
+		assertTrue("non-lifecycle methods should be passed through",
+				isPassThroughMethod(endpointClass.getMethod("getConnectionCtx")));
+	}
+}
@@ -0,0 +1,111 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.lang.reflect.InvocationHandler;
+import java.util.*;
+import java.util.concurrent.Executor;
+import javax.servlet.http.HttpSession;
+import javax.websocket.Session;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.After;
+import org.junit.Before;
+
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static org.easymock.EasyMock.expect;
+
+
+
+/**
+ * Common fixture of {@code Endpoint} proxy tests: {@link #mockConnection} with
+ * {@link #mockHttpSession} in its user properties.
+ */
+public abstract class MockConnectionTests extends EasyMockSupport {
+
+
+
+	protected final ContextTracker<ContainerCallContext> ctxTracker = new ContextTracker<>();
+
+	@Mock protected Session mockConnection;
+	@Mock protected HttpSession mockHttpSession;
+	final Map<String, Object> userProperties = new HashMap<>(2);
+
+
+
+	@Before
+	public final void setupMockConnection() {
+		injectMocks(this);
+		userProperties.put(HttpSession.class.getName(), mockHttpSession);
+		expect(mockConnection.getUserProperties())
+			.andReturn(userProperties)
+			.anyTimes();
+	}
+
+
+
+	@After
+	public final void verifyMocks() {
+		verifyAll();
+	}
+
+
+
+	/**
+	 * {@link GuiceEndpointConfigurator} using {@link #ctxTracker} with modes selected by tests.
+	 * Records names of methods passed to its {@link #getAdditionalDecorator(Object) decorators}.
+	 */
+	protected class TestConfigurator extends GuiceEndpointConfigurator {
+
+		boolean directDispatch = false;
+		boolean lifecycleOnlyInterception = false;
+		boolean eventContextRecycling = false;
+		Executor eventExecutor = null;
+		final List<String> decoratedMethodNames = new LinkedList<>();
+
+
+
+		public TestConfigurator() {
+			super(null, MockConnectionTests.this.ctxTracker, false);
+		}
+
+
+
+		@Override
+		protected boolean isDirectDispatchEnabled() {
+			return directDispatch;
+		}
+
+
+
+		@Override
+		protected boolean isLifecycleOnlyInterceptionEnabled() {
+			return lifecycleOnlyInterception;
+		}
+
+
+
+		@Override
+		protected boolean isEventContextRecyclingEnabled() {
+			return eventContextRecycling;
+		}
+
+
+
+		@Override
+		protected Executor getEventExecutor(Class<?> endpointClass) {
+			return eventExecutor;
+		}
+
+
+
+		@Override
+		protected InvocationHandler getAdditionalDecorator(Object endpoint) {
+			final var decorator = super.getAdditionalDecorator(endpoint);
+			return (proxy, method, args) -> {
+				decoratedMethodNames.add(method.getName());
+				return decorator.invoke(proxy, method, args);
+			};
+		}
+	}
+}
@@ -0,0 +1,134 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import javax.websocket.*;
+
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.ProxyClassGenerator.DIRECT_DISPATCH_OPTION;
+
+
+
+public class ProxyClassGeneratorTests {
+
+
+
+	final Path outputDir;
+
+
+
+	public ProxyClassGeneratorTests() throws IOException {
+		outputDir = Files.createTempDirectory(getClass().getSimpleName());
+	}
+
+
+
+	@After
+	public void deleteOutputDir() throws IOException {
+		try (
+			final var files = Files.walk(outputDir);
+		) {
+			files.sorted(Comparator.reverseOrder())
+				.map(Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+
+
+
+	final GuiceEndpointConfigurator directConfigurator =
+			new GuiceEndpointConfigurator(null, null, false) {
+		@Override protected boolean isDirectDispatchEnabled() { return true; }
+	};
+
+
+
+	@ClientEndpoint
+	public static class GeneratedEndpoint {
+		@OnOpen public void onOpen(Session connection) {}
+		@OnMessage public void onMessage(String message) {}
+	}
+
+	@Test
+	public void testMainSavesClassFiles() throws Exception {
+		final var proxyClassName = directConfigurator.getPrebuiltProxyClassName(
+				GeneratedEndpoint.class);
+
+		ProxyClassGenerator.main(new String[] {
+			DIRECT_DISPATCH_OPTION,
+			outputDir.toString(),
+			GeneratedEndpoint.class.getName()
+		});
+		final var classFile = outputDir.resolve(proxyClassName.replace('.', '/') + ".class");
+		assertTrue("class file should be saved in outputDir", Files.isRegularFile(classFile));
+		try (
+			final var classLoader = new URLClassLoader(
+					new URL[] {outputDir.toUri().toURL()}, getClass().getClassLoader());
+		) {
+			final var proxyClass = Class.forName(proxyClassName, false, classLoader);
+			assertSame("saved class should be a proxy for GeneratedEndpoint",
+					GeneratedEndpoint.class, proxyClass.getSuperclass());
+			assertEquals("ClientEndpoint annotation of the saved class should be retained",
+					GeneratedEndpoint.class.getAnnotation(ClientEndpoint.class),
+					proxyClass.getAnnotation(ClientEndpoint.class));
+		}
+	}
+
+
+
+	@Test
+	public void testMainRejectsUnknownOptions() throws Exception {
+		try {
+			ProxyClassGenerator.main(new String[] {
+				"-unknown",
+				outputDir.toString(),
+				GeneratedEndpoint.class.getName()
+			});
+			fail("unknown option should be rejected");
+		} catch (IllegalArgumentException expected) {}
+	}
+
+
+
+	@ClientEndpoint
+	public static class PrebuiltEndpoint {
+		@OnOpen public void onOpen(Session connection) {}
+	}
+
+	@Test
+	public void testGetProxyClassLoadsPrebuiltClass() {
+		final Class<?> prebuiltClass;
+		try (
+			final var unloadedClass = directConfigurator.makeProxyClass(
+				PrebuiltEndpoint.class,
+				directConfigurator.getPrebuiltProxyClassName(PrebuiltEndpoint.class)
+			);
+		) {
+			// simulate a class file generated at build time by injecting it into the lib's loader
+			prebuiltClass = unloadedClass
+				.load(
+					GuiceEndpointConfigurator.class.getClassLoader(),
+					ClassLoadingStrategy.Default.INJECTION
+				)
+				.getLoaded();
+		}
+
+		assertSame("prebuilt class should be used",
+				prebuiltClass, directConfigurator.getProxyClass(PrebuiltEndpoint.class));
+		assertNotSame(
+			"prebuilt classes for other modes should not be used",
+			prebuiltClass,
+			new GuiceEndpointConfigurator(null, null, false).getProxyClass(PrebuiltEndpoint.class)
+		);
+	}
+}
@@ -0,0 +1,161 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.RequestContextFilter.addStoredCtx;
+import static pl.morgwai.base.servlet.guice.scopes.RequestContextFilter.getStoredCtx;
+
+
+
+public class RequestContextFilterTests {
+
+
+
+	final ContextTracker<ContainerCallContext> firstTracker = new ContextTracker<>();
+	final ContextTracker<ContainerCallContext> secondTracker = new ContextTracker<>();
+	final Map<String, Object> attributes = new ConcurrentHashMap<>();
+	HttpServletRequest mockRequest;
+
+	final RequestContextFilter filter = new RequestContextFilter();
+	final AtomicReference<ContainerCallContext> ctxWithinChain = new AtomicReference<>();
+	final FilterChain chain =
+			(request, response) -> ctxWithinChain.set(firstTracker.getCurrentContext());
+
+
+
+	@Before
+	public void setup() {
+		filter.setCtxTracker(firstTracker);
+		filter.excludedPaths = RequestPathMatcher.compile("/static/*");
+		mockRequest = createMock(HttpServletRequest.class);
+		expect(mockRequest.getAttribute(anyString()))
+			.andAnswer(() -> attributes.get((String) getCurrentArgument(0)))
+			.anyTimes();
+		mockRequest.setAttribute(anyString(), anyObject());
+		expectLastCall()
+			.andAnswer(() -> attributes.put(getCurrentArgument(0), getCurrentArgument(1)))
+			.anyTimes();
+	}
+
+
+
+	void replayDispatch(DispatcherType dispatcherType, String servletPath) {
+		expect(mockRequest.getDispatcherType())
+			.andReturn(dispatcherType)
+			.anyTimes();
+		expect(mockRequest.getServletPath())
+			.andReturn(servletPath)
+			.anyTimes();
+		expect(mockRequest.getPathInfo())
+			.andReturn(null)
+			.anyTimes();
+		replay(mockRequest);
+	}
+
+
+
+	@Test
+	public void testSingleDeploymentCtxIsStoredDirectly() {
+		replay(mockRequest);
+		final var ctx = new ServletRequestContext(mockRequest, firstTracker);
+		addStoredCtx(mockRequest, ctx);
+		assertSame("ctx of a single deployment should be stored directly",
+				ctx, attributes.get(ServletRequestContext.class.getName()));
+		assertSame("stored ctx should be obtained",
+				ctx, getStoredCtx(mockRequest, firstTracker));
+		assertNull("ctx of another deployment should not be obtained",
+				getStoredCtx(mockRequest, secondTracker));
+	}
+
+
+
+	@Test
+	public void testSecondDeploymentSwitchesToMap() {
+		replay(mockRequest);
+		final var firstCtx = new ServletRequestContext(mockRequest, firstTracker);
+		final var secondCtx = new ServletRequestContext(mockRequest, secondTracker);
+		addStoredCtx(mockRequest, firstCtx);
+		addStoredCtx(mockRequest, secondCtx);
+		assertTrue("ctxs of multiple deployments should be stored in a Map",
+				attributes.get(ServletRequestContext.class.getName()) instanceof Map);
+		assertSame("ctx of the first deployment should be obtained",
+				firstCtx, getStoredCtx(mockRequest, firstTracker));
+		assertSame("ctx of the second deployment should be obtained",
+				secondCtx, getStoredCtx(mockRequest, secondTracker));
+
+		final var replacementCtx = new ServletRequestContext(mockRequest, firstTracker);
+		addStoredCtx(mockRequest, replacementCtx);
+		assertSame("subsequent ctx of the first deployment should replace the previous one",
+				replacementCtx, getStoredCtx(mockRequest, firstTracker));
+	}
+
+
+
+	@Test
+	public void testNoStoredCtx() {
+		replay(mockRequest);
+		assertNull("there should be no stored ctx", getStoredCtx(mockRequest, firstTracker));
+	}
+
+
+
+	@Test
+	public void testRequestIsProcessedWithinCtx() throws Exception {
+		replayDispatch(DispatcherType.REQUEST, "/page");
+		filter.doFilter(mockRequest, null, chain);
+		assertNotNull("chain should be executed within a ctx", ctxWithinChain.get());
+		assertSame("ctx should be stored for subsequent dispatches",
+				ctxWithinChain.get(), getStoredCtx(mockRequest, firstTracker));
+	}
+
+
+
+	@Test
+	public void testExcludedRequestBypassesFilter() throws Exception {
+		replayDispatch(DispatcherType.REQUEST, "/static/style.css");
+		filter.doFilter(mockRequest, null, chain);
+		assertNull("chain should not be executed within a ctx", ctxWithinChain.get());
+		assertTrue("no ctx should be stored", attributes.isEmpty());
+	}
+
+
+
+	@Test
+	public void testErrorDispatchOfBypassedRequestCreatesCtx() throws Exception {
+		replayDispatch(DispatcherType.ERROR, "/error");
+		filter.doFilter(mockRequest, null, chain);
+		assertNotNull("error handler should be executed within a ctx", ctxWithinChain.get());
+		assertSame("ctx should be stored for subsequent dispatches",
+				ctxWithinChain.get(), getStoredCtx(mockRequest, firstTracker));
+	}
+
+
+
+	@Test
+	public void testAsyncDispatchOfBypassedRequestToExcludedPathBypassesFilter()
+			throws Exception {
+		replayDispatch(DispatcherType.ASYNC, "/static/generated");
+		filter.doFilter(mockRequest, null, chain);
+		assertNull("chain should not be executed within a ctx", ctxWithinChain.get());
+	}
+
+
+
+	@Test
+	public void testAsyncDispatchWithoutStoredCtxFailsIfNoPathsConfigured() {
+		filter.excludedPaths = null;
+		replayDispatch(DispatcherType.ASYNC, "/page");
+		assertThrows(ServletException.class, () -> filter.doFilter(mockRequest, null, chain));
+	}
+}
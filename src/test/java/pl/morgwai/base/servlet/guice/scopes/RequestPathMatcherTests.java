@@ -0,0 +1,90 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+
+public class RequestPathMatcherTests {
+
+
+
+	final RequestPathMatcher matcher =
+			RequestPathMatcher.compile(" /static/*, /static-extra/*, *.css, /health ,/metrics");
+
+
+
+	@Test
+	public void testPrefixPatterns() {
+		assertTrue(matcher.matches("/static"));
+		assertTrue(matcher.matches("/static/"));
+		assertTrue(matcher.matches("/static/img/logo.png"));
+		assertTrue(matcher.matches("/static-extra/file"));
+		assertFalse(matcher.matches("/staticfile"));
+		assertFalse(matcher.matches("/stat"));
+		assertFalse(matcher.matches("/static-extrafile"));
+	}
+
+
+
+	@Test
+	public void testExtensionPatterns() {
+		assertTrue(matcher.matches("/style.css"));
+		assertTrue(matcher.matches("/theme/style.min.css"));
+		assertFalse(matcher.matches("/style.css/page"));
+		assertFalse(matcher.matches("/style.cssx"));
+		assertFalse(matcher.matches("/dir.css/"));
+	}
+
+
+
+	@Test
+	public void testExactPatterns() {
+		assertTrue(matcher.matches("/health"));
+		assertTrue(matcher.matches("/metrics"));
+		assertFalse(matcher.matches("/health/details"));
+		assertFalse(matcher.matches("/metric"));
+		assertFalse(matcher.matches(""));
+	}
+
+
+
+	@Test
+	public void testMatchAll() {
+		final var matchAll = RequestPathMatcher.compile("/*");
+		assertTrue(matchAll.matches("/"));
+		assertTrue(matchAll.matches("/anything/at/all"));
+		assertTrue(matchAll.matches(""));
+	}
+
+
+
+	@Test
+	public void testEmptyPatternListCompilesToNull() {
+		assertNull(RequestPathMatcher.compile(null));
+		assertNull(RequestPathMatcher.compile(" , "));
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInfixWildcardIsRejected() {
+		RequestPathMatcher.compile("/static/*/img");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRelativePatternIsRejected() {
+		RequestPathMatcher.compile("static/*");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidExtensionIsRejected() {
+		RequestPathMatcher.compile("*.min.css");
+	}
+}
@@ -12,10 +12,12 @@ import org.easymock.Mock;
 import org.junit.*;
 
 import com.google.inject.*;
+import com.google.inject.name.Names;
 import pl.morgwai.base.guice.scopes.ContextTracker;
 
-import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.scopes.HttpSessionContext.COMPACT_SERIALIZATION_PARAM;
 
 
 
@@ -147,4 +149,53 @@ public class ServletWebsocketModuleTests extends EasyMockSupport {
 	public void testWebsocketContextProvidersHttpSessionPresent() {
 		testWebsocketContextProviders(true);
 	}
+
+
+
+	void testHttpSessionScope(boolean compactSerialization) {
+		mockHttpSession.setAttribute(eq(HttpSessionContext.class.getName()), anyObject());
+		expectLastCall().anyTimes();  // marking session as modified
+		replayAll();
+		final var settingsDeployment = new FakeAppDeployment("/test", "testApp");
+		settingsDeployment.setInitParameter(
+				COMPACT_SERIALIZATION_PARAM, String.valueOf(compactSerialization));
+		httpSessionContextHolder[0] = new HttpSessionContext(
+				mockHttpSession, new HttpSessionContext.DeploymentSettings(settingsDeployment));
+		final var scopedProvider = servletModule.httpSessionScope
+			.scope(Key.get(Object.class), Object::new);
+		final int[] nullProductionCount = {0};
+		final var nullProvider = servletModule.httpSessionScope.scope(
+			Key.get(Object.class, Names.named("null")),
+			() -> {
+				nullProductionCount[0]++;
+				return null;
+			}
+		);
+		final var testRequestCtx = new ServletRequestContext(mockServletRequest, ctxTracker);
+
+		testRequestCtx.executeWithinSelf(() -> {
+			assertSame("the same object should be provided within a single HttpSession",
+					scopedProvider.get(), scopedProvider.get());
+			assertNull("null should be provided", nullProvider.get());
+			assertNull("null should be provided", nullProvider.get());
+			assertEquals("null should be scoped as any other object", 1, nullProductionCount[0]);
+		});
+		assertEquals("HttpSessionContext should store scoped objects itself only in the compact "
+						+ "mode",
+				compactSerialization, httpSessionContextHolder[0].compactModeScopedObjects != null);
+		try {
+			scopedProvider.get();
+			fail("providing an httpSessionScope-d object outside of any Context should throw");
+		} catch (OutOfScopeException expected) {}
+	}
+
+	@Test
+	public void testHttpSessionScopeStandardMode() {
+		testHttpSessionScope(false);
+	}
+
+	@Test
+	public void testHttpSessionScopeCompactMode() {
+		testHttpSessionScope(true);
+	}
 }
@@ -0,0 +1,220 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.scopes;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.websocket.*;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.*;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import pl.morgwai.base.servlet.guice.scopes.WebsocketConnectionExecutor.OverflowPolicy;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.*;
+
+
+
+public class WebsocketConnectionExecutorTests extends EasyMockSupport {
+
+
+
+	final WebsocketModule websocketModule = new WebsocketModule(false) {
+		@Override protected Executor getConnectionExecutorWorkerPool() {
+			return injectedExecutorWorkerPool;
+		}
+	};
+	final Injector injector = Guice.createInjector(websocketModule);
+	final ExecutorService injectedExecutorWorkerPool = Executors.newSingleThreadExecutor();
+
+	@Mock Session mockConnection;
+	final Map<String, Object> userProperties = new HashMap<>(2);
+	WebsocketConnectionProxy connectionProxy;
+	WebsocketConnectionContext connectionCtx;
+
+	/** Tasks passed to the worker pool by tested executors. */
+	final Queue<Runnable> workerTasks = new ConcurrentLinkedQueue<>();
+	final List<Integer> executedTasks = new ArrayList<>(5);
+
+
+
+	@Before
+	public void setup() {
+		injectMocks(this);
+		expect(mockConnection.getUserProperties())
+			.andReturn(userProperties)
+			.anyTimes();
+		replayAll();
+		connectionProxy = new WebsocketConnectionProxy(
+				mockConnection, websocketModule.containerCallScope.tracker);
+		connectionCtx = new WebsocketConnectionContext(connectionProxy);
+	}
+
+
+
+	@After
+	public void verifyMocks() {
+		injectedExecutorWorkerPool.shutdown();
+		verifyAll();
+	}
+
+
+
+	WebsocketConnectionExecutor newExecutor(int maxQueueSize, OverflowPolicy overflowPolicy) {
+		return new WebsocketConnectionExecutor(
+				connectionCtx, workerTasks::add, maxQueueSize, overflowPolicy);
+	}
+
+	Runnable newTask(int taskNumber) {
+		return () -> executedTasks.add(taskNumber);
+	}
+
+
+
+	@Test
+	public void testTasksAreExecutedSeriallyWithinConnectionContext() {
+		final var executor = newExecutor(10, OverflowPolicy.REJECT);
+		final var taskCtxs = new ArrayList<ContainerCallContext>(3);
+		for (int i = 0; i < 3; i++) {
+			final var taskNumber = i;
+			executor.execute(() -> {
+				taskCtxs.add(websocketModule.containerCallScope.tracker.getCurrentContext());
+				executedTasks.add(taskNumber);
+			});
+		}
+		assertEquals("only 1 task should be passed to the worker pool at a time",
+				1, workerTasks.size());
+		workerTasks.poll().run();
+
+		assertEquals("tasks should be executed in order", List.of(0, 1, 2), executedTasks);
+		for (var taskCtx: taskCtxs) {
+			assertSame("tasks should be executed within the connection's Context",
+					connectionCtx, ((WebsocketEventContext) taskCtx).getConnectionContext());
+		}
+		assertTrue("worker pool should not be used after the queue is drained",
+				workerTasks.isEmpty());
+	}
+
+
+
+	@Test
+	public void testRejectOverflowPolicy() {
+		final var executor = newExecutor(2, OverflowPolicy.REJECT);
+		executor.execute(newTask(0));
+		executor.execute(newTask(1));
+		try {
+			executor.execute(newTask(2));
+			fail("submitting a task to a full queue should be rejected");
+		} catch (RejectedExecutionException expected) {}
+		workerTasks.poll().run();
+		assertEquals("queued tasks should be executed", List.of(0, 1), executedTasks);
+	}
+
+
+
+	@Test
+	public void testDiscardNewestOverflowPolicy() {
+		final var executor = newExecutor(2, OverflowPolicy.DISCARD_NEWEST);
+		for (int i = 0; i < 3; i++) executor.execute(newTask(i));
+		workerTasks.poll().run();
+		assertEquals("the newest task should be discarded", List.of(0, 1), executedTasks);
+	}
+
+
+
+	@Test
+	public void testDiscardOldestOverflowPolicy() {
+		final var executor = newExecutor(2, OverflowPolicy.DISCARD_OLDEST);
+		for (int i = 0; i < 3; i++) executor.execute(newTask(i));
+		workerTasks.poll().run();
+		assertEquals("the oldest task should be discarded", List.of(1, 2), executedTasks);
+	}
+
+
+
+	@Test
+	public void testShutdown() {
+		final var executor = newExecutor(10, OverflowPolicy.REJECT);
+		executor.execute(newTask(0));
+		executor.shutdown();
+		assertTrue("executor should be shut down", executor.isShutdown());
+		try {
+			executor.execute(newTask(1));
+			fail("submitting a task after shutdown should be rejected");
+		} catch (RejectedExecutionException expected) {}
+		workerTasks.poll().run();
+		assertEquals("tasks queued before shutdown should be executed",
+				List.of(0), executedTasks);
+	}
+
+
+
+	@Test
+	public void testInvalidMaxQueueSize() {
+		try {
+			newExecutor(0, OverflowPolicy.REJECT);
+			fail("non-positive maxQueueSize should be rejected");
+		} catch (IllegalArgumentException expected) {}
+	}
+
+
+
+	@ClientEndpoint
+	public static class ExecutorUsingEndpoint {
+
+		Injector injector;
+		final List<WebsocketConnectionExecutor> executors = new ArrayList<>(2);
+
+		@OnOpen
+		public void onOpen(Session connection) {
+			executors.add(injector.getInstance(WebsocketConnectionExecutor.class));
+		}
+
+		@OnMessage
+		public void onMessage(String message) {
+			executors.add(injector.getInstance(WebsocketConnectionExecutor.class));
+		}
+
+		@OnClose
+		public void onClose(Session connection) {
+			assertFalse("executor should not be shut down before onClose returns",
+					executors.get(0).isShutdown());
+		}
+	}
+
+	@Test
+	public void testInjectedExecutorIsConnectionScopedAndShutDownOnClose() throws Exception {
+		final var endpoint = new ExecutorUsingEndpoint();
+		endpoint.injector = injector;
+		final var endpointProxy = injector.getInstance(GuiceEndpointConfigurator.class)
+			.getProxyForEndpoint(endpoint, false, false);
+
+		endpointProxy.onOpen(mockConnection);
+		endpointProxy.onMessage("msg");
+		assertSame("the same executor should be injected for all events of a connection",
+				endpoint.executors.get(0), endpoint.executors.get(1));
+
+		endpointProxy.onClose(mockConnection);
+		assertTrue("executor should be shut down after onClose",
+				endpoint.executors.get(0).isShutdown());
+	}
+
+
+
+	@Test
+	public void testDefaultWorkerPool() {
+		final var defaultModule = new WebsocketModule(false);
+		if (Runtime.version().feature() < 21) {
+			try {
+				defaultModule.getConnectionExecutorWorkerPool();
+				fail("there should be no default worker pool without virtual Threads");
+			} catch (IllegalStateException expected) {}
+		} else {
+			assertSame("virtual Thread executor should be shared by default",
+					defaultModule.getConnectionExecutorWorkerPool(),
+					new WebsocketModule(false).getConnectionExecutorWorkerPool());
+		}
+	}
+}
@@ -1,11 +1,15 @@
 // Copyright 2021 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
 package pl.morgwai.base.servlet.guice.scopes;
 
+import java.util.*;
 import javax.websocket.MessageHandler;
+import javax.websocket.Session;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.fail;
+import pl.morgwai.base.guice.scopes.ContextTracker;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
 import static pl.morgwai.base.servlet.guice.scopes.WebsocketConnectionProxy.getHandlerMessageClass;
 
 
@@ -70,4 +74,83 @@ public class WebsocketConnectionProxyTests {
 			fail("attempting to get a message class of a Handler of multiple types should fail");
 		} catch (IllegalArgumentException expected) {}
 	}
+
+
+
+	static abstract class GenericHandler<MessageT, UnusedT>
+			implements MessageHandler.Whole<MessageT> {
+		@Override public void onMessage(MessageT message) {}
+	}
+
+	static class IntermediateHandler<UnusedT, MessageT> extends GenericHandler<MessageT, UnusedT> {}
+
+	static class InheritingHandler extends IntermediateHandler<Long, String> {}
+
+	@Test
+	public void testGetHandlerMessageOfClassInheritingParameterization() {
+		assertEquals(
+			"message class of a Handler inheriting parameterization from its superclasses "
+					+ "should be properly recognized",
+			String.class,
+			getHandlerMessageClass(new InheritingHandler())
+		);
+		assertEquals("message class of an anonymous subclass should be properly recognized",
+				Long.class, getHandlerMessageClass(new GenericHandler<Long, String>() {}));
+	}
+
+
+
+	@Test
+	public void testGetHandlerMessageOfUnresolvableGenericHandler() {
+		try {
+			getHandlerMessageClass(new IntermediateHandler<Long, String>());
+			fail("attempting to get a message class of a Handler with an unresolved type variable "
+					+ "should fail");
+		} catch (IllegalArgumentException expected) {}
+	}
+
+
+
+	@Test
+	public void testGetOpenSessionsReturnsViewOfPeerProxies() {
+		final var ctxTracker = new ContextTracker<ContainerCallContext>();
+		final var rawPeerConnections = new HashSet<Session>(3);
+		final var peerProxies = new HashSet<WebsocketConnectionProxy>(3);
+		for (int i = 0; i < 2; i++) {
+			final Session rawPeerConnection = createMock(Session.class);
+			expect(rawPeerConnection.getUserProperties())
+				.andReturn(new HashMap<>(2))
+				.anyTimes();
+			replay(rawPeerConnection);
+			final var peerProxy = new WebsocketConnectionProxy(rawPeerConnection, ctxTracker);
+			new WebsocketConnectionContext(peerProxy);
+			rawPeerConnections.add(rawPeerConnection);
+			peerProxies.add(peerProxy);
+		}
+		final Session rawConnection = createMock(Session.class);
+		expect(rawConnection.getUserProperties())
+			.andReturn(new HashMap<>(2))
+			.anyTimes();
+		expect(rawConnection.getOpenSessions())
+			.andReturn(rawPeerConnections);
+		replay(rawConnection);
+
+		final var openSessions =
+				new WebsocketConnectionProxy(rawConnection, ctxTracker).getOpenSessions();
+		assertEquals("size should match the number of peer connections",
+				2, openSessions.size());
+		for (var peerConnection: openSessions) {
+			assertTrue("iterated peer connections should be the proxies stored in their Contexts",
+					peerProxies.stream().anyMatch((peerProxy) -> peerProxy == peerConnection));
+		}
+		assertTrue("proxies of peer connections should be contained in the view",
+				openSessions.containsAll(peerProxies));
+		assertFalse("raw peer connections should not be contained in the view",
+				openSessions.contains(rawPeerConnections.iterator().next()));
+		try {
+			openSessions.add(peerProxies.iterator().next());
+			fail("the view should be read-only");
+		} catch (UnsupportedOperationException expected) {}
+		verify(rawConnection);
+	}
 }
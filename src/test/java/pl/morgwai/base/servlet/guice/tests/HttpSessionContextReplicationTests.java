@@ -76,20 +76,24 @@ public class HttpSessionContextReplicationTests {
 		SessionDataStore firstNodeStore,
 		SessionDataStore secondNodeStore,
 		boolean startSecondNodeRightAway,
-		boolean customSerialization
+		boolean customSerialization,
+		boolean compactSerialization
 	) throws Exception {
-		firstNode = new JettyNode(0, FIRST_NODE_ID, firstNodeStore, customSerialization);
+		firstNode = new JettyNode(
+				0, FIRST_NODE_ID, firstNodeStore, customSerialization, compactSerialization);
 		if (startSecondNodeRightAway) {
 			// FileSessionDataStore's files may be accessed by only 1 node process at a time, so
 			// the start of secondNode needs to be delayed in such case, otherwise
 			// (JDBCSessionDataStore case) start it right away
-			secondNode = new JettyNode(0, SECOND_NODE_ID, secondNodeStore, customSerialization);
+			secondNode = new JettyNode(
+					0, SECOND_NODE_ID, secondNodeStore, customSerialization, compactSerialization);
 		}
 		final var firstNodeResponse = sendRequestAndParseResponse(firstNode);
 		firstNode.stop();
 
 		if (secondNode == null) {
-			secondNode = new JettyNode(0, SECOND_NODE_ID, secondNodeStore, customSerialization);
+			secondNode = new JettyNode(
+					0, SECOND_NODE_ID, secondNodeStore, customSerialization, compactSerialization);
 		}
 		final var secondNodeResponse = sendRequestAndParseResponse(secondNode);
 
@@ -135,23 +139,38 @@ public class HttpSessionContextReplicationTests {
 	@Test
 	public void testHttpSessionContextReplicationWithFileStoreAndStandardSerialization()
 			throws Exception {
-		testHttpSessionContextReplicationWithFileStore(false);
+		testHttpSessionContextReplicationWithFileStore(false, false);
 	}
 
 	@Test
 	public void testHttpSessionContextReplicationWithFileStoreAndCustomSerialization()
 			throws Exception {
-		testHttpSessionContextReplicationWithFileStore(true);
+		testHttpSessionContextReplicationWithFileStore(true, false);
 	}
 
-	void testHttpSessionContextReplicationWithFileStore(boolean customSerialization)
+	@Test
+	public void testHttpSessionContextReplicationWithFileStoreAndCompactStandardSerialization()
+			throws Exception {
+		testHttpSessionContextReplicationWithFileStore(false, true);
+	}
+
+	@Test
+	public void testHttpSessionContextReplicationWithFileStoreAndCompactCustomSerialization()
 			throws Exception {
+		testHttpSessionContextReplicationWithFileStore(true, true);
+	}
+
+	void testHttpSessionContextReplicationWithFileStore(
+		boolean customSerialization,
+		boolean compactSerialization
+	) throws Exception {
 		final var sessionFolder = temporaryFolder.getRoot();
 		testHttpSessionContextReplication(
 			createFileSessionStore(sessionFolder),
 			createFileSessionStore(sessionFolder),
 			false,
-			customSerialization
+			customSerialization,
+			compactSerialization
 		);
 	}
 
@@ -188,7 +207,8 @@ public class HttpSessionContextReplicationTests {
 			createJdbcSessionStore(adaptor),
 			createJdbcSessionStore(adaptor),
 			true,
-			customSerialization
+			customSerialization,
+			false
 		);
 	}
 
@@ -50,6 +50,18 @@ public class JettyNode extends org.eclipse.jetty.server.Server {
 		String nodeId,
 		SessionDataStore sessionStore,
 		boolean customSerialization
+	) throws Exception {
+		this(port, nodeId, sessionStore, customSerialization, false);
+	}
+
+
+
+	public JettyNode(
+		int port,
+		String nodeId,
+		SessionDataStore sessionStore,
+		boolean customSerialization,
+		boolean compactSerialization
 	) throws Exception {
 		super(port);
 		new DefaultSessionIdManager(this).setWorkerName(nodeId);
@@ -62,6 +74,10 @@ public class JettyNode extends org.eclipse.jetty.server.Server {
 			HttpSessionContext.CUSTOM_SERIALIZATION_PARAM,
 			String.valueOf(customSerialization)
 		);
+		testAppHandler.setInitParameter(
+			HttpSessionContext.COMPACT_SERIALIZATION_PARAM,
+			String.valueOf(compactSerialization)
+		);
 		testAppHandler.addEventListener(new ServletContextListener());
 		setHandler(testAppHandler);
 
@@ -223,8 +239,10 @@ public class JettyNode extends org.eclipse.jetty.server.Server {
 		sessionStore.setSavePeriodSec(0);
 
 		final var customSerialization = args.length > 3 && Boolean.parseBoolean(args[3]);
+		final var compactSerialization = args.length > 4 && Boolean.parseBoolean(args[4]);
 
-		final var node = new JettyNode(port, nodeId, sessionStore, customSerialization);
+		final var node = new JettyNode(
+				port, nodeId, sessionStore, customSerialization, compactSerialization);
 		node.setStopAtShutdown(true);
 		node.join();
 		System.out.println("exiting, bye!");
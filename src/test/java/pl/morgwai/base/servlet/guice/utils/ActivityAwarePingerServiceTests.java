@@ -0,0 +1,146 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import javax.websocket.Session;
+import org.junit.*;
+
+import pl.morgwai.base.servlet.guice.scopes.WebsocketConnectionProxy;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+
+
+public class ActivityAwarePingerServiceTests {
+
+
+
+	static final long INTERVAL_NANOS = 1000L;
+
+	final ScheduledExecutorService mockScheduler = createMock(ScheduledExecutorService.class);
+	final ScheduledFuture<?> mockSweepTask = createNiceMock(ScheduledFuture.class);
+	final ScheduledFuture<?> mockPingingTask = createNiceMock(ScheduledFuture.class);
+	ActivityAwarePingerService pingerService;
+
+
+
+	WebsocketConnectionProxy newConnectionProxy() {
+		final Session mockConnection = createNiceMock(Session.class);
+		expect(mockConnection.getUserProperties())
+			.andReturn(new HashMap<>())
+			.anyTimes();
+		replay(mockConnection);
+		return new WebsocketConnectionProxy(mockConnection, null) {};
+	}
+
+
+
+	/** Expects the sweep task and {@code pingingTaskCount} pinging tasks to be scheduled. */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	void createPingerService(int pingingTaskCount) {
+		expect(mockScheduler.scheduleAtFixedRate(
+				anyObject(), eq(INTERVAL_NANOS), eq(INTERVAL_NANOS), same(NANOSECONDS)))
+			.andReturn((ScheduledFuture) mockSweepTask);
+		expect(mockScheduler.scheduleWithFixedDelay(
+				anyObject(), eq(0L), eq(INTERVAL_NANOS), same(NANOSECONDS)))
+			.andReturn((ScheduledFuture) mockPingingTask)
+			.times(pingingTaskCount);
+		replay(mockScheduler, mockSweepTask, mockPingingTask);
+		pingerService = new ActivityAwarePingerService(
+				INTERVAL_NANOS, NANOSECONDS, "SHA-256", mockScheduler, false);
+	}
+
+
+
+	@After
+	public void verifyMocks() {
+		verify(mockScheduler);
+	}
+
+
+
+	@Test
+	public void testActiveConnectionIsSuspendedAndIdleOneResumed() {
+		createPingerService(2);
+		final var connectionProxy = newConnectionProxy();
+
+		pingerService.addConnection(connectionProxy);
+		assertTrue("activity tracking should be enabled",
+				connectionProxy.isInboundActivityTrackingEnabled());
+		final var registration = pingerService.registrations.get(connectionProxy);
+		assertTrue("connection should be pinged initially", registration.pinged);
+
+		final var lastActivityNanos = connectionProxy.getLastInboundMessageNanos();
+		pingerService.suspendOrResumePinging(lastActivityNanos + INTERVAL_NANOS - 1L);
+		assertFalse("pinging of a connection active within the interval should be suspended",
+				registration.pinged);
+		assertTrue("suspended connection should still be contained",
+				pingerService.containsConnection(connectionProxy));
+		assertEquals("suspended connection should still be counted",
+				1, pingerService.getNumberOfConnections());
+
+		pingerService.suspendOrResumePinging(lastActivityNanos + INTERVAL_NANOS);
+		assertTrue("pinging of an idle connection should be resumed", registration.pinged);
+		assertEquals("resumed connection should be counted once",
+				1, pingerService.getNumberOfConnections());
+	}
+
+
+
+	@Test
+	public void testRemovedConnectionIsNotResumed() {
+		createPingerService(1);
+		final var connectionProxy = newConnectionProxy();
+		pingerService.addConnection(connectionProxy);
+		final var lastActivityNanos = connectionProxy.getLastInboundMessageNanos();
+		pingerService.suspendOrResumePinging(lastActivityNanos);
+
+		assertTrue("suspended connection should be removable",
+				pingerService.removeConnection(connectionProxy));
+		pingerService.suspendOrResumePinging(lastActivityNanos + INTERVAL_NANOS);
+		assertFalse("removed connection should not be contained",
+				pingerService.containsConnection(connectionProxy));
+		assertEquals("removed connection should not be counted",
+				0, pingerService.getNumberOfConnections());
+	}
+
+
+
+	@Test
+	public void testShutdownReturnsSuspendedConnections() {
+		createPingerService(2);
+		final var suspendedConnection = newConnectionProxy();
+		final var pingedConnection = newConnectionProxy();
+		pingerService.addConnection(suspendedConnection);
+		pingerService.suspendOrResumePinging(suspendedConnection.getLastInboundMessageNanos());
+		pingerService.addConnection(pingedConnection);
+		reset(mockScheduler);
+		mockScheduler.shutdown();
+		replay(mockScheduler);
+
+		assertEquals("both suspended and pinged connections should be returned",
+				Set.of(suspendedConnection, pingedConnection), pingerService.shutdown());
+		assertTrue("registrations should be discarded", pingerService.registrations.isEmpty());
+	}
+
+
+
+	@Test
+	public void testOtherConnectionsArePingedAsUsually() {
+		createPingerService(1);
+		final Session mockConnection = createNiceMock(Session.class);
+		replay(mockConnection);
+
+		pingerService.addConnection(mockConnection);
+		assertTrue("connection should be contained",
+				pingerService.containsConnection(mockConnection));
+		assertTrue("connection should not be tracked", pingerService.registrations.isEmpty());
+		assertTrue("connection should be removable",
+				pingerService.removeConnection(mockConnection));
+	}
+}
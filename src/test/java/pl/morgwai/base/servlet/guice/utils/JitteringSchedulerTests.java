@@ -0,0 +1,66 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.HashSet;
+import java.util.concurrent.ScheduledExecutorService;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+
+
+public class JitteringSchedulerTests {
+
+
+
+	static final int TASK_COUNT = 100;
+	static final long INTERVAL = 1000L;
+
+	final ScheduledExecutorService mockScheduler = createMock(ScheduledExecutorService.class);
+	final JitteringScheduler scheduler = new JitteringScheduler(mockScheduler);
+
+
+
+	@Test
+	public void testInitialDelaysAreSpreadAcrossInterval() {
+		final Capture<Long> initialDelays = Capture.newInstance(CaptureType.ALL);
+		final Runnable task = () -> {};
+		expect(mockScheduler.scheduleWithFixedDelay(
+				same(task), captureLong(initialDelays), eq(INTERVAL), eq(MILLISECONDS)))
+			.andReturn(null)
+			.times(TASK_COUNT);
+		replay(mockScheduler);
+
+		for (int i = 0; i < TASK_COUNT; i++) {
+			scheduler.scheduleWithFixedDelay(task, 0L, INTERVAL, MILLISECONDS);
+		}
+
+		verify(mockScheduler);
+		for (var initialDelay: initialDelays.getValues()) {
+			assertTrue("initial delay should be within the interval",
+					initialDelay >= 0L && initialDelay < INTERVAL);
+		}
+		assertTrue("initial delays should vary",
+				new HashSet<>(initialDelays.getValues()).size() > 1);
+	}
+
+
+
+	@Test
+	public void testNonPeriodicTasksAreNotDelayed() {
+		final Runnable task = () -> {};
+		expect(mockScheduler.schedule(task, 5L, MILLISECONDS))
+			.andReturn(null);
+		mockScheduler.execute(task);
+		replay(mockScheduler);
+
+		scheduler.schedule(task, 5L, MILLISECONDS);
+		scheduler.execute(task);
+
+		verify(mockScheduler);
+	}
+}
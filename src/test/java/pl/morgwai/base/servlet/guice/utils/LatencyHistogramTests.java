@@ -0,0 +1,76 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.utils.LatencyHistogram.*;
+
+
+
+public class LatencyHistogramTests {
+
+
+
+	final LatencyHistogram histogram = new LatencyHistogram();
+
+
+
+	@Test
+	public void testCountsIndexRoundTrip() {
+		for (long value: new long[] {0L, 1L, 127L, 128L, 129L, 1000L, 123_456_789L}) {
+			final var highestEquivalentValue = highestEquivalentValue(countsIndex(value));
+			assertTrue("highest equivalent value should not be lower than the value",
+					highestEquivalentValue >= value);
+			assertTrue("relative error should not exceed 1/" + SUB_BUCKET_HALF_COUNT,
+					highestEquivalentValue - value <= value / SUB_BUCKET_HALF_COUNT);
+		}
+		assertEquals("consecutive buckets should be contiguous",
+				countsIndex(255L) + 1, countsIndex(256L));
+	}
+
+
+
+	@Test
+	public void testPercentiles() {
+		for (long i = 1; i <= 10_000; i++) histogram.record(i * 1000L);
+
+		assertEquals("count should match", 10_000L, histogram.getCount());
+		assertEquals("max should match", 10_000_000L, histogram.getMaxNanos());
+		assertEquals("mean should match", 5_000_500.0, histogram.getMeanNanos(), 0.001);
+		final var median = histogram.getValueAtPercentile(50.0);
+		assertEquals("median should be accurate within 1/" + SUB_BUCKET_HALF_COUNT,
+				5_000_000.0, median, 5_000_000.0 / SUB_BUCKET_HALF_COUNT);
+		final var p99 = histogram.getValueAtPercentile(99.0);
+		assertEquals("99th percentile should be accurate within 1/" + SUB_BUCKET_HALF_COUNT,
+				9_900_000.0, p99, 9_900_000.0 / SUB_BUCKET_HALF_COUNT);
+		assertEquals("100th percentile should be the max",
+				10_000_000L, histogram.getValueAtPercentile(100.0));
+	}
+
+
+
+	@Test
+	public void testEmptyAndClampedValues() {
+		assertEquals("percentile of an empty histogram should be 0",
+				0L, histogram.getValueAtPercentile(50.0));
+		assertEquals("mean of an empty histogram should be 0", 0.0, histogram.getMeanNanos(), 0.0);
+
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(-5L);
+		assertEquals("values above the highest trackable should be clamped",
+				HIGHEST_TRACKABLE_VALUE, histogram.getMaxNanos());
+		assertEquals("negative values should be recorded as 0",
+				0L, histogram.getValueAtPercentile(50.0));
+	}
+
+
+
+	@Test
+	public void testInvalidPercentile() {
+		try {
+			histogram.getValueAtPercentile(100.1);
+			fail("percentile above 100 should be rejected");
+		} catch (IllegalArgumentException expected) {}
+	}
+}
@@ -0,0 +1,115 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.junit.*;
+
+import pl.morgwai.base.servlet.utils.WebsocketPingerService;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.utils.PingHashProvider.FNV1A_64;
+import static pl.morgwai.base.servlet.guice.utils.PingHashProvider.SEQUENCE_NUMBER;
+
+
+
+public class PingHashProviderTests {
+
+
+
+	PingHashProvider provider;
+
+
+
+	@Before
+	public void installProvider() {
+		provider = PingHashProvider.install();
+	}
+
+
+
+	@After
+	public void uninstallProvider() {
+		provider.uninstall();
+	}
+
+
+
+	static long digestToLong(byte[] digest) {
+		return ByteBuffer.wrap(digest).getLong();
+	}
+
+
+
+	@Test
+	public void testReferenceValues() throws Exception {
+		final var fnv = MessageDigest.getInstance(FNV1A_64);
+		assertEquals("digest length should be 8", 8, fnv.getDigestLength());
+		assertEquals("empty input should hash to the offset basis",
+				0xcbf29ce484222325L, digestToLong(fnv.digest()));
+		assertEquals("hash of \"a\" should match the reference value",
+				0xaf63dc4c8601ec8cL, digestToLong(fnv.digest("a".getBytes(UTF_8))));
+		assertEquals("hash of \"foobar\" should match the reference value",
+				0x85944171f73967e8L, digestToLong(fnv.digest("foobar".getBytes(UTF_8))));
+	}
+
+
+
+	@Test
+	public void testDigestIntoBuffer() throws Exception {
+		final var fnv = MessageDigest.getInstance(FNV1A_64);
+		final var buffer = new byte[10];
+		fnv.update("foobar".getBytes(UTF_8));
+		assertEquals("digest length should be returned", 8, fnv.digest(buffer, 2, 8));
+		assertEquals("digest should be written at the given offset",
+				0x85944171f73967e8L, ByteBuffer.wrap(buffer, 2, 8).getLong());
+		assertEquals("state should be reset after digesting",
+				0xcbf29ce484222325L, digestToLong(fnv.digest()));
+	}
+
+
+
+	@Test
+	public void testPingerServiceAcceptsFnv() throws InterruptedException {
+		final var pingerService = new WebsocketPingerService(55L, SECONDS, FNV1A_64,
+				WebsocketPingerService.newDefaultScheduler(), false);
+		pingerService.shutdown();
+		assertTrue("pinger should terminate", pingerService.awaitTermination(1L, SECONDS));
+	}
+
+
+
+	@Test
+	public void testPingerServiceAcceptsSequenceNumber() throws Exception {
+		assertEquals("sequence number digest should be empty",
+				0, MessageDigest.getInstance(SEQUENCE_NUMBER).getDigestLength());
+		final var pingerService = new WebsocketPingerService(55L, SECONDS, SEQUENCE_NUMBER,
+				WebsocketPingerService.newDefaultScheduler(), false);
+		pingerService.shutdown();
+		assertTrue("pinger should terminate", pingerService.awaitTermination(1L, SECONDS));
+	}
+
+
+
+	@Test
+	public void testUninstallingDoesNotAffectOtherDeployments() throws Exception {
+		final var otherDeploymentProvider = PingHashProvider.install();
+		assertNotEquals("each installation should have a unique name",
+				provider.getName(), otherDeploymentProvider.getName());
+		otherDeploymentProvider.uninstall();
+		assertEquals("digest should still be available for the remaining deployment",
+				8, MessageDigest.getInstance(FNV1A_64).getDigestLength());
+
+		provider.uninstall();
+		try {
+			MessageDigest.getInstance(FNV1A_64);
+			fail("digest should not be available after all providers are uninstalled");
+		} catch (NoSuchAlgorithmException expected) {
+		} finally {
+			provider = PingHashProvider.install();  // for uninstallProvider()
+		}
+	}
+}
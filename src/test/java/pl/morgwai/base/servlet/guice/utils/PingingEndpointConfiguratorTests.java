@@ -1,12 +1,12 @@
 // Copyright 2024 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
 package pl.morgwai.base.servlet.guice.utils;
 
+import java.util.Map;
 import javax.websocket.*;
 import org.junit.Test;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
-import static pl.morgwai.base.servlet.guice.utils.PingingEndpointConfigurator.isOnOpen;
+import static org.junit.Assert.*;
+import static pl.morgwai.base.servlet.guice.utils.PingingEndpointConfigurator.*;
 
 
 
@@ -64,4 +64,40 @@ public class PingingEndpointConfiguratorTests {
 		final var method = ProgrammaticEndpoint.class.getDeclaredMethod("onOpen", Session.class);
 		assertFalse(isOnOpen(method));
 	}
+
+
+
+	@Test
+	public void testGetLifecycleMethodRolesOfProgrammaticEndpoint() throws NoSuchMethodException {
+		assertEquals(
+			"only Endpoint's onOpen(...) and onClose(...) should be included",
+			Map.of(
+				ProgrammaticEndpoint.class.getMethod(
+						"onOpen", Session.class, EndpointConfig.class),
+				LifecycleRole.OPEN,
+				ProgrammaticEndpoint.class.getMethod("onClose", Session.class, CloseReason.class),
+				LifecycleRole.CLOSE
+			),
+			getLifecycleMethodRoles(ProgrammaticEndpoint.class)
+		);
+	}
+
+
+
+	public static class AnnotatedExtendingEndpointWithOnClose extends AnnotatedExtendingEndpoint {
+		@OnClose public void onClose() {}
+	}
+
+	@Test
+	public void testGetLifecycleMethodRolesOfAnnotatedEndpoint() throws NoSuchMethodException {
+		final Class<?> endpointClass = AnnotatedExtendingEndpointWithOnClose.class;
+		assertEquals(
+			"only annotated onOpen(...) and onClose(...) should be included",
+			Map.of(
+				endpointClass.getMethod("onOpen", Session.class), LifecycleRole.OPEN,
+				endpointClass.getMethod("onClose"), LifecycleRole.CLOSE
+			),
+			getLifecycleMethodRoles(endpointClass)
+		);
+	}
 }
@@ -0,0 +1,95 @@
+// Copyright 2026 Piotr Morgwai Kotarbinski, Licensed under the Apache License, Version 2.0
+package pl.morgwai.base.servlet.guice.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import javax.websocket.*;
+import org.easymock.Capture;
+import org.junit.Test;
+
+import pl.morgwai.base.servlet.utils.WebsocketPingerService;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+
+
+public class RttAggregatorTests {
+
+
+
+	final RttAggregator rttAggregator = new RttAggregator();
+
+
+
+	public static class PlainEndpoint {
+		@OnOpen public void onOpen(Session connection) {}
+		@OnClose public void onClose(Session connection) {}
+	}
+
+	@Test
+	public void testConfiguratorRecordsRttsOfNonObservingEndpoints() throws Throwable {
+		final Session mockConnection = createMock(Session.class);
+		final WebsocketPingerService mockPingerService = createMock(WebsocketPingerService.class);
+		final Capture<BiConsumer<Session, Long>> rttReceiverCapture = Capture.newInstance();
+		mockPingerService.addConnection(same(mockConnection), capture(rttReceiverCapture));
+		expectLastCall().times(1);
+		expect(mockPingerService.removeConnection(mockConnection))
+			.andReturn(true)
+			.times(1);
+		replay(mockConnection, mockPingerService);
+		final var configurator = new PingingEndpointConfigurator(
+				null, null, false, mockPingerService, rttAggregator);
+		final var decorator = configurator.getAdditionalDecorator(new PlainEndpoint());
+
+		decorator.invoke(
+			null,
+			PlainEndpoint.class.getMethod("onOpen", Session.class),
+			new Object[] {mockConnection}
+		);
+		rttReceiverCapture.getValue().accept(mockConnection, 1000L);
+		rttReceiverCapture.getValue().accept(mockConnection, 3000L);
+		decorator.invoke(
+			null,
+			PlainEndpoint.class.getMethod("onClose", Session.class),
+			new Object[] {mockConnection}
+		);
+
+		verify(mockConnection, mockPingerService);
+		final var histogram = rttAggregator.getRttHistogram(PlainEndpoint.class);
+		assertEquals("all RTTs should be recorded", 2L, histogram.getCount());
+		assertEquals("max RTT should match", 3000L, histogram.getMaxNanos());
+		assertEquals("only PlainEndpoint class should be present",
+				Set.of(PlainEndpoint.class), rttAggregator.getEndpointClasses());
+	}
+
+
+
+	public static class ObservingEndpoint implements RttObserver {
+		final List<Long> rtts = new ArrayList<>();
+		@Override public void onPong(long rttNanos) { rtts.add(rttNanos); }
+	}
+
+	@Test
+	public void testRttReceiverRecordsAndNotifiesObserver() {
+		final var endpoint = new ObservingEndpoint();
+		final var rttReceiver = RttAggregator.newRttReceiver(rttAggregator, endpoint);
+
+		rttReceiver.accept(null, 500L);
+
+		assertEquals("RTT should be passed to the observer", List.of(500L), endpoint.rtts);
+		assertEquals("RTT should be recorded",
+				1L, rttAggregator.getRttHistogram(ObservingEndpoint.class).getCount());
+	}
+
+	@Test
+	public void testRttReceiverWithoutAggregator() {
+		final var endpoint = new ObservingEndpoint();
+		RttAggregator.newRttReceiver(null, endpoint).accept(null, 500L);
+		assertEquals("RTT should be passed to the observer", List.of(500L), endpoint.rtts);
+		assertNull("no receiver should be created if there's neither an aggregator nor an observer",
+				RttAggregator.newRttReceiver(null, new PlainEndpoint()));
+	}
+}